@@ -0,0 +1,104 @@
+package com.github.lascrusade.ec2minecraftmanager.benchmarks;
+
+import com.github.lascrusade.ec2minecraftmanager.modules.*;
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import com.velocitypowered.api.event.player.ServerPreConnectEvent;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures.LOGGER;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectPathBenchmark {
+  private ProxyEventListeners listeners;
+  private Player player;
+  private RegisteredServer readyServer;
+  private RegisteredServer startingServer;
+  private RegisteredServer unconfiguredServer;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    TestFixtures.ManualClock clock = new TestFixtures.ManualClock();
+    TestFixtures.StubEC2Gateway ec2 = new TestFixtures.StubEC2Gateway(false);
+    this.player = TestFixtures.player("benchmark");
+    this.readyServer = TestFixtures.registeredServer("ready", TestFixtures.privateIp(0), List.of(this.player));
+    this.startingServer = TestFixtures.registeredServer("starting", TestFixtures.privateIp(1), List.of());
+    this.unconfiguredServer = TestFixtures.registeredServer("lobby", TestFixtures.privateIp(2), List.of());
+
+    Map<String, MinecraftServer> servers = new HashMap<>();
+    MinecraftServer ready = new MinecraftServer(
+      TestFixtures.instanceId(0),
+      TestFixtures.settings(),
+      this.readyServer,
+      ec2,
+      task -> { },
+      clock,
+      LOGGER
+    );
+    ready.update(InstanceState.RUNNING, ProbeResult.portOpen());
+    servers.put("ready", ready);
+    // The start task is never run, so this server stays STARTING for the whole benchmark
+    MinecraftServer starting = new MinecraftServer(
+      TestFixtures.instanceId(1),
+      TestFixtures.settings(),
+      this.startingServer,
+      ec2,
+      task -> { },
+      clock,
+      LOGGER
+    );
+    starting.start();
+    servers.put("starting", starting);
+
+    JoinHistoryStore historyStore = new JoinHistoryStore(
+      Files.createTempDirectory("ec2mm-bench").resolve("join-history.dat"),
+      LOGGER
+    );
+    PrewarmPlanner prewarmPlanner = new PrewarmPlanner(historyStore, Clock.systemUTC(), clock, LOGGER);
+    WaitingQueue waitingQueue = new WaitingQueue(new QueueSettings("", 5, 5, 300), null, clock, LOGGER);
+    this.listeners = new ProxyEventListeners(
+      LOGGER,
+      servers,
+      prewarmPlanner,
+      waitingQueue,
+      new PluginMetrics(),
+      new FleetStatusBoard(servers.values(), new PingSettings(true, "")),
+      clock
+    );
+  }
+
+  @Benchmark
+  public ServerPreConnectEvent connectToReadyServer() {
+    ServerPreConnectEvent event = new ServerPreConnectEvent(this.player, this.readyServer);
+    this.listeners.beforePlayerConnectToServer(event);
+    return event;
+  }
+
+  @Benchmark
+  public ServerPreConnectEvent connectToStartingServer() {
+    ServerPreConnectEvent event = new ServerPreConnectEvent(this.player, this.startingServer);
+    this.listeners.beforePlayerConnectToServer(event);
+    return event;
+  }
+
+  @Benchmark
+  public ServerPreConnectEvent connectToUnconfiguredServer() {
+    ServerPreConnectEvent event = new ServerPreConnectEvent(this.player, this.unconfiguredServer);
+    this.listeners.beforePlayerConnectToServer(event);
+    return event;
+  }
+}
@@ -0,0 +1,85 @@
+package com.github.lascrusade.ec2minecraftmanager.benchmarks;
+
+import com.github.lascrusade.ec2minecraftmanager.modules.*;
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import com.velocitypowered.api.proxy.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures.LOGGER;
+
+/**
+ * One polling tick over the whole fleet, as the plugin runs it every second: drain the due servers,
+ * refresh them with one batched status call and reschedule them. Every server has a player and a
+ * heartbeat that never expires, so no server is probed over the network or stopped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FleetTickBenchmark {
+  private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  @Param({ "10", "100", "1000" })
+  public int fleetSize;
+
+  private TestFixtures.ManualClock clock;
+  private PollScheduler pollScheduler;
+  private FleetStatusRefresher statusRefresher;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.clock = new TestFixtures.ManualClock();
+    TestFixtures.StubEC2Gateway ec2 = new TestFixtures.StubEC2Gateway(false);
+    Map<ServerLifecycleState, Long> intervals = new EnumMap<>(ServerLifecycleState.class);
+    for (ServerLifecycleState state : ServerLifecycleState.values()) {
+      intervals.put(state, 1L);
+    }
+    this.pollScheduler = new PollScheduler(new PollingSettings(intervals), this.clock);
+    PluginMetrics metrics = new PluginMetrics();
+    this.statusRefresher = new FleetStatusRefresher(new ReadinessProber(LOGGER), metrics, Runnable::run, LOGGER);
+
+    List<MinecraftServer> servers = new ArrayList<>(this.fleetSize);
+    for (int index = 0; index < this.fleetSize; index++) {
+      Player player = TestFixtures.player("player-" + index);
+      MinecraftServer server = new MinecraftServer(
+        TestFixtures.instanceId(index),
+        TestFixtures.settings(StopMode.STOP, Integer.MAX_VALUE, TestFixtures.shutdown(EnumSet.of(ShutdownRule.IDLE_TIMEOUT))),
+        TestFixtures.registeredServer("server-" + index, TestFixtures.privateIp(index), List.of(player)),
+        ec2,
+        Runnable::run,
+        this.clock,
+        LOGGER
+      );
+      ec2.put(server.getAWSInstanceId(), InstanceState.RUNNING);
+      server.onBackendHeartbeat(1, 20f);
+      server.addLifecycleListener(this.pollScheduler);
+      server.addLifecycleListener(metrics);
+      this.pollScheduler.scheduleNow(server);
+      servers.add(server);
+    }
+    metrics.bindFleet(servers, server -> 0, null);
+  }
+
+  @Benchmark
+  public int tick() {
+    this.clock.advance(TICK_NANOS);
+    List<MinecraftServer> dueServers = this.pollScheduler.drainDue();
+    try {
+      this.statusRefresher.refresh(dueServers);
+    } finally {
+      for (MinecraftServer server : dueServers) {
+        this.pollScheduler.scheduleNext(server);
+      }
+    }
+    return dueServers.size();
+  }
+}
@@ -0,0 +1,99 @@
+package com.github.lascrusade.ec2minecraftmanager.benchmarks;
+
+import com.github.lascrusade.ec2minecraftmanager.modules.EC2Client;
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the IP to instance id discovery done at startup against a loopback fake of DescribeInstances.
+ * Responses are cached per request body so the fake side stays out of the numbers as much as possible,
+ * and the fake server disables Nagle so small responses are not held back by delayed ACKs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class InstanceDiscoveryBenchmark {
+  @Param({ "10", "100", "1000" })
+  public int fleetSize;
+
+  private HttpServer fakeEC2;
+  private EC2Client client;
+  private List<String> ipAddresses;
+  private final Map<String, byte[]> responses = new ConcurrentHashMap<>();
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    this.ipAddresses = new ArrayList<>(this.fleetSize);
+    for (int index = 0; index < this.fleetSize; index++) {
+      this.ipAddresses.add(TestFixtures.privateIp(index));
+    }
+    this.fakeEC2 = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    this.fakeEC2.createContext("/", this::describeInstances);
+    this.fakeEC2.start();
+    this.client = new EC2Client(
+      "us-east-1",
+      "AKIDBENCHMARK",
+      "benchmark-secret",
+      "http://127.0.0.1:" + this.fakeEC2.getAddress().getPort() + "/"
+    );
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.fakeEC2.stop(0);
+  }
+
+  @Benchmark
+  public Map<String, String> findInstanceIdsByPrivateIp() throws IOException {
+    return this.client.findInstanceIdsByPrivateIp(this.ipAddresses);
+  }
+
+  private void describeInstances(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+      byte[] response = this.responses.computeIfAbsent(body, InstanceDiscoveryBenchmark::describeInstancesResponse);
+      exchange.getResponseHeaders().set("Content-Type", "text/xml;charset=UTF-8");
+      exchange.sendResponseHeaders(200, response.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(response);
+      }
+    }
+  }
+
+  private static byte[] describeInstancesResponse(String requestBody) {
+    StringBuilder xml = new StringBuilder()
+      .append("<DescribeInstancesResponse xmlns=\"http://ec2.amazonaws.com/doc/2016-11-15/\">")
+      .append("<requestId>benchmark</requestId><reservationSet>");
+    for (String param : requestBody.split("&")) {
+      int separator = param.indexOf('=');
+      String key = URLDecoder.decode(param.substring(0, separator), StandardCharsets.UTF_8);
+      if (!key.startsWith("Filter.1.Value.")) continue;
+      String ipAddress = URLDecoder.decode(param.substring(separator + 1), StandardCharsets.UTF_8);
+      int index = Integer.parseInt(key.substring("Filter.1.Value.".length()));
+      xml.append("<item><reservationId>r-benchmark</reservationId><instancesSet><item>")
+        .append("<instanceId>").append(TestFixtures.instanceId(ipAddress.hashCode() & 0xffffff)).append("</instanceId>")
+        .append("<instanceState><code>16</code><name>running</name></instanceState>")
+        .append("<privateIpAddress>").append(ipAddress).append("</privateIpAddress>")
+        .append("<amiLaunchIndex>").append(index).append("</amiLaunchIndex>")
+        .append("</item></instancesSet></item>");
+    }
+    xml.append("</reservationSet></DescribeInstancesResponse>");
+    return xml.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,81 @@
+package com.github.lascrusade.ec2minecraftmanager.benchmarks;
+
+import com.github.lascrusade.ec2minecraftmanager.modules.*;
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import com.velocitypowered.api.event.proxy.ProxyPingEvent;
+import com.velocitypowered.api.proxy.InboundConnection;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures.LOGGER;
+
+/**
+ * Server list pings answered from the fleet snapshot, and the once per second check that rebuilds the
+ * snapshot only when a player count changed. Every other server is online with one player.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProxyPingBenchmark {
+
+  @Param({ "10", "100", "1000" })
+  public int fleetSize;
+
+  private FleetStatusBoard statusBoard;
+  private InboundConnection connection;
+  private ServerPing proxyPing;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    TestFixtures.ManualClock clock = new TestFixtures.ManualClock();
+    TestFixtures.StubEC2Gateway ec2 = new TestFixtures.StubEC2Gateway(false);
+    Map<String, MinecraftServer> servers = new ConcurrentHashMap<>();
+    this.statusBoard = new FleetStatusBoard(servers.values(), new PingSettings(true, ""));
+    for (int index = 0; index < this.fleetSize; index++) {
+      List<Player> players = index % 2 == 0 ? List.of(TestFixtures.player("player-" + index)) : List.of();
+      MinecraftServer server = new MinecraftServer(
+        TestFixtures.instanceId(index),
+        TestFixtures.settings(),
+        TestFixtures.registeredServer("server-" + index, TestFixtures.privateIp(index), players),
+        ec2,
+        Runnable::run,
+        clock,
+        LOGGER
+      );
+      server.addLifecycleListener(this.statusBoard);
+      servers.put(server.getName(), server);
+      if (index % 2 == 0) server.update(InstanceState.RUNNING, ProbeResult.portOpen());
+    }
+    this.statusBoard.refresh();
+    this.connection = TestFixtures.inboundConnection();
+    this.proxyPing = new ServerPing(
+      new ServerPing.Version(763, "Velocity 1.20.1"),
+      new ServerPing.Players(this.fleetSize / 2, 500, List.of()),
+      Component.text("A Velocity Server"),
+      null
+    );
+  }
+
+  @Benchmark
+  public ProxyPingEvent ping() {
+    ProxyPingEvent event = new ProxyPingEvent(this.connection, this.proxyPing);
+    this.statusBoard.fillPing(event);
+    return event;
+  }
+
+  @Benchmark
+  public FleetStatusSnapshot refreshUnchanged() {
+    this.statusBoard.refresh();
+    return this.statusBoard.getSnapshot();
+  }
+}
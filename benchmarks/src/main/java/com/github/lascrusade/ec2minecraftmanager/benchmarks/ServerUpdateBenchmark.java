@@ -0,0 +1,71 @@
+package com.github.lascrusade.ec2minecraftmanager.benchmarks;
+
+import com.github.lascrusade.ec2minecraftmanager.modules.InstanceState;
+import com.github.lascrusade.ec2minecraftmanager.modules.MinecraftServer;
+import com.github.lascrusade.ec2minecraftmanager.modules.ProbeResult;
+import com.github.lascrusade.ec2minecraftmanager.modules.ServerLifecycleState;
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures.LOGGER;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServerUpdateBenchmark {
+  private static final ProbeResult PORT_OPEN = ProbeResult.portOpen();
+
+  private MinecraftServer idleServer;
+  private MinecraftServer busyServer;
+  private int heartbeatPlayers;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    // The clock never moves, so the idle server never reaches its idle timeout and stays IDLE
+    TestFixtures.ManualClock clock = new TestFixtures.ManualClock();
+    TestFixtures.StubEC2Gateway ec2 = new TestFixtures.StubEC2Gateway(false);
+    this.idleServer = new MinecraftServer(
+      TestFixtures.instanceId(0),
+      TestFixtures.settings(),
+      TestFixtures.registeredServer("idle", TestFixtures.privateIp(0), List.of()),
+      ec2,
+      Runnable::run,
+      clock,
+      LOGGER
+    );
+    this.busyServer = new MinecraftServer(
+      TestFixtures.instanceId(1),
+      TestFixtures.settings(),
+      TestFixtures.registeredServer("busy", TestFixtures.privateIp(1), List.of()),
+      ec2,
+      Runnable::run,
+      clock,
+      LOGGER
+    );
+    ec2.put(TestFixtures.instanceId(0), InstanceState.RUNNING);
+    ec2.put(TestFixtures.instanceId(1), InstanceState.RUNNING);
+    this.idleServer.update(InstanceState.RUNNING, PORT_OPEN);
+    this.busyServer.update(InstanceState.RUNNING, PORT_OPEN);
+  }
+
+  @Benchmark
+  public ServerLifecycleState updateSteadyState() {
+    this.idleServer.update(InstanceState.RUNNING, PORT_OPEN);
+    return this.idleServer.getLifecycleState();
+  }
+
+  // Flips between ONLINE and IDLE on every call, so each update goes through a CAS transition and its listeners
+  @Benchmark
+  public ServerLifecycleState updateWithTransition() {
+    this.heartbeatPlayers = 1 - this.heartbeatPlayers;
+    this.busyServer.onBackendHeartbeat(this.heartbeatPlayers, 20f);
+    this.busyServer.update(InstanceState.RUNNING, PORT_OPEN);
+    return this.busyServer.getLifecycleState();
+  }
+}
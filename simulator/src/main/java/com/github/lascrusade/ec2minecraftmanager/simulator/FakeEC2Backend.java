@@ -0,0 +1,223 @@
+package com.github.lascrusade.ec2minecraftmanager.simulator;
+
+import com.github.lascrusade.ec2minecraftmanager.modules.EC2Exception;
+import com.github.lascrusade.ec2minecraftmanager.modules.EC2Gateway;
+import com.github.lascrusade.ec2minecraftmanager.modules.InstanceState;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EC2 stand-in with per-call latency, a token bucket throttle answering RequestLimitExceeded like the
+ * real API, and instances that take time to boot and stop. It also keeps the bill: an instance counts
+ * from its start request until its stop request.
+ */
+final class FakeEC2Backend implements EC2Gateway {
+  private static final int MAX_INSTANCE_IDS_PER_STATUS_CALL = 100;
+
+  private final SimulationSettings settings;
+  private final VirtualTimeScheduler scheduler;
+  private final Random random;
+  private final Map<String, FakeInstance> instances = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+  private final LongAdder throttledCalls = new LongAdder();
+  private final LongAdder starts = new LongAdder();
+  private final LongAdder stops = new LongAdder();
+
+  private double tokens;
+  private long tokensRefilledAtNanos;
+
+  FakeEC2Backend(SimulationSettings settings, VirtualTimeScheduler scheduler, Random random) {
+    this.settings = settings;
+    this.scheduler = scheduler;
+    this.random = random;
+    this.tokens = settings.apiBurst();
+  }
+
+  void addInstance(String instanceId, String privateIp) {
+    this.instances.put(instanceId, new FakeInstance(privateIp));
+  }
+
+  boolean isPortOpen(String instanceId) {
+    FakeInstance instance = this.instances.get(instanceId);
+    synchronized (instance) {
+      return instance.state == InstanceState.RUNNING && this.scheduler.nanoTime() >= instance.portOpenAtNanos;
+    }
+  }
+
+  Map<String, Long> getCalls() {
+    Map<String, Long> output = new TreeMap<>();
+    this.calls.forEach((action, count) -> output.put(action, count.sum()));
+    return output;
+  }
+
+  long getThrottledCalls() {
+    return this.throttledCalls.sum();
+  }
+
+  long getStarts() {
+    return this.starts.sum();
+  }
+
+  long getStops() {
+    return this.stops.sum();
+  }
+
+  double getInstanceHours() {
+    long now = this.scheduler.nanoTime();
+    long billedNanos = 0;
+    for (FakeInstance instance : this.instances.values()) {
+      synchronized (instance) {
+        billedNanos += instance.billedNanos;
+        if (instance.billedSinceNanos >= 0) billedNanos += now - instance.billedSinceNanos;
+      }
+    }
+    return billedNanos / (double) TimeUnit.HOURS.toNanos(1);
+  }
+
+  @Override
+  public Map<String, String> findInstanceIdsByPrivateIp(Collection<String> privateIpAddresses) throws IOException {
+    this.call("DescribeInstances");
+    Set<String> wanted = new HashSet<>(privateIpAddresses);
+    Map<String, String> instanceIds = new HashMap<>();
+    this.instances.forEach((instanceId, instance) -> {
+      if (wanted.contains(instance.privateIp)) instanceIds.put(instance.privateIp, instanceId);
+    });
+    return instanceIds;
+  }
+
+  // Simulated instances are matched by private IP only, they carry no tags
+  @Override
+  public Map<String, String> findInstanceIdsByTag(String tagKey, Collection<String> tagValues) throws IOException {
+    this.call("DescribeInstances");
+    return Map.of();
+  }
+
+  @Override
+  public InstanceState describeInstanceState(String instanceId) throws IOException {
+    return this.describeInstanceStates(List.of(instanceId)).getOrDefault(instanceId, InstanceState.UNKNOWN);
+  }
+
+  @Override
+  public Map<String, InstanceState> describeInstanceStates(Collection<String> instanceIds) throws IOException {
+    Map<String, InstanceState> states = new HashMap<>();
+    int batches = (instanceIds.size() + MAX_INSTANCE_IDS_PER_STATUS_CALL - 1) / MAX_INSTANCE_IDS_PER_STATUS_CALL;
+    for (int batch = 0; batch < batches; batch++) {
+      this.call("DescribeInstanceStatus");
+    }
+    for (String instanceId : instanceIds) {
+      FakeInstance instance = this.instances.get(instanceId);
+      if (instance == null) continue;
+      synchronized (instance) {
+        states.put(instanceId, instance.state);
+      }
+    }
+    return states;
+  }
+
+  @Override
+  public void startInstance(String instanceId) throws IOException {
+    this.call("StartInstances");
+    FakeInstance instance = this.instances.get(instanceId);
+    synchronized (instance) {
+      if (instance.state == InstanceState.PENDING || instance.state == InstanceState.RUNNING) return;
+      if (instance.state != InstanceState.STOPPED) {
+        throw new EC2Exception(400, "IncorrectInstanceState", "StartInstances: instance " + instanceId + " is " +
+          instance.state.getAWSName());
+      }
+      this.starts.increment();
+      long now = this.scheduler.nanoTime();
+      long generation = ++instance.generation;
+      instance.state = InstanceState.PENDING;
+      instance.billedSinceNanos = now;
+      this.scheduler.schedule(now + this.jitter(TimeUnit.SECONDS.toNanos(this.settings.ec2BootSeconds())), () -> {
+        synchronized (instance) {
+          if (instance.generation != generation) return;
+          long bootSeconds = instance.hibernated ? this.settings.hibernateResumeSeconds() : this.settings.serverBootSeconds();
+          instance.state = InstanceState.RUNNING;
+          instance.hibernated = false;
+          instance.portOpenAtNanos = this.scheduler.nanoTime() + this.jitter(TimeUnit.SECONDS.toNanos(bootSeconds));
+        }
+      });
+    }
+  }
+
+  @Override
+  public void stopInstance(String instanceId) throws IOException {
+    this.call("StopInstances");
+    this.stop(instanceId, false);
+  }
+
+  @Override
+  public void hibernateInstance(String instanceId) throws IOException {
+    this.call("StopInstances");
+    this.stop(instanceId, true);
+  }
+
+  private void stop(String instanceId, boolean hibernate) throws EC2Exception {
+    FakeInstance instance = this.instances.get(instanceId);
+    synchronized (instance) {
+      if (instance.state == InstanceState.STOPPING || instance.state == InstanceState.STOPPED) return;
+      if (instance.state != InstanceState.RUNNING && instance.state != InstanceState.PENDING) {
+        throw new EC2Exception(400, "IncorrectInstanceState", "StopInstances: instance " + instanceId + " is " +
+          instance.state.getAWSName());
+      }
+      this.stops.increment();
+      long now = this.scheduler.nanoTime();
+      long generation = ++instance.generation;
+      instance.state = InstanceState.STOPPING;
+      instance.hibernated = hibernate;
+      instance.portOpenAtNanos = Long.MAX_VALUE;
+      instance.billedNanos += now - instance.billedSinceNanos;
+      instance.billedSinceNanos = -1;
+      this.scheduler.schedule(now + this.jitter(TimeUnit.SECONDS.toNanos(this.settings.stopSeconds())), () -> {
+        synchronized (instance) {
+          if (instance.generation == generation) instance.state = InstanceState.STOPPED;
+        }
+      });
+    }
+  }
+
+  private void call(String action) throws EC2Exception {
+    this.calls.computeIfAbsent(action, ignored -> new LongAdder()).increment();
+    this.scheduler.sleep(this.jitter(TimeUnit.MILLISECONDS.toNanos(this.settings.apiLatencyMillis())));
+    if (!this.tryAcquireToken()) {
+      this.throttledCalls.increment();
+      throw new EC2Exception(503, "RequestLimitExceeded", action + ": Request limit exceeded.");
+    }
+  }
+
+  private synchronized boolean tryAcquireToken() {
+    long now = this.scheduler.nanoTime();
+    double elapsedSeconds = (now - this.tokensRefilledAtNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+    this.tokens = Math.min(this.settings.apiBurst(), this.tokens + elapsedSeconds * this.settings.apiRateLimit());
+    this.tokensRefilledAtNanos = now;
+    if (this.tokens < 1) return false;
+    this.tokens -= 1;
+    return true;
+  }
+
+  // Uniform +/-25% around the nominal duration
+  private long jitter(long nanos) {
+    synchronized (this.random) {
+      return (long) (nanos * (0.75 + 0.5 * this.random.nextDouble()));
+    }
+  }
+
+  private static class FakeInstance {
+    private final String privateIp;
+    private InstanceState state = InstanceState.STOPPED;
+    private long generation;
+    private boolean hibernated;
+    private long portOpenAtNanos = Long.MAX_VALUE;
+    private long billedSinceNanos = -1;
+    private long billedNanos;
+
+    private FakeInstance(String privateIp) {
+      this.privateIp = privateIp;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.github.lascrusade.ec2minecraftmanager.simulator;
+
+import com.github.lascrusade.ec2minecraftmanager.modules.MinecraftServer;
+import com.github.lascrusade.ec2minecraftmanager.modules.ProbeResult;
+import com.github.lascrusade.ec2minecraftmanager.modules.ReadinessProber;
+import org.slf4j.Logger;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// Answers probes from the fake fleet instead of opening sockets
+final class FakeReadinessProber extends ReadinessProber {
+  private final FakeEC2Backend ec2;
+
+  FakeReadinessProber(FakeEC2Backend ec2, Logger logger) {
+    super(logger);
+    this.ec2 = ec2;
+  }
+
+  @Override
+  public Map<MinecraftServer, ProbeResult> probe(Collection<MinecraftServer> servers) {
+    Map<MinecraftServer, ProbeResult> results = new HashMap<>();
+    for (MinecraftServer server : servers) {
+      boolean portOpen = this.ec2.isPortOpen(server.getAWSInstanceId());
+      results.put(server, portOpen ? ProbeResult.portOpen() : ProbeResult.unreachable());
+    }
+    return results;
+  }
+}
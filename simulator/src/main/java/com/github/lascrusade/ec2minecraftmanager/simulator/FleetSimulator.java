@@ -0,0 +1,282 @@
+package com.github.lascrusade.ec2minecraftmanager.simulator;
+
+import com.github.lascrusade.ec2minecraftmanager.modules.FleetStatusBoard;
+import com.github.lascrusade.ec2minecraftmanager.modules.FleetStatusRefresher;
+import com.github.lascrusade.ec2minecraftmanager.modules.InstanceState;
+import com.github.lascrusade.ec2minecraftmanager.modules.InstrumentedEC2Gateway;
+import com.github.lascrusade.ec2minecraftmanager.modules.InvalidConfigValues;
+import com.github.lascrusade.ec2minecraftmanager.modules.JoinHistoryStore;
+import com.github.lascrusade.ec2minecraftmanager.modules.MinecraftServer;
+import com.github.lascrusade.ec2minecraftmanager.modules.PingSettings;
+import com.github.lascrusade.ec2minecraftmanager.modules.PluginMetrics;
+import com.github.lascrusade.ec2minecraftmanager.modules.PollScheduler;
+import com.github.lascrusade.ec2minecraftmanager.modules.PollingSettings;
+import com.github.lascrusade.ec2minecraftmanager.modules.PrewarmPlanner;
+import com.github.lascrusade.ec2minecraftmanager.modules.ProxyEventListeners;
+import com.github.lascrusade.ec2minecraftmanager.modules.QueueSettings;
+import com.github.lascrusade.ec2minecraftmanager.modules.ResilienceSettings;
+import com.github.lascrusade.ec2minecraftmanager.modules.ResilientEC2Gateway;
+import com.github.lascrusade.ec2minecraftmanager.modules.ResumeTimer;
+import com.github.lascrusade.ec2minecraftmanager.modules.ServerSettings;
+import com.github.lascrusade.ec2minecraftmanager.modules.StateJournal;
+import com.github.lascrusade.ec2minecraftmanager.modules.WaitingQueue;
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import com.moandjiezana.toml.Toml;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the plugin's real lifecycle, polling, queue, pre-warm, resilience and state journal code against a
+ * simulated fleet, wired the way {@code EC2MinecraftManager} wires a single proxy. Velocity's scheduler is
+ * replaced by a virtual clock, EC2 and the readiness probe by {@link FakeEC2Backend}. Cross-proxy
+ * coordination is left out: the simulation is one proxy, which the plugin runs without an operation guard.
+ * Arguments are key=value pairs, see {@link SimulationSettings} for the keys and their defaults.
+ */
+public final class FleetSimulator {
+  private static final Instant EPOCH = Instant.parse("2024-01-01T00:00:00Z");
+  private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private final SimulationSettings settings;
+  private final VirtualTimeScheduler scheduler = new VirtualTimeScheduler(EPOCH);
+  private final LongAdder warnings = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final Logger logger = TestFixtures.countingLogger(this.warnings, this.errors);
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final AtomicBoolean pollInProgress = new AtomicBoolean(false);
+  private final List<Long> tickVirtualNanos = Collections.synchronizedList(new ArrayList<>());
+  private final List<Long> tickCpuNanos = Collections.synchronizedList(new ArrayList<>());
+  private final List<Long> callsPerMinute = Collections.synchronizedList(new ArrayList<>());
+
+  private FleetSimulator(SimulationSettings settings) {
+    this.settings = settings;
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    SimulationSettings settings;
+    try {
+      settings = SimulationSettings.fromArgs(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(2);
+      return;
+    }
+    new FleetSimulator(settings).run();
+  }
+
+  private void run() throws IOException, InterruptedException {
+    Random random = new Random(this.settings.seed());
+    FakeEC2Backend backend = new FakeEC2Backend(this.settings, this.scheduler, random);
+    PluginMetrics metrics = new PluginMetrics();
+    InvalidConfigValues invalidValues = new InvalidConfigValues();
+    ResilientEC2Gateway ec2 = new ResilientEC2Gateway(
+      new InstrumentedEC2Gateway(backend, metrics, this.scheduler),
+      "simulated",
+      ResilienceSettings.fromConfig(new Toml(), invalidValues),
+      metrics,
+      this.scheduler,
+      this.scheduler::sleep,
+      this.logger
+    ) {
+      // The default wait sleeps the real thread, the simulated one parks on the virtual clock instead
+      @Override
+      public void waitForInstanceState(
+        String instanceId,
+        InstanceState expectedState,
+        Duration pollInterval,
+        int maxAttempts
+      ) throws IOException {
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+          if (this.describeInstanceState(instanceId) == expectedState) return;
+          FleetSimulator.this.scheduler.sleep(pollInterval.toNanos());
+        }
+        throw new IOException(
+          "Instance " + instanceId + " did not reach state " + expectedState.getAWSName() +
+            " after " + maxAttempts + " attempts"
+        );
+      }
+    };
+    PollScheduler pollScheduler = new PollScheduler(PollingSettings.fromConfig(new Toml(), invalidValues), this.scheduler);
+    FleetStatusRefresher statusRefresher = new FleetStatusRefresher(
+      new FakeReadinessProber(backend, this.logger),
+      metrics,
+      Runnable::run,
+      this.logger
+    );
+    Path historyDirectory = Files.createTempDirectory("ec2minecraftmanager-simulator");
+    PrewarmPlanner prewarmPlanner = new PrewarmPlanner(
+      new JoinHistoryStore(historyDirectory.resolve("join-history.dat"), this.logger),
+      this.scheduler.wallClock(),
+      this.scheduler,
+      this.logger
+    );
+    ResumeTimer resumeTimer = new ResumeTimer(this.logger);
+    StateJournal stateJournal = new StateJournal(
+      historyDirectory.resolve("state-journal.dat"),
+      this.scheduler.wallClock(),
+      this.scheduler,
+      this.logger
+    );
+    stateJournal.load();
+
+    Map<String, RegisteredServer> registeredServers = new HashMap<>();
+    RegisteredServer lobby = TestFixtures.registeredServer("lobby", "10.255.255.254", List.of());
+    registeredServers.put("lobby", lobby);
+    WaitingQueue waitingQueue = new WaitingQueue(
+      new QueueSettings(
+        this.settings.queue() ? "lobby" : "",
+        this.settings.connectsPerSecond(),
+        5,
+        TimeUnit.MINUTES.toSeconds(this.settings.patienceMinutes())
+      ),
+      TestFixtures.proxyServer(registeredServers),
+      this.scheduler,
+      this.logger
+    );
+
+    Map<String, MinecraftServer> servers = new HashMap<>();
+    FleetStatusBoard statusBoard = new FleetStatusBoard(servers.values(), new PingSettings(true, ""));
+    ProxyEventListeners listeners = new ProxyEventListeners(
+      this.logger,
+      servers,
+      prewarmPlanner,
+      waitingQueue,
+      metrics,
+      statusBoard,
+      this.scheduler
+    );
+    PlayerSimulation players = new PlayerSimulation(this.settings, this.scheduler, random, listeners, waitingQueue, lobby);
+    ServerSettings serverSettings = ServerSettings.fromConfig("simulated", this.serverConfig(), this.logger, invalidValues);
+    invalidValues.warnDefaults(this.logger);
+    for (int index = 1; index <= this.settings.servers(); index++) {
+      String name = "server-" + index;
+      String instanceId = String.format("i-%017x", index);
+      String privateIp = "10.0." + (index >> 8) + "." + (index & 0xff);
+      Set<Player> connectedPlayers = ConcurrentHashMap.newKeySet();
+      RegisteredServer registeredServer = TestFixtures.registeredServer(name, privateIp, connectedPlayers);
+      registeredServers.put(name, registeredServer);
+      backend.addInstance(instanceId, privateIp);
+      MinecraftServer server = new MinecraftServer(
+        instanceId,
+        serverSettings,
+        registeredServer,
+        ec2,
+        this.scheduler::execute,
+        this.scheduler,
+        this.scheduler.wallClock(),
+        this.logger
+      );
+      server.setSleeper(this.scheduler::sleep);
+      server.addLifecycleListener(pollScheduler);
+      server.addLifecycleListener(prewarmPlanner);
+      server.addLifecycleListener(resumeTimer);
+      server.addLifecycleListener(waitingQueue);
+      server.addLifecycleListener(metrics);
+      server.addLifecycleListener(statusBoard);
+      stateJournal.restore(server);
+      server.addLifecycleListener(stateJournal);
+      pollScheduler.scheduleNow(server);
+      servers.put(name, server);
+      players.addServer(server, registeredServer, connectedPlayers, index);
+    }
+    metrics.bindFleet(servers.values(), waitingQueue::getQueueSize, prewarmPlanner.getStats());
+
+    this.scheduler.scheduleAtFixedRate(SECOND_NANOS, SECOND_NANOS, () -> this.pollDueServers(pollScheduler, statusRefresher, metrics));
+    this.scheduler.scheduleAtFixedRate(SECOND_NANOS, SECOND_NANOS, waitingQueue::tick);
+    this.scheduler.scheduleAtFixedRate(SECOND_NANOS, SECOND_NANOS, statusBoard::refresh);
+    this.scheduler.scheduleAtFixedRate(MINUTE_NANOS, MINUTE_NANOS, () -> prewarmPlanner.plan(servers.values()));
+    this.scheduler.scheduleAtFixedRate(5 * MINUTE_NANOS, 5 * MINUTE_NANOS, stateJournal::compactIfNeeded);
+    this.scheduler.scheduleAtFixedRate(MINUTE_NANOS, MINUTE_NANOS, new Runnable() {
+      private long previousCalls = 0;
+
+      @Override
+      public void run() {
+        long calls = backend.getCalls().values().stream().mapToLong(Long::longValue).sum();
+        FleetSimulator.this.callsPerMinute.add(calls - this.previousCalls);
+        this.previousCalls = calls;
+      }
+    });
+    players.start();
+
+    long endNanos = (long) (this.settings.days() * TimeUnit.DAYS.toNanos(1));
+    long startedAt = System.nanoTime();
+    this.scheduler.runUntil(endNanos);
+    long elapsedNanos = System.nanoTime() - startedAt;
+    this.scheduler.shutdown();
+    stateJournal.close();
+
+    new SimulationReport(
+      this.settings,
+      endNanos,
+      elapsedNanos,
+      players,
+      backend,
+      metrics,
+      this.sorted(this.tickVirtualNanos),
+      this.sorted(this.tickCpuNanos),
+      this.sorted(this.callsPerMinute),
+      this.warnings.sum(),
+      this.errors.sum(),
+      this.scheduler.getTaskFailures()
+    ).print(System.out);
+  }
+
+  // Same guard and bookkeeping as the plugin's poll task, the tick also measures its own CPU time
+  private void pollDueServers(PollScheduler pollScheduler, FleetStatusRefresher statusRefresher, PluginMetrics metrics) {
+    if (!this.pollInProgress.compareAndSet(false, true)) return;
+    try {
+      List<MinecraftServer> dueServers = pollScheduler.drainDue();
+      if (dueServers.isEmpty()) return;
+      long startedAt = this.scheduler.nanoTime();
+      long cpuStartedAt = this.threads.getCurrentThreadCpuTime();
+      try {
+        statusRefresher.refresh(dueServers);
+      } finally {
+        for (MinecraftServer server : dueServers) {
+          pollScheduler.scheduleNext(server);
+        }
+        long tickNanos = this.scheduler.nanoTime() - startedAt;
+        metrics.recordTick(tickNanos);
+        this.tickVirtualNanos.add(tickNanos);
+        this.tickCpuNanos.add(this.threads.getCurrentThreadCpuTime() - cpuStartedAt);
+      }
+    } finally {
+      this.pollInProgress.set(false);
+    }
+  }
+
+  private Toml serverConfig() {
+    return new Toml().read(
+      "[servers.simulated]\n" +
+        "idleTimeout = " + this.settings.idleTimeout() + "\n" +
+        "permission = \"server.connect.simulated\"\n" +
+        "stopMode = \"" + this.settings.stopMode().getConfigName() + "\"\n" +
+        "keepWarm = " + this.settings.keepWarmMinutes() + "\n" +
+        "prewarm = " + this.settings.prewarm() + "\n" +
+        "shutdownRules = [" + this.settings.shutdownRules().stream()
+          .map(rule -> "\"" + rule + "\"")
+          .collect(Collectors.joining(", ")) + "]\n"
+    );
+  }
+
+  private long[] sorted(List<Long> values) {
+    synchronized (values) {
+      return values.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package com.github.lascrusade.ec2minecraftmanager.simulator;
+
+import com.github.lascrusade.ec2minecraftmanager.modules.MinecraftServer;
+import com.github.lascrusade.ec2minecraftmanager.modules.ProxyEventListeners;
+import com.github.lascrusade.ec2minecraftmanager.modules.WaitingQueue;
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import com.velocitypowered.api.event.player.ServerPreConnectEvent;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Synthetic players: each server gets a Poisson arrival stream shaped by a daily curve peaking at
+ * {@code peakHour} and scaled by a Zipf-like popularity, so a few servers are busy and most are not.
+ * A denied player clicks again every {@code retrySeconds}, a queued one waits on the lobby, and both
+ * give up after {@code patienceMinutes}.
+ */
+final class PlayerSimulation {
+  private static final long HOUR_NANOS = TimeUnit.HOURS.toNanos(1);
+
+  private final SimulationSettings settings;
+  private final VirtualTimeScheduler scheduler;
+  private final Random random;
+  private final ProxyEventListeners listeners;
+  private final WaitingQueue waitingQueue;
+  private final RegisteredServer lobby;
+  private final List<SimulatedServer> servers = new ArrayList<>();
+  private final AtomicLong playerSequence = new AtomicLong();
+  private final List<Long> coldWaitsNanos = new ArrayList<>();
+  private long warmJoins;
+  private long abandoned;
+  private long connectAttempts;
+
+  PlayerSimulation(
+    SimulationSettings settings,
+    VirtualTimeScheduler scheduler,
+    Random random,
+    ProxyEventListeners listeners,
+    WaitingQueue waitingQueue,
+    RegisteredServer lobby
+  ) {
+    this.settings = settings;
+    this.scheduler = scheduler;
+    this.random = random;
+    this.listeners = listeners;
+    this.waitingQueue = waitingQueue;
+    this.lobby = lobby;
+  }
+
+  void addServer(MinecraftServer server, RegisteredServer registeredServer, Set<Player> players, int rank) {
+    this.servers.add(new SimulatedServer(server, registeredServer, players, 1 / Math.pow(rank, 0.8)));
+  }
+
+  void start() {
+    double totalPopularity = 0;
+    for (SimulatedServer server : this.servers) totalPopularity += server.popularity;
+    for (SimulatedServer server : this.servers) {
+      server.peakArrivalsPerHour = this.settings.arrivalsPerServerPerHour() * server.popularity *
+        this.servers.size() / totalPopularity;
+      this.scheduleNextArrival(server);
+    }
+  }
+
+  synchronized long[] getColdWaitsNanos() {
+    return this.coldWaitsNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+  }
+
+  synchronized long getWarmJoins() {
+    return this.warmJoins;
+  }
+
+  synchronized long getAbandoned() {
+    return this.abandoned;
+  }
+
+  synchronized long getConnectAttempts() {
+    return this.connectAttempts;
+  }
+
+  // Thinning of a homogeneous Poisson process at the peak rate gives the time varying daily curve
+  private void scheduleNextArrival(SimulatedServer server) {
+    if (server.peakArrivalsPerHour <= 0) return;
+    long at = this.scheduler.nanoTime();
+    while (true) {
+      at += (long) (-Math.log(1 - this.random.nextDouble()) / server.peakArrivalsPerHour * HOUR_NANOS);
+      if (this.random.nextDouble() < this.dailyCurve(at)) break;
+    }
+    this.scheduler.schedule(at, () -> {
+      this.scheduleNextArrival(server);
+      this.arrive(server);
+    });
+  }
+
+  private double dailyCurve(long atNanos) {
+    double hour = (atNanos % TimeUnit.DAYS.toNanos(1)) / (double) HOUR_NANOS;
+    double peak = (1 + Math.cos(2 * Math.PI * (hour - this.settings.peakHour()) / 24)) / 2;
+    return 0.1 + 0.9 * peak * peak;
+  }
+
+  private void arrive(SimulatedServer server) {
+    SimulatedPlayer player = new SimulatedPlayer(server, this.scheduler.nanoTime());
+    player.player = TestFixtures.player(
+      "player-" + this.playerSequence.incrementAndGet(),
+      () -> Optional.ofNullable(player.currentServer),
+      target -> this.scheduler.execute(() -> this.connect(player, target))
+    );
+    this.connect(player, server.registeredServer);
+    long patienceNanos = TimeUnit.MINUTES.toNanos(this.settings.patienceMinutes());
+    this.scheduler.schedule(player.arrivedAtNanos + patienceNanos, () -> this.giveUp(player));
+  }
+
+  private void connect(SimulatedPlayer player, RegisteredServer target) {
+    if (player.done) return;
+    synchronized (this) {
+      this.connectAttempts++;
+    }
+    ServerPreConnectEvent event = new ServerPreConnectEvent(player.player, target);
+    this.listeners.beforePlayerConnectToServer(event);
+    ServerPreConnectEvent.ServerResult result = event.getResult();
+    Optional<RegisteredServer> destination = result.isAllowed() ? result.getServer() : Optional.empty();
+    if (destination.isPresent() && destination.get() == player.server.registeredServer) {
+      this.join(player);
+    } else if (destination.isPresent() && destination.get() == this.lobby) {
+      player.currentServer = this.lobby;
+    } else if (player.currentServer == null) {
+      this.scheduler.schedule(
+        this.scheduler.nanoTime() + TimeUnit.SECONDS.toNanos(this.settings.retrySeconds()),
+        () -> this.connect(player, player.server.registeredServer)
+      );
+    }
+  }
+
+  private void join(SimulatedPlayer player) {
+    long now = this.scheduler.nanoTime();
+    player.done = true;
+    player.currentServer = player.server.registeredServer;
+    player.server.players.add(player.player);
+    synchronized (this) {
+      if (now == player.arrivedAtNanos) {
+        this.warmJoins++;
+      } else {
+        this.coldWaitsNanos.add(now - player.arrivedAtNanos);
+      }
+    }
+    double sessionMinutes = -Math.log(1 - this.random.nextDouble()) * this.settings.sessionMinutes();
+    this.scheduler.schedule(now + (long) (sessionMinutes * TimeUnit.MINUTES.toNanos(1)), () -> {
+      player.server.players.remove(player.player);
+      player.currentServer = null;
+    });
+  }
+
+  private void giveUp(SimulatedPlayer player) {
+    if (player.done) return;
+    player.done = true;
+    player.currentServer = null;
+    this.waitingQueue.remove(player.player);
+    synchronized (this) {
+      this.abandoned++;
+    }
+  }
+
+  private static class SimulatedServer {
+    private final MinecraftServer server;
+    private final RegisteredServer registeredServer;
+    private final Set<Player> players;
+    private final double popularity;
+    private double peakArrivalsPerHour;
+
+    private SimulatedServer(MinecraftServer server, RegisteredServer registeredServer, Set<Player> players, double popularity) {
+      this.server = server;
+      this.registeredServer = registeredServer;
+      this.players = players;
+      this.popularity = popularity;
+    }
+  }
+
+  private static class SimulatedPlayer {
+    private final SimulatedServer server;
+    private final long arrivedAtNanos;
+    private Player player;
+    private volatile RegisteredServer currentServer;
+    private volatile boolean done;
+
+    private SimulatedPlayer(SimulatedServer server, long arrivedAtNanos) {
+      this.server = server;
+      this.arrivedAtNanos = arrivedAtNanos;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.github.lascrusade.ec2minecraftmanager.simulator;
+
+import com.github.lascrusade.ec2minecraftmanager.modules.PluginMetrics;
+import com.github.lascrusade.ec2minecraftmanager.modules.ShutdownRule;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+final class SimulationReport {
+  private final SimulationSettings settings;
+  private final long simulatedNanos;
+  private final long elapsedNanos;
+  private final PlayerSimulation players;
+  private final FakeEC2Backend backend;
+  private final PluginMetrics metrics;
+  private final long[] tickVirtualNanos;
+  private final long[] tickCpuNanos;
+  private final long[] callsPerMinute;
+  private final long warnings;
+  private final long errors;
+  private final long taskFailures;
+
+  SimulationReport(
+    SimulationSettings settings,
+    long simulatedNanos,
+    long elapsedNanos,
+    PlayerSimulation players,
+    FakeEC2Backend backend,
+    PluginMetrics metrics,
+    long[] tickVirtualNanos,
+    long[] tickCpuNanos,
+    long[] callsPerMinute,
+    long warnings,
+    long errors,
+    long taskFailures
+  ) {
+    this.settings = settings;
+    this.simulatedNanos = simulatedNanos;
+    this.elapsedNanos = elapsedNanos;
+    this.players = players;
+    this.backend = backend;
+    this.metrics = metrics;
+    this.tickVirtualNanos = tickVirtualNanos;
+    this.tickCpuNanos = tickCpuNanos;
+    this.callsPerMinute = callsPerMinute;
+    this.warnings = warnings;
+    this.errors = errors;
+    this.taskFailures = taskFailures;
+  }
+
+  void print(PrintStream out) {
+    out.println(this.settings);
+    out.printf(
+      "Simulated %.1f hours of %d servers in %.1f seconds%n",
+      this.simulatedNanos / (double) TimeUnit.HOURS.toNanos(1),
+      this.settings.servers(),
+      this.elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1)
+    );
+
+    long[] coldWaits = this.players.getColdWaitsNanos();
+    long warmJoins = this.players.getWarmJoins();
+    long joins = warmJoins + coldWaits.length;
+    out.println();
+    out.println("Players");
+    out.printf(
+      "  arrivals %d, joins %d (%.1f%% without waiting), abandoned %d, connect attempts %d%n",
+      joins + this.players.getAbandoned(),
+      joins,
+      joins == 0 ? 0 : 100.0 * warmJoins / joins,
+      this.players.getAbandoned(),
+      this.players.getConnectAttempts()
+    );
+    out.println("  cold start wait " + percentiles(coldWaits, TimeUnit.SECONDS.toNanos(1), "s"));
+
+    double minutes = this.simulatedNanos / (double) TimeUnit.MINUTES.toNanos(1);
+    long totalCalls = 0;
+    out.println();
+    out.println("EC2 API");
+    for (Map.Entry<String, Long> entry : this.backend.getCalls().entrySet()) {
+      totalCalls += entry.getValue();
+      out.printf("  %-30s %8d calls, %8.2f per minute%n", entry.getKey(), entry.getValue(), entry.getValue() / minutes);
+    }
+    out.printf("  %-30s %8d calls, %8.2f per minute%n", "total", totalCalls, totalCalls / minutes);
+    out.println("  calls per minute " + percentiles(this.callsPerMinute, 1, ""));
+    out.println("  throttled (RequestLimitExceeded) " + this.backend.getThrottledCalls());
+
+    out.println();
+    out.println("Instances");
+    out.printf(
+      "  %.1f instance-hours, %d starts, %d stops%n",
+      this.backend.getInstanceHours(),
+      this.backend.getStarts(),
+      this.backend.getStops()
+    );
+    for (ShutdownRule rule : ShutdownRule.values()) {
+      long stops = this.metrics.getShutdownDecisions(rule, true);
+      long holds = this.metrics.getShutdownDecisions(rule, false);
+      if (stops + holds == 0) continue;
+      out.printf("  shutdown rule %-12s %6d stops, %6d holds%n", rule.getConfigName(), stops, holds);
+    }
+
+    out.println();
+    out.println("Poll ticks (" + this.tickVirtualNanos.length + ")");
+    out.println("  simulated duration " + percentiles(this.tickVirtualNanos, TimeUnit.MILLISECONDS.toNanos(1), "ms"));
+    out.println("  CPU time " + percentiles(this.tickCpuNanos, TimeUnit.MICROSECONDS.toNanos(1), "us"));
+
+    out.println();
+    out.printf("Plugin logged %d warnings and %d errors, %d simulation tasks failed%n", this.warnings, this.errors, this.taskFailures);
+  }
+
+  private static String percentiles(long[] sortedValues, long unit, String suffix) {
+    if (sortedValues.length == 0) return "n/a";
+    return String.format(
+      "p50 %s%s, p90 %s%s, p99 %s%s, max %s%s",
+      format(percentile(sortedValues, 0.50), unit), suffix,
+      format(percentile(sortedValues, 0.90), unit), suffix,
+      format(percentile(sortedValues, 0.99), unit), suffix,
+      format(sortedValues[sortedValues.length - 1], unit), suffix
+    );
+  }
+
+  private static long percentile(long[] sortedValues, double quantile) {
+    int index = (int) Math.ceil(quantile * sortedValues.length) - 1;
+    return sortedValues[Math.max(0, Math.min(sortedValues.length - 1, index))];
+  }
+
+  private static String format(long value, long unit) {
+    return unit == 1 ? Long.toString(value) : String.format("%.1f", value / (double) unit);
+  }
+}
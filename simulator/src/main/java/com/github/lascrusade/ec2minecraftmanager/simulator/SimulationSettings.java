@@ -0,0 +1,119 @@
+package com.github.lascrusade.ec2minecraftmanager.simulator;
+
+import com.github.lascrusade.ec2minecraftmanager.modules.ShutdownRule;
+import com.github.lascrusade.ec2minecraftmanager.modules.StopMode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+record SimulationSettings(
+  int servers,
+  double days,
+  long seed,
+  double arrivalsPerServerPerHour,
+  int peakHour,
+  double sessionMinutes,
+  long retrySeconds,
+  long patienceMinutes,
+  long ec2BootSeconds,
+  long serverBootSeconds,
+  long hibernateResumeSeconds,
+  long stopSeconds,
+  long apiLatencyMillis,
+  double apiRateLimit,
+  double apiBurst,
+  long idleTimeout,
+  StopMode stopMode,
+  long keepWarmMinutes,
+  boolean queue,
+  double connectsPerSecond,
+  boolean prewarm,
+  List<String> shutdownRules
+) {
+  private static final Map<String, String> DEFAULTS = Map.ofEntries(
+    Map.entry("servers", "300"),
+    Map.entry("days", "1"),
+    Map.entry("seed", "42"),
+    Map.entry("arrivalsPerHour", "2"),
+    Map.entry("peakHour", "20"),
+    Map.entry("sessionMinutes", "40"),
+    Map.entry("retrySeconds", "15"),
+    Map.entry("patienceMinutes", "10"),
+    Map.entry("ec2BootSeconds", "35"),
+    Map.entry("serverBootSeconds", "40"),
+    Map.entry("hibernateResumeSeconds", "10"),
+    Map.entry("stopSeconds", "30"),
+    Map.entry("apiLatencyMillis", "120"),
+    Map.entry("apiRateLimit", "20"),
+    Map.entry("apiBurst", "50"),
+    Map.entry("idleTimeout", "300"),
+    Map.entry("stopMode", "stop"),
+    Map.entry("keepWarm", "15"),
+    Map.entry("queue", "false"),
+    Map.entry("connectsPerSecond", "5"),
+    Map.entry("prewarm", "false"),
+    Map.entry("shutdownRules", "")
+  );
+
+  static Set<String> keys() {
+    return DEFAULTS.keySet();
+  }
+
+  // Arguments are key=value pairs, any key left out keeps its default
+  static SimulationSettings fromArgs(String[] args) {
+    Map<String, String> values = new HashMap<>(DEFAULTS);
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      String key = separator < 0 ? arg : arg.substring(0, separator);
+      if (separator < 0 || !DEFAULTS.containsKey(key)) {
+        throw new IllegalArgumentException("Unknown argument " + arg + ", expected key=value with key in " + keys());
+      }
+      values.put(key, arg.substring(separator + 1));
+    }
+    StopMode stopMode = StopMode.fromConfig(values.get("stopMode"));
+    if (stopMode == null) {
+      throw new IllegalArgumentException("Unknown stopMode " + values.get("stopMode"));
+    }
+    return new SimulationSettings(
+      Integer.parseInt(values.get("servers")),
+      Double.parseDouble(values.get("days")),
+      Long.parseLong(values.get("seed")),
+      Double.parseDouble(values.get("arrivalsPerHour")),
+      Integer.parseInt(values.get("peakHour")),
+      Double.parseDouble(values.get("sessionMinutes")),
+      Long.parseLong(values.get("retrySeconds")),
+      Long.parseLong(values.get("patienceMinutes")),
+      Long.parseLong(values.get("ec2BootSeconds")),
+      Long.parseLong(values.get("serverBootSeconds")),
+      Long.parseLong(values.get("hibernateResumeSeconds")),
+      Long.parseLong(values.get("stopSeconds")),
+      Long.parseLong(values.get("apiLatencyMillis")),
+      Double.parseDouble(values.get("apiRateLimit")),
+      Double.parseDouble(values.get("apiBurst")),
+      Long.parseLong(values.get("idleTimeout")),
+      stopMode,
+      Long.parseLong(values.get("keepWarm")),
+      Boolean.parseBoolean(values.get("queue")),
+      Double.parseDouble(values.get("connectsPerSecond")),
+      Boolean.parseBoolean(values.get("prewarm")),
+      shutdownRules(values.get("shutdownRules"))
+    );
+  }
+
+  // Comma separated rule names, e.g. shutdownRules=minUptime,activity
+  private static List<String> shutdownRules(String value) {
+    List<String> rules = new ArrayList<>();
+    for (String name : value.split(",")) {
+      if (name.isBlank()) continue;
+      ShutdownRule rule = ShutdownRule.fromConfig(name);
+      if (rule == null) {
+        throw new IllegalArgumentException("Unknown shutdown rule " + name);
+      }
+      rules.add(rule.getConfigName());
+    }
+    return List.copyOf(rules);
+  }
+}
@@ -0,0 +1,231 @@
+package com.github.lascrusade.ec2minecraftmanager.simulator;
+
+import com.github.lascrusade.ec2minecraftmanager.modules.MonotonicClock;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Discrete event loop over a virtual clock. Events run on real worker threads because the plugin code
+ * blocks (EC2 latency, waiting for an instance state), but only one of them runs at a time: the loop
+ * moves the clock to the next event only once every worker has either finished or parked in
+ * {@link #sleep(long)}. A simulated day therefore takes as long as the CPU work it contains.
+ * <p>
+ * A worker can also park outside the clock, e.g. on a read another worker is making, which only finishes
+ * once that worker's sleep ends. A worker seen parked on two checks in a row is no longer waited for, and
+ * counts again as soon as it runs.
+ */
+final class VirtualTimeScheduler implements MonotonicClock {
+  private static final long PARKED_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final Instant epoch;
+  private final PriorityQueue<Event> events = new PriorityQueue<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition quiescent = this.lock.newCondition();
+  private final ExecutorService workers = Executors.newCachedThreadPool(task -> {
+    Thread thread = new Thread(task, "simulation-worker");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final AtomicLong taskFailures = new AtomicLong();
+  // Guarded by lock: workers counted in running, the ones seen parked on the last check, and the ones
+  // parked outside the clock that are no longer counted
+  private final Set<Thread> onClock = new HashSet<>();
+  private final Set<Thread> seenParked = new HashSet<>();
+  private final Set<Thread> offClock = new HashSet<>();
+
+  private volatile long nowNanos = 0;
+  private long sequence = 0;
+  private int running = 0;
+
+  VirtualTimeScheduler(Instant epoch) {
+    this.epoch = epoch;
+  }
+
+  @Override
+  public long nanoTime() {
+    return this.nowNanos;
+  }
+
+  Clock wallClock() {
+    return new Clock() {
+      @Override
+      public ZoneId getZone() {
+        return ZoneOffset.UTC;
+      }
+
+      @Override
+      public Clock withZone(ZoneId zone) {
+        return this;
+      }
+
+      @Override
+      public Instant instant() {
+        return VirtualTimeScheduler.this.epoch.plusNanos(VirtualTimeScheduler.this.nowNanos);
+      }
+    };
+  }
+
+  long getTaskFailures() {
+    return this.taskFailures.get();
+  }
+
+  void execute(Runnable task) {
+    this.schedule(this.nowNanos, task);
+  }
+
+  void schedule(long atNanos, Runnable task) {
+    this.lock.lock();
+    try {
+      this.events.add(new Event(Math.max(atNanos, this.nowNanos), this.sequence++, task, false));
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  void scheduleAtFixedRate(long firstAtNanos, long periodNanos, Runnable task) {
+    this.schedule(firstAtNanos, new Runnable() {
+      private long nextAtNanos = firstAtNanos;
+
+      @Override
+      public void run() {
+        this.nextAtNanos += periodNanos;
+        VirtualTimeScheduler.this.schedule(this.nextAtNanos, this);
+        task.run();
+      }
+    });
+  }
+
+  // Parks the calling worker until the virtual clock has moved by the given duration
+  void sleep(long durationNanos) {
+    if (durationNanos <= 0) return;
+    Semaphore wakeUp = new Semaphore(0);
+    Thread worker = Thread.currentThread();
+    this.lock.lock();
+    try {
+      this.events.add(new Event(this.nowNanos + durationNanos, this.sequence++, () -> {
+        this.onClock.add(worker);
+        this.running++;
+        wakeUp.release();
+      }, true));
+      this.leaveClock(worker);
+    } finally {
+      this.lock.unlock();
+    }
+    wakeUp.acquireUninterruptibly();
+  }
+
+  void runUntil(long endNanos) throws InterruptedException {
+    this.lock.lock();
+    try {
+      while (true) {
+        while (this.countResumedWorkers() > 0) {
+          if (this.quiescent.awaitNanos(PARKED_CHECK_NANOS) <= 0) {
+            this.stopCountingParkedWorkers();
+          }
+        }
+        Event event = this.events.peek();
+        if (event == null || event.atNanos > endNanos) break;
+        this.events.poll();
+        this.nowNanos = event.atNanos;
+        if (event.inline) {
+          event.task.run();
+        } else {
+          this.running++;
+          this.workers.execute(() -> this.runTask(event.task));
+        }
+      }
+      this.nowNanos = endNanos;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  void shutdown() {
+    this.workers.shutdownNow();
+  }
+
+  private void runTask(Runnable task) {
+    Thread worker = Thread.currentThread();
+    this.lock.lock();
+    try {
+      this.onClock.add(worker);
+    } finally {
+      this.lock.unlock();
+    }
+    try {
+      task.run();
+    } catch (RuntimeException e) {
+      if (this.taskFailures.getAndIncrement() == 0) {
+        e.printStackTrace();
+      }
+    } finally {
+      this.lock.lock();
+      try {
+        this.leaveClock(worker);
+      } finally {
+        this.lock.unlock();
+      }
+    }
+  }
+
+  // Called with the lock held when a worker finishes or sleeps
+  private void leaveClock(Thread worker) {
+    this.seenParked.remove(worker);
+    if (!this.offClock.remove(worker)) {
+      this.onClock.remove(worker);
+      this.running--;
+    }
+    this.quiescent.signalAll();
+  }
+
+  // Called with the lock held, a worker parked outside the clock that got going again is waited for again
+  private int countResumedWorkers() {
+    for (Iterator<Thread> workers = this.offClock.iterator(); workers.hasNext(); ) {
+      Thread worker = workers.next();
+      if (worker.getState() != Thread.State.WAITING) {
+        workers.remove();
+        this.onClock.add(worker);
+        this.running++;
+      }
+    }
+    return this.running;
+  }
+
+  // Called with the lock held after a check found no progress. The lock was free between two checks, so a
+  // worker parked on both is not just queuing for it
+  private void stopCountingParkedWorkers() {
+    for (Iterator<Thread> workers = this.onClock.iterator(); workers.hasNext(); ) {
+      Thread worker = workers.next();
+      if (worker.getState() != Thread.State.WAITING) {
+        this.seenParked.remove(worker);
+      } else if (!this.seenParked.add(worker)) {
+        this.seenParked.remove(worker);
+        workers.remove();
+        this.offClock.add(worker);
+        this.running--;
+      }
+    }
+  }
+
+  private record Event(long atNanos, long sequence, Runnable task, boolean inline) implements Comparable<Event> {
+    @Override
+    public int compareTo(Event other) {
+      int byTime = Long.compare(this.atNanos, other.atNanos);
+      return byTime != 0 ? byTime : Long.compare(this.sequence, other.sequence);
+    }
+  }
+}
@@ -1,13 +1,53 @@
 package com.github.lascrusade.ec2minecraftmanager;
 
+import com.github.lascrusade.ec2minecraftmanager.modules.AwsProfile;
+import com.github.lascrusade.ec2minecraftmanager.modules.BackendMessageListener;
+import com.github.lascrusade.ec2minecraftmanager.modules.ConfigWatcher;
+import com.github.lascrusade.ec2minecraftmanager.modules.CoordinationBackend;
+import com.github.lascrusade.ec2minecraftmanager.modules.CoordinationMode;
+import com.github.lascrusade.ec2minecraftmanager.modules.CoordinationSettings;
+import com.github.lascrusade.ec2minecraftmanager.modules.DiscoverySettings;
+import com.github.lascrusade.ec2minecraftmanager.modules.EC2Client;
+import com.github.lascrusade.ec2minecraftmanager.modules.EC2Gateway;
+import com.github.lascrusade.ec2minecraftmanager.modules.FileCoordinationBackend;
+import com.github.lascrusade.ec2minecraftmanager.modules.FleetCoordinator;
+import com.github.lascrusade.ec2minecraftmanager.modules.FleetDiscovery;
+import com.github.lascrusade.ec2minecraftmanager.modules.FleetStatusBoard;
+import com.github.lascrusade.ec2minecraftmanager.modules.FleetStatusRefresher;
+import com.github.lascrusade.ec2minecraftmanager.modules.InstanceIdCache;
+import com.github.lascrusade.ec2minecraftmanager.modules.InstanceSelector;
+import com.github.lascrusade.ec2minecraftmanager.modules.InvalidConfigValues;
+import com.github.lascrusade.ec2minecraftmanager.modules.InstrumentedEC2Gateway;
+import com.github.lascrusade.ec2minecraftmanager.modules.JoinHistoryStore;
+import com.github.lascrusade.ec2minecraftmanager.modules.LocalCoordinationBackend;
+import com.github.lascrusade.ec2minecraftmanager.modules.MetricsHttpServer;
+import com.github.lascrusade.ec2minecraftmanager.modules.MetricsSettings;
 import com.github.lascrusade.ec2minecraftmanager.modules.MinecraftServer;
+import com.github.lascrusade.ec2minecraftmanager.modules.MonotonicClock;
+import com.github.lascrusade.ec2minecraftmanager.modules.PingSettings;
+import com.github.lascrusade.ec2minecraftmanager.modules.PluginMetrics;
+import com.github.lascrusade.ec2minecraftmanager.modules.PollScheduler;
+import com.github.lascrusade.ec2minecraftmanager.modules.PollingSettings;
+import com.github.lascrusade.ec2minecraftmanager.modules.PrewarmPlanner;
 import com.github.lascrusade.ec2minecraftmanager.modules.ProxyEventListeners;
+import com.github.lascrusade.ec2minecraftmanager.modules.QueueSettings;
+import com.github.lascrusade.ec2minecraftmanager.modules.ReadinessProber;
+import com.github.lascrusade.ec2minecraftmanager.modules.RedisConnection;
+import com.github.lascrusade.ec2minecraftmanager.modules.RedisCoordinationBackend;
+import com.github.lascrusade.ec2minecraftmanager.modules.ResilienceSettings;
+import com.github.lascrusade.ec2minecraftmanager.modules.ResilientEC2Gateway;
+import com.github.lascrusade.ec2minecraftmanager.modules.ResumeTimer;
+import com.github.lascrusade.ec2minecraftmanager.modules.ServerSettings;
+import com.github.lascrusade.ec2minecraftmanager.modules.Sleeper;
+import com.github.lascrusade.ec2minecraftmanager.modules.StateJournal;
 import com.github.lascrusade.ec2minecraftmanager.modules.Utilities;
+import com.github.lascrusade.ec2minecraftmanager.modules.WaitingQueue;
 import com.google.inject.Inject;
 import com.moandjiezana.toml.Toml;
 import com.velocitypowered.api.event.PostOrder;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
 import com.velocitypowered.api.proxy.ProxyServer;
@@ -15,10 +55,14 @@ import com.velocitypowered.api.proxy.messages.MinecraftChannelIdentifier;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 import org.slf4j.Logger;
 
-import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Clock;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Plugin(
   id = "ec2minecraftmanager",
@@ -29,7 +73,38 @@ import java.util.concurrent.TimeUnit;
 public class EC2MinecraftManager {
   private final ProxyServer proxyServer;
   private final Logger logger;
-  private final HashMap<String, MinecraftServer> servers;
+  private final Map<String, MinecraftServer> servers = new ConcurrentHashMap<>();
+  private final Map<String, EC2Gateway> ec2Gateways;
+  private final ExecutorService regionExecutor = Executors.newCachedThreadPool(task -> {
+    Thread thread = new Thread(task, "ec2minecraftmanager-region");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private volatile Toml config;
+  // Profiles and the instances servers are bound to are only read at startup, like the gateways they use
+  private final Toml startupConfig;
+  private final Map<String, InstanceSelector> instanceSelectors = new ConcurrentHashMap<>();
+  private final ConfigWatcher configWatcher;
+  private final InstanceIdCache instanceIdCache;
+  private final FleetDiscovery fleetDiscovery;
+  private final DiscoverySettings discoverySettings;
+  private final FleetStatusRefresher statusRefresher;
+  private final PollScheduler pollScheduler;
+  private final AtomicBoolean pollInProgress = new AtomicBoolean(false);
+  private final JoinHistoryStore joinHistoryStore;
+  private final StateJournal stateJournal;
+  private final PrewarmPlanner prewarmPlanner;
+  private final ResumeTimer resumeTimer;
+  private final WaitingQueue waitingQueue;
+  private final FleetStatusBoard statusBoard;
+  private final PluginMetrics metrics = new PluginMetrics();
+  private final MetricsSettings metricsSettings;
+  private final ResilienceSettings resilienceSettings;
+  private final CoordinationSettings coordinationSettings;
+  private final FleetCoordinator fleetCoordinator;
+  private MetricsHttpServer metricsServer = null;
+
+  private static final int REDIS_TIMEOUT_MILLIS = 2000;
 
   private static final MinecraftChannelIdentifier EC2_MINECRAFT_MANAGER_CHANNEL =
     MinecraftChannelIdentifier.create("ec2minecraftmanager", "manager");
@@ -43,148 +118,360 @@ public class EC2MinecraftManager {
     this.logger = logger;
 
     Toml config = Utilities.parseConfig(dataDirectory, logger);
-    boolean awsCliConfigSuccessful = this.configureAWSCli(config);
+    this.config = config;
+    this.startupConfig = config;
+    this.configWatcher = new ConfigWatcher(dataDirectory.resolve("config.toml"), this::applyConfig, logger);
+    InvalidConfigValues invalidValues = new InvalidConfigValues();
+    this.discoverySettings = DiscoverySettings.fromConfig(config, invalidValues);
+    this.metricsSettings = MetricsSettings.fromConfig(config, invalidValues);
+    this.resilienceSettings = ResilienceSettings.fromConfig(config, invalidValues);
+    this.coordinationSettings = CoordinationSettings.fromConfig(config, invalidValues);
+    this.fleetCoordinator = new FleetCoordinator(
+      createCoordinationBackend(this.coordinationSettings, dataDirectory),
+      this.coordinationSettings,
+      logger
+    );
+    if (this.isCoordinated()) {
+      logger.info(
+        "Coordinating with other proxies through the " + this.coordinationSettings.mode().getConfigName() +
+          " backend as " + this.coordinationSettings.proxyId()
+      );
+    }
+    this.ec2Gateways = this.createEC2Gateways(config);
+    this.statusRefresher = new FleetStatusRefresher(
+      new ReadinessProber(logger),
+      this.metrics,
+      this.regionExecutor,
+      logger
+    );
+    this.pollScheduler = new PollScheduler(PollingSettings.fromConfig(config, invalidValues), MonotonicClock.SYSTEM);
+    this.joinHistoryStore = new JoinHistoryStore(dataDirectory.resolve("join-history.dat"), logger);
+    this.joinHistoryStore.load();
+    this.prewarmPlanner = new PrewarmPlanner(
+      this.joinHistoryStore,
+      Clock.systemDefaultZone(),
+      MonotonicClock.SYSTEM,
+      logger
+    );
+    this.resumeTimer = new ResumeTimer(logger);
+    this.waitingQueue = new WaitingQueue(
+      QueueSettings.fromConfig(config, logger, invalidValues),
+      proxyServer,
+      MonotonicClock.SYSTEM,
+      logger
+    );
+    this.statusBoard = new FleetStatusBoard(this.servers.values(), PingSettings.fromConfig(config, invalidValues));
+    invalidValues.warnDefaults(logger);
+
+    this.stateJournal = new StateJournal(
+      dataDirectory.resolve("state-journal.dat"),
+      Clock.systemUTC(),
+      MonotonicClock.SYSTEM,
+      logger
+    );
+    this.stateJournal.load();
 
-    if (awsCliConfigSuccessful) {
-      HashMap<String,String> awsInstanceIds = this.getAWSInstanceIds();
-      this.servers = getServers(awsInstanceIds, config);
+    this.instanceIdCache = new InstanceIdCache(dataDirectory.resolve("instance-ids.dat"), logger);
+    if (!this.ec2Gateways.isEmpty()) {
+      this.instanceIdCache.load();
+      this.fleetDiscovery = new FleetDiscovery(
+        this.ec2Gateways,
+        this.instanceIdCache,
+        this.servers,
+        this::instanceSelector,
+        this::createServer,
+        this::scheduleFirstPoll,
+        this::forgetServer,
+        this.regionExecutor,
+        logger
+      );
+      this.fleetDiscovery.registerCached(proxyServer.getAllServers());
     } else {
-      this.servers = new HashMap<>();
+      this.fleetDiscovery = null;
     }
+    this.metrics.bindFleet(this.servers.values(), this.waitingQueue::getQueueSize, this.prewarmPlanner.getStats());
   }
 
-  private boolean configureAWSCli(Toml config) {
-    try {
-      String region = null;
-      String cliKey = null;
-      String cliSecret = null;
-      Toml awsConfig = config.getTable("awsEC2");
-      if (awsConfig != null) {
-        region = awsConfig.getString("region");
-        cliKey = awsConfig.getString("cliKey");
-        cliSecret = awsConfig.getString("cliSecret");
-      }
-      if(region == null || region.trim().isEmpty()) {
-        this.logger.error("AWS EC2 region name empty");
-        return false;
-      }
-      if(cliKey == null || cliKey.trim().isEmpty()) {
-        this.logger.error("AWS EC2 cli key empty");
-        return false;
-      }
-      if(cliSecret == null || cliSecret.trim().isEmpty()) {
-        this.logger.error("AWS EC2 cli secret empty");
-        return false;
+  // One client per region and account, shared by the profiles that point to the same one
+  private Map<String, EC2Gateway> createEC2Gateways(Toml config) {
+    Map<String, EC2Gateway> gateways = new HashMap<>();
+    Map<String, EC2Gateway> clients = new HashMap<>();
+    for (AwsProfile profile : AwsProfile.fromConfig(config, this.logger).values()) {
+      EC2Gateway gateway = clients.get(profile.clientKey());
+      if (gateway == null) {
+        try {
+          EC2Client client = new EC2Client(profile.region(), profile.cliKey(), profile.cliSecret(), profile.endpoint());
+          this.logger.info("Using EC2 endpoint " + client.getEndpoint() + " for profile " + profile.name());
+          gateway = new ResilientEC2Gateway(
+            new InstrumentedEC2Gateway(client, this.metrics, MonotonicClock.SYSTEM),
+            profile.name(),
+            this.resilienceSettings,
+            this.metrics,
+            MonotonicClock.SYSTEM,
+            Sleeper.SYSTEM,
+            this.logger
+          );
+          clients.put(profile.clientKey(), gateway);
+        } catch (IllegalArgumentException e) {
+          this.logger.error("Failed to setup EC2 client of profile " + profile.name() + " because: " + e);
+          continue;
+        }
       }
-      Utilities.runBash(
-        "aws configure set region " + region + ";" +
-          "aws configure set aws_access_key_id " + cliKey + ";" +
-          "aws configure set aws_secret_access_key " + cliSecret
-      );
-    } catch (IOException e) {
-      this.logger.error("Failed to setup aws cli because: " + e);
-      return false;
+      gateways.put(profile.name(), gateway);
     }
-    return true;
+    return gateways;
   }
 
-  private HashMap<String, String> getAWSInstanceIds() {
-    Collection<RegisteredServer> servers = this.proxyServer.getAllServers();
-    HashMap<String,String> awsInstanceIds = new HashMap<>();
-    try {
-      StringJoiner ipAddresses = new StringJoiner(",");
-      for (RegisteredServer server: servers) {
-        ipAddresses.add(server.getServerInfo().getAddress().getHostString());
-      }
-      String resultStringified = String.join(
-        " ",
-        Utilities.runBash(
-          "aws ec2 describe-instances " +
-            "--filters Name=private-ip-address,Values=" + ipAddresses + " " +
-            "--query=Reservations[].Instances[0].[PrivateIpAddress,InstanceId] " +
-            "--output=text"
-        )
-      ).trim().replaceAll("[\\r\\n\\s]+", " ");
-      String[] resultRows = resultStringified.split(" ");
-      for(int index = 0; index < resultRows.length - 1; index += 2) {
-        awsInstanceIds.put(resultRows[index], resultRows[index + 1]);
-      }
-    } catch (RuntimeException | IOException e) {
-      this.logger.error("Failed to look for server AWS instance ID because: " + e);
-    }
-    return awsInstanceIds;
+  // A single proxy has nobody to share leases or player counts with, it acts on its servers directly
+  private boolean isCoordinated() {
+    return this.coordinationSettings.mode() != CoordinationMode.LOCAL;
   }
 
-  private HashMap<String, MinecraftServer> getServers(HashMap<String,String> awsInstanceIds, Toml config) {
-    Collection<RegisteredServer> proxyServerInstances = this.proxyServer.getAllServers();
-    HashMap<String, MinecraftServer> servers = new HashMap<>();
-    for (RegisteredServer velocityServerInstance: proxyServerInstances) {
-      String name = velocityServerInstance.getServerInfo().getName();
-      Optional<MinecraftServer> result = this.getServer(velocityServerInstance, awsInstanceIds, config);
-      if (result.isEmpty()) continue;
-      servers.put(name, result.get());
-    }
-    return servers;
+  private static CoordinationBackend createCoordinationBackend(CoordinationSettings settings, Path dataDirectory) {
+    return switch (settings.mode()) {
+      case LOCAL -> new LocalCoordinationBackend(Clock.systemUTC());
+      case FILE -> new FileCoordinationBackend(dataDirectory.resolve(settings.file()), Clock.systemUTC());
+      case REDIS -> new RedisCoordinationBackend(new RedisConnection(
+        settings.redisHost(),
+        settings.redisPort(),
+        settings.redisPassword(),
+        REDIS_TIMEOUT_MILLIS
+      ));
+    };
   }
 
-  private Optional<MinecraftServer> getServer(
-    RegisteredServer velocityServerInstance,
-    HashMap<String,String> serverInstanceIds,
-    Toml config
-  ) {
+  private MinecraftServer createServer(RegisteredServer velocityServerInstance, EC2Gateway ec2, String instanceId) {
     String name = velocityServerInstance.getServerInfo().getName();
-    String ipAddress = velocityServerInstance.getServerInfo().getAddress().getHostString();
-    String instanceId = serverInstanceIds.get(ipAddress);
-    if (instanceId == null) {
-      this.logger.error("Server with IP address " + ipAddress + " does not exists on AWS, skipping");
-      return Optional.empty();
-    }
-    long serverIdleTimeout = 0;
-    String entryPermission = null;
-    Toml serversConfig = config.getTable("servers");
-    if (serversConfig != null) {
-      Toml serverConfig = serversConfig.getTable(name);
-      if (serverConfig != null) {
-        entryPermission = serverConfig.getString("permission");
-        serverIdleTimeout = serverConfig.getLong("idleTimeout");
-      }
-    }
-    if (serverIdleTimeout <= 0) {
-      this.logger.warn("Server " + name + " timeout unknown, set the default timeout to 5 minutes");
-      serverIdleTimeout = 300;
-    }
-    if (entryPermission == null || entryPermission.trim().isEmpty()) {
-      this.logger.warn("Server " + name + " entry permission unknown. Be careful !! anyone can enter the server");
-      entryPermission = "";
-    }
+    InvalidConfigValues invalidValues = new InvalidConfigValues();
+    ServerSettings settings = ServerSettings.fromConfig(name, this.config, this.logger, invalidValues);
+    invalidValues.warnDefaults(this.logger);
     MinecraftServer server = new MinecraftServer(instanceId,
-      serverIdleTimeout,
-      entryPermission,
+      settings,
       velocityServerInstance,
+      ec2,
+      task -> this.proxyServer.getScheduler().buildTask(this, task).schedule(),
+      MonotonicClock.SYSTEM,
       this.logger
     );
-    return Optional.of(server);
+    if (this.isCoordinated()) {
+      server.setOperationGuard(this.fleetCoordinator);
+    }
+    server.addLifecycleListener(this.pollScheduler);
+    server.addLifecycleListener(this.prewarmPlanner);
+    server.addLifecycleListener(this.resumeTimer);
+    server.addLifecycleListener(this.waitingQueue);
+    server.addLifecycleListener(this.metrics);
+    server.addLifecycleListener(this.statusBoard);
+    this.stateJournal.restore(server);
+    server.addLifecycleListener(this.stateJournal);
+    return server;
+  }
+
+  private InstanceSelector instanceSelector(String name) {
+    return this.instanceSelectors.computeIfAbsent(
+      name,
+      key -> InstanceSelector.fromConfig(key, this.startupConfig, this.logger)
+    );
+  }
+
+  // A server restored from the state journal is trusted until its regular poll, so a restart does not
+  // poll the whole fleet at once
+  private void scheduleFirstPoll(MinecraftServer server) {
+    if (server.isRestored()) {
+      this.pollScheduler.scheduleNext(server);
+    } else {
+      this.pollScheduler.scheduleNow(server);
+    }
+    this.statusBoard.refresh();
+  }
+
+  private void forgetServer(MinecraftServer server) {
+    this.pollScheduler.remove(server);
+    // A server moved to another instance keeps its name, only a server gone for good leaves the journal
+    MinecraftServer replacement = this.servers.get(server.getName());
+    if (replacement == null) {
+      this.stateJournal.remove(server);
+      this.metrics.removeServer(server);
+    }
+    this.waitingQueue.replace(server, replacement);
+    this.prewarmPlanner.replace(server, replacement);
+    this.statusBoard.refresh();
   }
 
 
   @Subscribe(order = PostOrder.FIRST)
   public void onProxyInitialization(ProxyInitializeEvent event) {
+    if (this.fleetDiscovery != null) {
+      this.proxyServer.getScheduler()
+        .buildTask(this, () -> this.fleetDiscovery.discover(this.proxyServer.getAllServers()))
+        .repeat(this.discoverySettings.intervalSeconds(), TimeUnit.SECONDS)
+        .schedule();
+    }
+    this.proxyServer.getScheduler()
+      .buildTask(this, this::pollDueServers)
+      .repeat(1L, TimeUnit.SECONDS)
+      .schedule();
+    this.proxyServer.getScheduler()
+      .buildTask(this, this.waitingQueue::tick)
+      .repeat(1L, TimeUnit.SECONDS)
+      .schedule();
+    // Player counts change without a state transition, the snapshot is only rebuilt when one differs
     this.proxyServer.getScheduler()
-      .buildTask(this, this::invalidateServer)
+      .buildTask(this, this.statusBoard::refresh)
+      .repeat(1L, TimeUnit.SECONDS)
+      .schedule();
+    if (this.isCoordinated()) {
+      this.proxyServer.getScheduler()
+        .buildTask(this, () -> this.fleetCoordinator.sync(this.servers.values()))
+        .repeat(this.coordinationSettings.syncIntervalSeconds(), TimeUnit.SECONDS)
+        .schedule();
+    }
+    this.proxyServer.getScheduler()
+      .buildTask(this, this::logFleetStatus)
+      .repeat(1L, TimeUnit.MINUTES)
+      .schedule();
+    this.proxyServer.getScheduler()
+      .buildTask(this, () -> this.prewarmPlanner.plan(this.servers.values()))
       .repeat(1L, TimeUnit.MINUTES)
       .schedule();
+    this.proxyServer.getScheduler()
+      .buildTask(this, this.joinHistoryStore::saveIfDirty)
+      .repeat(5L, TimeUnit.MINUTES)
+      .schedule();
+    this.proxyServer.getScheduler()
+      .buildTask(this, this.stateJournal::compactIfNeeded)
+      .repeat(5L, TimeUnit.MINUTES)
+      .schedule();
     this.proxyServer.getChannelRegistrar().register(EC2_MINECRAFT_MANAGER_CHANNEL);
     this.proxyServer.getChannelRegistrar().register(BUNGEECORD_CHANNEL);
     this.proxyServer.getEventManager().register(
       this,
-      new ProxyEventListeners(this.logger, this.servers)
+      new ProxyEventListeners(
+        this.logger,
+        this.servers,
+        this.prewarmPlanner,
+        this.waitingQueue,
+        this.metrics,
+        this.statusBoard,
+        MonotonicClock.SYSTEM
+      )
+    );
+    this.proxyServer.getEventManager().register(
+      this,
+      new BackendMessageListener(this.logger, EC2_MINECRAFT_MANAGER_CHANNEL, this.servers)
     );
+    this.metricsServer = MetricsHttpServer.start(this.metricsSettings, this.metrics, this.logger).orElse(null);
+    this.configWatcher.start();
+  }
+
+  @Subscribe
+  public void onProxyShutdown(ProxyShutdownEvent event) {
+    this.configWatcher.stop();
+    this.regionExecutor.shutdown();
+    this.joinHistoryStore.saveIfDirty();
+    this.stateJournal.close();
+    this.fleetCoordinator.close();
+    if (this.metricsServer != null) {
+      this.metricsServer.stop();
+    }
+  }
+
+  // Runs on the config watcher thread. Every setting is read before anything is applied, so a rejected
+  // config leaves the running one untouched, then only the entries that changed are swapped in. Unlike at
+  // startup an invalid value rejects the config instead of falling back to its default
+  private void applyConfig(Toml config) {
+    InvalidConfigValues invalidValues = new InvalidConfigValues();
+    PollingSettings pollingSettings = PollingSettings.fromConfig(config, invalidValues);
+    QueueSettings queueSettings = QueueSettings.fromConfig(config, this.logger, invalidValues);
+    PingSettings pingSettings = PingSettings.fromConfig(config, invalidValues);
+    Map<MinecraftServer, ServerSettings> changedServers = new HashMap<>();
+    for (MinecraftServer server : this.servers.values()) {
+      ServerSettings settings = ServerSettings.fromConfig(server.getName(), config, this.logger, invalidValues);
+      if (!settings.equals(server.getSettings())) {
+        changedServers.put(server, settings);
+      }
+    }
+    List<String> restartOnlyChanges = new ArrayList<>();
+    if (!Objects.equals(tableOf(config, "awsEC2"), tableOf(this.startupConfig, "awsEC2"))) {
+      restartOnlyChanges.add("[awsEC2]");
+    }
+    if (!DiscoverySettings.fromConfig(config, invalidValues).equals(this.discoverySettings)) {
+      restartOnlyChanges.add("[discovery]");
+    }
+    if (!ResilienceSettings.fromConfig(config, invalidValues).equals(this.resilienceSettings)) {
+      restartOnlyChanges.add("[ec2Calls]");
+    }
+    if (!MetricsSettings.fromConfig(config, invalidValues).equals(this.metricsSettings)) {
+      restartOnlyChanges.add("[metrics]");
+    }
+    if (!CoordinationSettings.fromConfig(config, invalidValues).equals(this.coordinationSettings)) {
+      restartOnlyChanges.add("[coordination]");
+    }
+    // The instance a server is bound to goes through the gateways built at startup
+    for (RegisteredServer velocityServer : this.proxyServer.getAllServers()) {
+      String name = velocityServer.getServerInfo().getName();
+      if (!InstanceSelector.fromConfig(name, config, this.logger).equals(this.instanceSelector(name))) {
+        restartOnlyChanges.add("the instance of server " + name);
+      }
+    }
+    if (!invalidValues.isEmpty()) {
+      this.logger.error(
+        "Rejected the new config.toml, keeping the previous config because: " +
+          String.join(", ", invalidValues.getMessages())
+      );
+      return;
+    }
+
+    this.config = config;
+    if (!pollingSettings.equals(this.pollScheduler.getSettings())) {
+      this.pollScheduler.updateSettings(pollingSettings);
+      this.logger.info("Applied new polling settings " + pollingSettings);
+    }
+    if (!queueSettings.equals(this.waitingQueue.getSettings())) {
+      this.waitingQueue.updateSettings(queueSettings);
+      this.logger.info("Applied new queue settings " + queueSettings);
+    }
+    if (!pingSettings.equals(this.statusBoard.getSettings())) {
+      this.statusBoard.updateSettings(pingSettings);
+      this.logger.info("Applied new ping settings " + pingSettings);
+    }
+    for (Map.Entry<MinecraftServer, ServerSettings> entry : changedServers.entrySet()) {
+      entry.getKey().updateSettings(entry.getValue());
+      this.logger.info("Applied new settings to server " + entry.getKey().getName() + ": " + entry.getValue());
+    }
+    for (String change : restartOnlyChanges) {
+      this.logger.warn("Changes to " + change + " are only applied after a proxy restart");
+    }
+  }
+
+  private static Map<String, Object> tableOf(Toml config, String name) {
+    Toml table = config.getTable(name);
+    return table == null ? Map.of() : table.toMap();
+  }
+
+  private void pollDueServers() {
+    if (!this.pollInProgress.compareAndSet(false, true)) return;
+    try {
+      List<MinecraftServer> dueServers = this.pollScheduler.drainDue();
+      if (dueServers.isEmpty()) return;
+      long startedAt = System.nanoTime();
+      try {
+        this.statusRefresher.refresh(dueServers);
+      } finally {
+        for (MinecraftServer server : dueServers) {
+          if (this.servers.get(server.getName()) != server) continue;
+          this.pollScheduler.scheduleNext(server);
+        }
+        this.metrics.recordTick(System.nanoTime() - startedAt);
+      }
+    } finally {
+      this.pollInProgress.set(false);
+    }
   }
 
-  private void invalidateServer() {
+  private void logFleetStatus() {
     StringJoiner output = new StringJoiner(" -- ");
     for (MinecraftServer server : this.servers.values()) {
-      server.update();
       if (server.isInstanceTurnedOn()) {
         if (server.isOnline()) {
           output.add(String.format("%s has %s players", server.getName(), server.getPlayerCount()));
@@ -0,0 +1,66 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.moandjiezana.toml.Toml;
+import org.slf4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Region and credentials servers can be bound to. The keys of the {@code [awsEC2]} table form the
+ * {@value #DEFAULT_PROFILE} profile, every {@code [awsEC2.<profile>]} sub-table adds a named one.
+ */
+public record AwsProfile(String name, String region, String cliKey, String cliSecret, String endpoint) {
+  public static final String DEFAULT_PROFILE = "default";
+
+  // Profiles with the same region, account and endpoint share one client
+  public String clientKey() {
+    return this.region + "|" + this.cliKey + "|" + this.endpoint;
+  }
+
+  public static Map<String, AwsProfile> fromConfig(Toml config, Logger logger) {
+    Map<String, AwsProfile> profiles = new LinkedHashMap<>();
+    Toml awsConfig = config.getTable("awsEC2");
+    if (awsConfig == null) {
+      awsConfig = new Toml();
+    }
+    boolean hasNamedProfiles = false;
+    for (String name : awsConfig.toMap().keySet()) {
+      if (!awsConfig.containsTable(name)) continue;
+      hasNamedProfiles = true;
+      fromTable(name, awsConfig.getTable(name), logger).ifPresent(profile -> profiles.put(name, profile));
+    }
+    // Without named profiles the top level keys are required, as they were before profiles existed
+    if (!hasNamedProfiles || hasAnyCredential(awsConfig)) {
+      fromTable(DEFAULT_PROFILE, awsConfig, logger).ifPresent(profile -> profiles.put(DEFAULT_PROFILE, profile));
+    }
+    return profiles;
+  }
+
+  private static boolean hasAnyCredential(Toml table) {
+    return !table.getString("region", "").trim().isEmpty() ||
+      !table.getString("cliKey", "").trim().isEmpty() ||
+      !table.getString("cliSecret", "").trim().isEmpty();
+  }
+
+  private static Optional<AwsProfile> fromTable(String name, Toml table, Logger logger) {
+    String region = table.getString("region", "").trim();
+    String cliKey = table.getString("cliKey", "").trim();
+    String cliSecret = table.getString("cliSecret", "").trim();
+    String endpoint = table.getString("endpoint", "").trim();
+    if (region.isEmpty()) {
+      logger.error("AWS EC2 region name empty for profile " + name);
+      return Optional.empty();
+    }
+    if (cliKey.isEmpty()) {
+      logger.error("AWS EC2 cli key empty for profile " + name);
+      return Optional.empty();
+    }
+    if (cliSecret.isEmpty()) {
+      logger.error("AWS EC2 cli secret empty for profile " + name);
+      return Optional.empty();
+    }
+    return Optional.of(new AwsProfile(name, region, cliKey, cliSecret, endpoint));
+  }
+}
@@ -0,0 +1,99 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+public class AwsSigV4Signer {
+  private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+  private static final DateTimeFormatter AMZ_DATE_FORMAT =
+    DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+  private static final DateTimeFormatter DATE_STAMP_FORMAT =
+    DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final String region;
+  private final String service;
+  private final String accessKey;
+  private final String secretKey;
+
+  public AwsSigV4Signer(String region, String service, String accessKey, String secretKey) {
+    this.region = region;
+    this.service = service;
+    this.accessKey = accessKey;
+    this.secretKey = secretKey;
+  }
+
+  public void signPost(HttpRequest.Builder request, URI uri, String contentType, String body, Instant now) {
+    String amzDate = AMZ_DATE_FORMAT.format(now);
+    String dateStamp = DATE_STAMP_FORMAT.format(now);
+    String host = uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+    String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+
+    String signedHeaders = "content-type;host;x-amz-date";
+    String canonicalRequest = "POST\n" +
+      path + "\n" +
+      "\n" +
+      "content-type:" + contentType + "\n" +
+      "host:" + host + "\n" +
+      "x-amz-date:" + amzDate + "\n" +
+      "\n" +
+      signedHeaders + "\n" +
+      hex(sha256(body.getBytes(StandardCharsets.UTF_8)));
+
+    String credentialScope = dateStamp + "/" + this.region + "/" + this.service + "/aws4_request";
+    String stringToSign = ALGORITHM + "\n" +
+      amzDate + "\n" +
+      credentialScope + "\n" +
+      hex(sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+
+    byte[] signingKey = hmac(("AWS4" + this.secretKey).getBytes(StandardCharsets.UTF_8), dateStamp);
+    signingKey = hmac(signingKey, this.region);
+    signingKey = hmac(signingKey, this.service);
+    signingKey = hmac(signingKey, "aws4_request");
+    String signature = hex(hmac(signingKey, stringToSign));
+
+    request.header("Content-Type", contentType);
+    request.header("X-Amz-Date", amzDate);
+    request.header(
+      "Authorization",
+      ALGORITHM + " Credential=" + this.accessKey + "/" + credentialScope +
+        ", SignedHeaders=" + signedHeaders +
+        ", Signature=" + signature
+    );
+  }
+
+  private static byte[] sha256(byte[] data) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(data);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  private static byte[] hmac(byte[] key, String data) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(key, "HmacSHA256"));
+      return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("HmacSHA256 not available", e);
+    }
+  }
+
+  private static String hex(byte[] bytes) {
+    char[] output = new char[bytes.length * 2];
+    for (int index = 0; index < bytes.length; index++) {
+      output[index * 2] = HEX[(bytes[index] >> 4) & 0xF];
+      output[index * 2 + 1] = HEX[bytes[index] & 0xF];
+    }
+    return new String(output);
+  }
+}
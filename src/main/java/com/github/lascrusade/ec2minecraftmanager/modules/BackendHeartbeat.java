@@ -0,0 +1,8 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+public record BackendHeartbeat(int playerCount, float tps, long receivedAtNanos) {
+
+  public boolean isFresh(long nowNanos, long maxAgeNanos) {
+    return nowNanos - this.receivedAtNanos < maxAgeNanos;
+  }
+}
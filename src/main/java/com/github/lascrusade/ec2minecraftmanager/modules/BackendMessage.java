@@ -0,0 +1,59 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.io.*;
+
+public sealed interface BackendMessage {
+  byte PROTOCOL_VERSION = 1;
+
+  byte TYPE_READY = 0x01;
+  byte TYPE_HEARTBEAT = 0x02;
+  byte TYPE_SHUTTING_DOWN = 0x03;
+
+  record Ready() implements BackendMessage {
+  }
+
+  record Heartbeat(int playerCount, float tps) implements BackendMessage {
+  }
+
+  record ShuttingDown() implements BackendMessage {
+  }
+
+  static BackendMessage decode(byte[] data) {
+    try {
+      DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+      byte version = input.readByte();
+      if (version != PROTOCOL_VERSION) {
+        throw new IllegalArgumentException("Unsupported backend message version " + version);
+      }
+      byte type = input.readByte();
+      return switch (type) {
+        case TYPE_READY -> new Ready();
+        case TYPE_HEARTBEAT -> new Heartbeat(input.readUnsignedShort(), input.readFloat());
+        case TYPE_SHUTTING_DOWN -> new ShuttingDown();
+        default -> throw new IllegalArgumentException("Unknown backend message type " + type);
+      };
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Truncated backend message", e);
+    }
+  }
+
+  static byte[] encode(BackendMessage message) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(8);
+    DataOutputStream output = new DataOutputStream(bytes);
+    try {
+      output.writeByte(PROTOCOL_VERSION);
+      if (message instanceof Ready) {
+        output.writeByte(TYPE_READY);
+      } else if (message instanceof Heartbeat heartbeat) {
+        output.writeByte(TYPE_HEARTBEAT);
+        output.writeShort(Math.min(heartbeat.playerCount(), 0xFFFF));
+        output.writeFloat(heartbeat.tps());
+      } else {
+        output.writeByte(TYPE_SHUTTING_DOWN);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,49 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.PluginMessageEvent;
+import com.velocitypowered.api.proxy.ServerConnection;
+import com.velocitypowered.api.proxy.messages.ChannelIdentifier;
+import org.slf4j.Logger;
+
+import java.util.Map;
+
+public class BackendMessageListener {
+  private final Logger logger;
+  private final ChannelIdentifier channel;
+  private final Map<String, MinecraftServer> servers;
+
+  public BackendMessageListener(Logger logger, ChannelIdentifier channel, Map<String, MinecraftServer> servers) {
+    this.logger = logger;
+    this.channel = channel;
+    this.servers = servers;
+  }
+
+  @Subscribe
+  public void onPluginMessage(PluginMessageEvent event) {
+    if (!this.channel.getId().equals(event.getIdentifier().getId())) return;
+    event.setResult(PluginMessageEvent.ForwardResult.handled());
+    if (!(event.getSource() instanceof ServerConnection connection)) {
+      this.logger.warn("Ignoring " + this.channel.getId() + " message that did not come from a backend server");
+      return;
+    }
+    String serverName = connection.getServerInfo().getName();
+    MinecraftServer server = this.servers.get(serverName);
+    if (server == null) return;
+
+    BackendMessage message;
+    try {
+      message = BackendMessage.decode(event.getData());
+    } catch (IllegalArgumentException e) {
+      this.logger.warn("Ignoring malformed message from server " + serverName + " because: " + e.getMessage());
+      return;
+    }
+    if (message instanceof BackendMessage.Ready) {
+      server.onBackendReady();
+    } else if (message instanceof BackendMessage.Heartbeat heartbeat) {
+      server.onBackendHeartbeat(heartbeat.playerCount(), heartbeat.tps());
+    } else if (message instanceof BackendMessage.ShuttingDown) {
+      server.onBackendShuttingDown();
+    }
+  }
+}
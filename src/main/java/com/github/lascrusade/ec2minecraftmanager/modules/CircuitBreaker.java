@@ -0,0 +1,63 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+/**
+ * Opens after a number of consecutive failures and rejects calls for a while, then lets a single trial
+ * call through: its success closes the breaker, its failure opens it again.
+ */
+public class CircuitBreaker {
+  private final int failureThreshold;
+  private final long openNanos;
+  private final MonotonicClock clock;
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures = 0;
+  private long openedAtNanos = 0;
+  private boolean trialInFlight = false;
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  public CircuitBreaker(int failureThreshold, long openNanos, MonotonicClock clock) {
+    this.failureThreshold = failureThreshold;
+    this.openNanos = openNanos;
+    this.clock = clock;
+  }
+
+  public synchronized State getState() {
+    return this.state;
+  }
+
+  public synchronized boolean tryAcquire() {
+    if (this.state == State.CLOSED) return true;
+    if (this.state == State.OPEN) {
+      if (this.clock.nanoTime() - this.openedAtNanos < this.openNanos) return false;
+      this.state = State.HALF_OPEN;
+    }
+    if (this.trialInFlight) return false;
+    this.trialInFlight = true;
+    return true;
+  }
+
+  // Returns true when this success closed the breaker
+  public synchronized boolean recordSuccess() {
+    this.consecutiveFailures = 0;
+    this.trialInFlight = false;
+    if (this.state == State.CLOSED) return false;
+    this.state = State.CLOSED;
+    return true;
+  }
+
+  // Returns true when this failure opened the breaker
+  public synchronized boolean recordFailure() {
+    this.trialInFlight = false;
+    this.consecutiveFailures++;
+    if (this.state == State.OPEN) return false;
+    if (this.state == State.CLOSED && this.consecutiveFailures < this.failureThreshold) return false;
+    this.state = State.OPEN;
+    this.openedAtNanos = this.clock.nanoTime();
+    return true;
+  }
+}
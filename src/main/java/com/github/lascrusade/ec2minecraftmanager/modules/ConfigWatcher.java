@@ -0,0 +1,99 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.moandjiezana.toml.Toml;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches config.toml on its own daemon thread and hands every successfully parsed version to the
+ * listener, so neither the file I/O nor the parsing ever runs on a Velocity event thread. A file that
+ * cannot be parsed, or that the listener refuses by throwing, is rejected and the previous config stays.
+ */
+public class ConfigWatcher {
+  // Editors often save in several writes, reload once the file has been quiet for this long
+  private static final long DEBOUNCE_MILLIS = 500;
+
+  private final Path configFile;
+  private final Consumer<Toml> onChange;
+  private final Logger logger;
+  private WatchService watchService = null;
+
+  public ConfigWatcher(Path configFile, Consumer<Toml> onChange, Logger logger) {
+    this.configFile = configFile;
+    this.onChange = onChange;
+    this.logger = logger;
+  }
+
+  public void start() {
+    try {
+      this.watchService = this.configFile.getFileSystem().newWatchService();
+      this.configFile.getParent().register(
+        this.watchService,
+        StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY
+      );
+    } catch (IOException e) {
+      this.logger.error("Failed to watch " + this.configFile + ", config changes need a restart because: " + e);
+      return;
+    }
+    Thread thread = new Thread(this::watch, "ec2minecraftmanager-config-watcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  public void stop() {
+    if (this.watchService == null) return;
+    try {
+      this.watchService.close();
+    } catch (IOException e) {
+      this.logger.warn("Failed to stop watching " + this.configFile + " because: " + e);
+    }
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        if (!this.isConfigChange(this.watchService.take())) continue;
+        WatchKey key;
+        while ((key = this.watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+          this.isConfigChange(key);
+        }
+        this.reload();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      // Stopped with the proxy
+    }
+  }
+
+  private boolean isConfigChange(WatchKey key) {
+    boolean configChanged = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (this.configFile.getFileName().equals(event.context())) {
+        configChanged = true;
+      }
+    }
+    key.reset();
+    return configChanged;
+  }
+
+  private void reload() {
+    Toml config;
+    try {
+      config = new Toml().read(this.configFile.toFile());
+    } catch (RuntimeException e) {
+      this.logger.error("Rejected the new " + this.configFile.getFileName() + ", keeping the previous config because: " + e);
+      return;
+    }
+    try {
+      this.onChange.accept(config);
+    } catch (RuntimeException e) {
+      this.logger.error("Rejected the new " + this.configFile.getFileName() + ", keeping the previous config because: " + e);
+    }
+  }
+}
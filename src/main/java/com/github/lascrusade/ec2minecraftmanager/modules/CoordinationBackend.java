@@ -0,0 +1,28 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * State shared between the proxies running the plugin: the players each proxy has on each server,
+ * and named leases so a single proxy at a time acts on a server. Entries expire on their own, so a
+ * proxy that crashes cannot hold a server forever.
+ */
+public interface CoordinationBackend extends Closeable {
+
+  // Replaces every player count previously published by this proxy, an empty map withdraws them
+  void publishPlayerCounts(String proxyId, Map<String, Integer> playerCounts, long ttlMillis) throws IOException;
+
+  // Player counts per server, per proxy that published them and has not expired yet
+  Map<String, Map<String, Integer>> readPlayerCounts() throws IOException;
+
+  // Takes the lease when it is free or expired, or extends it when the owner already holds it
+  boolean tryAcquireLease(String name, String owner, long ttlMillis) throws IOException;
+
+  void releaseLease(String name, String owner) throws IOException;
+
+  @Override
+  default void close() throws IOException {
+  }
+}
@@ -0,0 +1,25 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+public enum CoordinationMode {
+  LOCAL("local"),
+  FILE("file"),
+  REDIS("redis");
+
+  private final String configName;
+
+  CoordinationMode(String configName) {
+    this.configName = configName;
+  }
+
+  public String getConfigName() {
+    return this.configName;
+  }
+
+  public static CoordinationMode fromConfig(String value) {
+    if (value == null) return null;
+    for (CoordinationMode mode : values()) {
+      if (mode.configName.equalsIgnoreCase(value.trim())) return mode;
+    }
+    return null;
+  }
+}
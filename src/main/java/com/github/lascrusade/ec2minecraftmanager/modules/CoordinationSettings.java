@@ -0,0 +1,90 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.moandjiezana.toml.Toml;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+public record CoordinationSettings(
+  CoordinationMode mode,
+  String proxyId,
+  String file,
+  String redisHost,
+  int redisPort,
+  String redisPassword,
+  long syncIntervalSeconds,
+  long leaseTimeoutSeconds
+) {
+  private static final String DEFAULT_FILE = "coordination.dat";
+  private static final String DEFAULT_REDIS_HOST = "127.0.0.1";
+  private static final int DEFAULT_REDIS_PORT = 6379;
+  private static final long DEFAULT_SYNC_INTERVAL = 5;
+  private static final long DEFAULT_LEASE_TIMEOUT = 60;
+
+  // Player counts a proxy stopped publishing are dropped after a few missed syncs
+  public long playerCountTtlSeconds() {
+    return this.syncIntervalSeconds * 3;
+  }
+
+  public static CoordinationSettings fromConfig(Toml config, InvalidConfigValues invalidValues) {
+    Toml coordinationConfig = config.getTable("coordination");
+    if (coordinationConfig == null) {
+      coordinationConfig = new Toml();
+    }
+    String modeName = coordinationConfig.getString("backend", CoordinationMode.LOCAL.getConfigName());
+    CoordinationMode mode = CoordinationMode.fromConfig(modeName);
+    if (mode == null) {
+      invalidValues.add("Coordination backend " + modeName + " unknown, set the default backend to local");
+      mode = CoordinationMode.LOCAL;
+    }
+    String proxyId = coordinationConfig.getString("proxyId", "").trim();
+    if (proxyId.isEmpty()) {
+      proxyId = defaultProxyId();
+    }
+    String file = coordinationConfig.getString("file", DEFAULT_FILE).trim();
+    if (file.isEmpty()) {
+      invalidValues.add("Coordination file invalid, set the default file to " + DEFAULT_FILE);
+      file = DEFAULT_FILE;
+    }
+    String redisHost = coordinationConfig.getString("redisHost", DEFAULT_REDIS_HOST).trim();
+    if (redisHost.isEmpty()) {
+      invalidValues.add("Coordination Redis host invalid, set the default host to " + DEFAULT_REDIS_HOST);
+      redisHost = DEFAULT_REDIS_HOST;
+    }
+    long redisPort = coordinationConfig.getLong("redisPort", (long) DEFAULT_REDIS_PORT);
+    if (redisPort <= 0 || redisPort > 65535) {
+      invalidValues.add("Coordination Redis port invalid, set the default port to " + DEFAULT_REDIS_PORT);
+      redisPort = DEFAULT_REDIS_PORT;
+    }
+    String redisPassword = coordinationConfig.getString("redisPassword", "");
+    long syncIntervalSeconds = coordinationConfig.getLong("syncInterval", DEFAULT_SYNC_INTERVAL);
+    if (syncIntervalSeconds <= 0) {
+      invalidValues.add("Coordination sync interval invalid, set the default interval to 5 seconds");
+      syncIntervalSeconds = DEFAULT_SYNC_INTERVAL;
+    }
+    long leaseTimeoutSeconds = coordinationConfig.getLong("leaseTimeout", DEFAULT_LEASE_TIMEOUT);
+    if (leaseTimeoutSeconds <= 0) {
+      invalidValues.add("Coordination lease timeout invalid, set the default timeout to 1 minute");
+      leaseTimeoutSeconds = DEFAULT_LEASE_TIMEOUT;
+    }
+    return new CoordinationSettings(
+      mode,
+      proxyId,
+      file,
+      redisHost,
+      (int) redisPort,
+      redisPassword,
+      syncIntervalSeconds,
+      leaseTimeoutSeconds
+    );
+  }
+
+  private static String defaultProxyId() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      return UUID.randomUUID().toString();
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.moandjiezana.toml.Toml;
+
+public record DiscoverySettings(long intervalSeconds) {
+  private static final long DEFAULT_INTERVAL = 300;
+
+  public static DiscoverySettings fromConfig(Toml config, InvalidConfigValues invalidValues) {
+    Toml discoveryConfig = config.getTable("discovery");
+    if (discoveryConfig == null) {
+      discoveryConfig = new Toml();
+    }
+    long intervalSeconds = discoveryConfig.getLong("interval", DEFAULT_INTERVAL);
+    if (intervalSeconds <= 0) {
+      invalidValues.add("Discovery interval invalid, set the default interval to 5 minutes");
+      intervalSeconds = DEFAULT_INTERVAL;
+    }
+    return new DiscoverySettings(intervalSeconds);
+  }
+}
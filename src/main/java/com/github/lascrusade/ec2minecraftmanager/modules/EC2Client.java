@@ -0,0 +1,298 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+
+public class EC2Client implements EC2Gateway {
+  private static final String API_VERSION = "2016-11-15";
+  private static final String CONTENT_TYPE = "application/x-www-form-urlencoded; charset=utf-8";
+  private static final int MAX_FILTER_VALUES = 200;
+  private static final int MAX_RESULTS = 1000;
+  private static final int MAX_INSTANCE_IDS_PER_STATUS_CALL = 100;
+  private static final Set<String> UNKNOWN_INSTANCE_ERRORS = Set.of(
+    "InvalidInstanceID.NotFound",
+    "InvalidInstanceID.Malformed"
+  );
+
+  private final URI endpoint;
+  private final AwsSigV4Signer signer;
+  private final HttpClient httpClient;
+  private final Duration requestTimeout;
+
+  public EC2Client(String region, String accessKey, String secretKey, String endpointOverride) {
+    this(region, accessKey, secretKey, endpointOverride, Duration.ofSeconds(10));
+  }
+
+  public EC2Client(
+    String region,
+    String accessKey,
+    String secretKey,
+    String endpointOverride,
+    Duration requestTimeout
+  ) {
+    if (endpointOverride == null || endpointOverride.trim().isEmpty()) {
+      this.endpoint = URI.create("https://ec2." + region + ".amazonaws.com/");
+    } else {
+      this.endpoint = URI.create(endpointOverride.trim());
+    }
+    this.signer = new AwsSigV4Signer(region, "ec2", accessKey, secretKey);
+    this.requestTimeout = requestTimeout;
+    this.httpClient = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .connectTimeout(Duration.ofSeconds(5))
+      .build();
+  }
+
+  public URI getEndpoint() {
+    return this.endpoint;
+  }
+
+  @Override
+  public Map<String, String> findInstanceIdsByPrivateIp(Collection<String> privateIpAddresses) throws IOException {
+    return this.findInstanceIds(
+      Map.of(),
+      "private-ip-address",
+      privateIpAddresses,
+      instance -> childText(instance, "privateIpAddress")
+    );
+  }
+
+  @Override
+  public Map<String, String> findInstanceIdsByTag(String tagKey, Collection<String> tagValues) throws IOException {
+    // Terminated instances keep their tags for a while, they must not shadow the live one
+    return this.findInstanceIds(
+      Map.of("Filter.2.Name", "instance-state-name", "Filter.2.Value.1", "pending", "Filter.2.Value.2", "running",
+        "Filter.2.Value.3", "stopping", "Filter.2.Value.4", "stopped"),
+      "tag:" + tagKey,
+      tagValues,
+      instance -> tagValue(instance, tagKey)
+    );
+  }
+
+  private Map<String, String> findInstanceIds(
+    Map<String, String> extraFilters,
+    String filterName,
+    Collection<String> filterValues,
+    Function<Element, String> keyOf
+  ) throws IOException {
+    Map<String, String> instanceIds = new HashMap<>();
+    List<String> values = new ArrayList<>(new LinkedHashSet<>(filterValues));
+    for (int from = 0; from < values.size(); from += MAX_FILTER_VALUES) {
+      List<String> batch = values.subList(from, Math.min(from + MAX_FILTER_VALUES, values.size()));
+      String nextToken = null;
+      do {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("Filter.1.Name", filterName);
+        for (int index = 0; index < batch.size(); index++) {
+          params.put("Filter.1.Value." + (index + 1), batch.get(index));
+        }
+        params.putAll(extraFilters);
+        params.put("MaxResults", String.valueOf(MAX_RESULTS));
+        if (nextToken != null) params.put("NextToken", nextToken);
+        Element response = this.call("DescribeInstances", params);
+        for (Element instancesSet : descendants(response, "instancesSet")) {
+          for (Element instance : children(instancesSet, "item")) {
+            String key = keyOf.apply(instance);
+            String instanceId = childText(instance, "instanceId");
+            if (key != null && instanceId != null) {
+              instanceIds.putIfAbsent(key, instanceId);
+            }
+          }
+        }
+        nextToken = emptyToNull(childText(response, "nextToken"));
+      } while (nextToken != null);
+    }
+    return instanceIds;
+  }
+
+  @Override
+  public InstanceState describeInstanceState(String instanceId) throws IOException {
+    return this.describeInstanceStates(List.of(instanceId)).getOrDefault(instanceId, InstanceState.UNKNOWN);
+  }
+
+  @Override
+  public Map<String, InstanceState> describeInstanceStates(Collection<String> instanceIds) throws IOException {
+    Map<String, InstanceState> states = new HashMap<>();
+    List<String> ids = new ArrayList<>(new LinkedHashSet<>(instanceIds));
+    for (int from = 0; from < ids.size(); from += MAX_INSTANCE_IDS_PER_STATUS_CALL) {
+      this.describeBatch(ids.subList(from, Math.min(from + MAX_INSTANCE_IDS_PER_STATUS_CALL, ids.size())), states);
+    }
+    return states;
+  }
+
+  // EC2 rejects the whole batch when one ID no longer exists, the batch is split until that ID is alone
+  // and it is reported as terminated, so one deleted instance does not blind the rest of the region
+  private void describeBatch(List<String> batch, Map<String, InstanceState> states) throws IOException {
+    try {
+      String nextToken = null;
+      do {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("IncludeAllInstances", "true");
+        for (int index = 0; index < batch.size(); index++) {
+          params.put("InstanceId." + (index + 1), batch.get(index));
+        }
+        if (nextToken != null) params.put("NextToken", nextToken);
+        Element response = this.call("DescribeInstanceStatus", params);
+        for (Element statusSet : children(response, "instanceStatusSet")) {
+          for (Element status : children(statusSet, "item")) {
+            String instanceId = childText(status, "instanceId");
+            Element instanceState = child(status, "instanceState");
+            if (instanceId == null) continue;
+            states.put(
+              instanceId,
+              InstanceState.fromAWSName(instanceState == null ? null : childText(instanceState, "name"))
+            );
+          }
+        }
+        nextToken = emptyToNull(childText(response, "nextToken"));
+      } while (nextToken != null);
+    } catch (EC2Exception e) {
+      if (!UNKNOWN_INSTANCE_ERRORS.contains(e.getErrorCode())) throw e;
+      if (batch.size() == 1) {
+        states.put(batch.get(0), InstanceState.TERMINATED);
+        return;
+      }
+      int middle = batch.size() / 2;
+      this.describeBatch(batch.subList(0, middle), states);
+      this.describeBatch(batch.subList(middle, batch.size()), states);
+    }
+  }
+
+  @Override
+  public void startInstance(String instanceId) throws IOException {
+    Map<String, String> params = new LinkedHashMap<>();
+    params.put("InstanceId.1", instanceId);
+    this.call("StartInstances", params);
+  }
+
+  @Override
+  public void stopInstance(String instanceId) throws IOException {
+    Map<String, String> params = new LinkedHashMap<>();
+    params.put("InstanceId.1", instanceId);
+    this.call("StopInstances", params);
+  }
+
+  @Override
+  public void hibernateInstance(String instanceId) throws IOException {
+    Map<String, String> params = new LinkedHashMap<>();
+    params.put("InstanceId.1", instanceId);
+    params.put("Hibernate", "true");
+    this.call("StopInstances", params);
+  }
+
+  private Element call(String action, Map<String, String> params) throws IOException {
+    StringJoiner body = new StringJoiner("&");
+    body.add("Action=" + encode(action));
+    body.add("Version=" + API_VERSION);
+    for (Map.Entry<String, String> param : params.entrySet()) {
+      body.add(encode(param.getKey()) + "=" + encode(param.getValue()));
+    }
+    String payload = body.toString();
+
+    HttpRequest.Builder request = HttpRequest.newBuilder(this.endpoint)
+      .timeout(this.requestTimeout)
+      .POST(HttpRequest.BodyPublishers.ofString(payload, StandardCharsets.UTF_8));
+    this.signer.signPost(request, this.endpoint, CONTENT_TYPE, payload, Instant.now());
+
+    HttpResponse<byte[]> response;
+    try {
+      response = this.httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while calling EC2 " + action, e);
+    }
+
+    Element root = parseXml(response.body(), action);
+    if (response.statusCode() / 100 != 2) {
+      Element error = root == null ? null : descendants(root, "Error").stream().findFirst().orElse(null);
+      String errorCode = error == null ? "Unknown" : childText(error, "Code");
+      String message = error == null ? "no error body" : childText(error, "Message");
+      throw new EC2Exception(response.statusCode(), errorCode, action + ": " + message);
+    }
+    if (root == null) {
+      throw new IOException("EC2 " + action + " returned an empty response");
+    }
+    return root;
+  }
+
+  private static Element parseXml(byte[] body, String action) throws IOException {
+    if (body == null || body.length == 0) return null;
+    try {
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+      factory.setNamespaceAware(false);
+      Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(body));
+      return document.getDocumentElement();
+    } catch (ParserConfigurationException | SAXException e) {
+      throw new IOException("Cannot parse EC2 " + action + " response", e);
+    }
+  }
+
+  private static String encode(String value) {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8)
+      .replace("+", "%20")
+      .replace("*", "%2A")
+      .replace("%7E", "~");
+  }
+
+  private static String emptyToNull(String value) {
+    return value == null || value.isEmpty() ? null : value;
+  }
+
+  private static List<Element> children(Element parent, String name) {
+    List<Element> output = new ArrayList<>();
+    for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+      if (node instanceof Element element && name.equals(element.getTagName())) {
+        output.add(element);
+      }
+    }
+    return output;
+  }
+
+  private static List<Element> descendants(Element parent, String name) {
+    List<Element> output = new ArrayList<>();
+    org.w3c.dom.NodeList nodes = parent.getElementsByTagName(name);
+    for (int index = 0; index < nodes.getLength(); index++) {
+      output.add((Element) nodes.item(index));
+    }
+    return output;
+  }
+
+  private static Element child(Element parent, String name) {
+    List<Element> elements = children(parent, name);
+    return elements.isEmpty() ? null : elements.get(0);
+  }
+
+  private static String tagValue(Element instance, String tagKey) {
+    for (Element tagSet : children(instance, "tagSet")) {
+      for (Element tag : children(tagSet, "item")) {
+        if (tagKey.equals(childText(tag, "key"))) return childText(tag, "value");
+      }
+    }
+    return null;
+  }
+
+  private static String childText(Element parent, String name) {
+    Element element = child(parent, name);
+    return element == null ? null : element.getTextContent().trim();
+  }
+}
@@ -0,0 +1,22 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.io.IOException;
+
+public class EC2Exception extends IOException {
+  private final int statusCode;
+  private final String errorCode;
+
+  public EC2Exception(int statusCode, String errorCode, String message) {
+    super("EC2 request failed with HTTP " + statusCode + " (" + errorCode + "): " + message);
+    this.statusCode = statusCode;
+    this.errorCode = errorCode;
+  }
+
+  public int getStatusCode() {
+    return this.statusCode;
+  }
+
+  public String getErrorCode() {
+    return this.errorCode;
+  }
+}
@@ -0,0 +1,44 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+public interface EC2Gateway {
+
+  Map<String, String> findInstanceIdsByPrivateIp(Collection<String> privateIpAddresses) throws IOException;
+
+  Map<String, String> findInstanceIdsByTag(String tagKey, Collection<String> tagValues) throws IOException;
+
+  InstanceState describeInstanceState(String instanceId) throws IOException;
+
+  Map<String, InstanceState> describeInstanceStates(Collection<String> instanceIds) throws IOException;
+
+  void startInstance(String instanceId) throws IOException;
+
+  void stopInstance(String instanceId) throws IOException;
+
+  void hibernateInstance(String instanceId) throws IOException;
+
+  default void waitForInstanceState(
+    String instanceId,
+    InstanceState expectedState,
+    Duration pollInterval,
+    int maxAttempts
+  ) throws IOException {
+    for (int attempt = 0; attempt < maxAttempts; attempt++) {
+      if (this.describeInstanceState(instanceId) == expectedState) return;
+      try {
+        Thread.sleep(pollInterval.toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for instance " + instanceId, e);
+      }
+    }
+    throw new IOException(
+      "Instance " + instanceId + " did not reach state " + expectedState.getAWSName() +
+        " after " + maxAttempts + " attempts"
+    );
+  }
+}
@@ -0,0 +1,211 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the shared state in one file that every proxy reads and rewrites under an exclusive file lock,
+ * for proxies on the same host or on a volume with working locks. File locks are held per process, so
+ * backends of the same JVM on the same file also synchronize on a monitor of their own.
+ */
+public class FileCoordinationBackend implements CoordinationBackend {
+  private static final int MAGIC = 0x434f4f52;
+  private static final int VERSION = 1;
+  private static final Map<Path, Object> MONITORS = new ConcurrentHashMap<>();
+
+  private final Path file;
+  private final Clock clock;
+  private final Object monitor;
+
+  public FileCoordinationBackend(Path file, Clock clock) {
+    this.file = file.toAbsolutePath().normalize();
+    this.clock = clock;
+    this.monitor = MONITORS.computeIfAbsent(this.file, ignored -> new Object());
+  }
+
+  @Override
+  public void publishPlayerCounts(String proxyId, Map<String, Integer> playerCounts, long ttlMillis) throws IOException {
+    this.update(state -> {
+      if (playerCounts.isEmpty()) {
+        state.changed |= state.playerCounts.remove(proxyId) != null;
+      } else {
+        state.playerCounts.put(proxyId, new PlayerCounts(Map.copyOf(playerCounts), this.clock.millis() + ttlMillis));
+        state.changed = true;
+      }
+      return null;
+    });
+  }
+
+  @Override
+  public Map<String, Map<String, Integer>> readPlayerCounts() throws IOException {
+    return this.read(state -> {
+      Map<String, Map<String, Integer>> output = new HashMap<>();
+      state.playerCounts.forEach((proxyId, counts) -> output.put(proxyId, counts.counts()));
+      return output;
+    });
+  }
+
+  @Override
+  public boolean tryAcquireLease(String name, String owner, long ttlMillis) throws IOException {
+    return this.update(state -> {
+      Lease lease = state.leases.get(name);
+      if (lease != null && !lease.owner().equals(owner)) return false;
+      state.leases.put(name, new Lease(owner, this.clock.millis() + ttlMillis));
+      state.changed = true;
+      return true;
+    });
+  }
+
+  @Override
+  public void releaseLease(String name, String owner) throws IOException {
+    this.update(state -> {
+      Lease lease = state.leases.get(name);
+      if (lease != null && lease.owner().equals(owner)) {
+        state.leases.remove(name);
+        state.changed = true;
+      }
+      return null;
+    });
+  }
+
+  // Reads the file under a shared lock, entries that expired are skipped but left in the file
+  private <T> T read(StateUpdate<T> query) throws IOException {
+    synchronized (this.monitor) {
+      if (!Files.exists(this.file)) return query.apply(new State());
+      try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+        FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+        try {
+          State state = read(channel);
+          this.dropExpired(state);
+          return query.apply(state);
+        } finally {
+          lock.release();
+        }
+      }
+    }
+  }
+
+  // Reads the file, drops the expired entries and applies the change under the lock, the file is only
+  // rewritten and synced when the change touched a lease or a player count
+  private <T> T update(StateUpdate<T> update) throws IOException {
+    synchronized (this.monitor) {
+      Files.createDirectories(this.file.getParent());
+      try (FileChannel channel = FileChannel.open(
+        this.file,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+      )) {
+        FileLock lock = channel.lock();
+        try {
+          State state = read(channel);
+          this.dropExpired(state);
+          T result = update.apply(state);
+          if (state.changed) {
+            write(channel, state);
+          }
+          return result;
+        } finally {
+          lock.release();
+        }
+      }
+    }
+  }
+
+  private void dropExpired(State state) {
+    long now = this.clock.millis();
+    state.playerCounts.values().removeIf(counts -> counts.expiresAtMillis() <= now);
+    state.leases.values().removeIf(lease -> lease.expiresAtMillis() <= now);
+  }
+
+  // An empty or unreadable file starts over from an empty state, every entry in it expires soon anyway
+  private static State read(FileChannel channel) throws IOException {
+    State state = new State();
+    long size = channel.size();
+    if (size == 0 || size > Integer.MAX_VALUE) return state;
+    ByteBuffer buffer = ByteBuffer.allocate((int) size);
+    while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+      // Keep reading until the buffer is full
+    }
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(buffer.array()))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) return state;
+      int proxyCount = input.readInt();
+      for (int proxyIndex = 0; proxyIndex < proxyCount; proxyIndex++) {
+        String proxyId = input.readUTF();
+        long expiresAtMillis = input.readLong();
+        int serverCount = input.readInt();
+        Map<String, Integer> counts = new HashMap<>();
+        for (int serverIndex = 0; serverIndex < serverCount; serverIndex++) {
+          String server = input.readUTF();
+          counts.put(server, input.readInt());
+        }
+        state.playerCounts.put(proxyId, new PlayerCounts(Map.copyOf(counts), expiresAtMillis));
+      }
+      int leaseCount = input.readInt();
+      for (int index = 0; index < leaseCount; index++) {
+        String name = input.readUTF();
+        String owner = input.readUTF();
+        state.leases.put(name, new Lease(owner, input.readLong()));
+      }
+    } catch (EOFException e) {
+      return new State();
+    }
+    return state;
+  }
+
+  private static void write(FileChannel channel, State state) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeInt(state.playerCounts.size());
+      for (Map.Entry<String, PlayerCounts> entry : state.playerCounts.entrySet()) {
+        output.writeUTF(entry.getKey());
+        output.writeLong(entry.getValue().expiresAtMillis());
+        output.writeInt(entry.getValue().counts().size());
+        for (Map.Entry<String, Integer> count : entry.getValue().counts().entrySet()) {
+          output.writeUTF(count.getKey());
+          output.writeInt(count.getValue());
+        }
+      }
+      output.writeInt(state.leases.size());
+      for (Map.Entry<String, Lease> entry : state.leases.entrySet()) {
+        output.writeUTF(entry.getKey());
+        output.writeUTF(entry.getValue().owner());
+        output.writeLong(entry.getValue().expiresAtMillis());
+      }
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+    channel.truncate(buffer.remaining());
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, buffer.position());
+    }
+    channel.force(false);
+  }
+
+  @FunctionalInterface
+  private interface StateUpdate<T> {
+    T apply(State state);
+  }
+
+  private static class State {
+    private final Map<String, PlayerCounts> playerCounts = new HashMap<>();
+    private final Map<String, Lease> leases = new HashMap<>();
+    private boolean changed = false;
+  }
+
+  private record PlayerCounts(Map<String, Integer> counts, long expiresAtMillis) {
+  }
+
+  private record Lease(String owner, long expiresAtMillis) {
+  }
+}
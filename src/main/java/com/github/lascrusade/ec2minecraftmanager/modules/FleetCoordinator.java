@@ -0,0 +1,131 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares this proxy's view of the fleet with the other proxies through a {@link CoordinationBackend}:
+ * player counts are exchanged every sync so idle timers see the players of every proxy, and starts and
+ * stops are issued under a per server lease.
+ */
+public class FleetCoordinator implements ServerOperationGuard {
+  private final CoordinationBackend backend;
+  private final CoordinationSettings settings;
+  private final Logger logger;
+  private volatile boolean backendFailing = false;
+
+  public FleetCoordinator(CoordinationBackend backend, CoordinationSettings settings, Logger logger) {
+    this.backend = backend;
+    this.settings = settings;
+    this.logger = logger;
+  }
+
+  public String getProxyId() {
+    return this.settings.proxyId();
+  }
+
+  // On a backend failure the last known remote counts are kept, so a server is rather kept up than
+  // stopped under the players of another proxy
+  public void sync(Collection<MinecraftServer> servers) {
+    Map<String, Integer> playerCounts = new HashMap<>();
+    for (MinecraftServer server : servers) {
+      playerCounts.put(server.getName(), server.getPlayerCount());
+    }
+    try {
+      long ttlMillis = TimeUnit.SECONDS.toMillis(this.settings.playerCountTtlSeconds());
+      this.backend.publishPlayerCounts(this.settings.proxyId(), playerCounts, ttlMillis);
+      this.applyRemotePlayerCounts(servers, this.backend.readPlayerCounts());
+      this.onBackendSuccess();
+    } catch (IOException | RuntimeException e) {
+      this.onBackendFailure("sync player counts", e);
+    }
+  }
+
+  @Override
+  public boolean tryAcquire(MinecraftServer server, Operation operation) {
+    try {
+      long ttlMillis = TimeUnit.SECONDS.toMillis(this.settings.leaseTimeoutSeconds());
+      if (!this.backend.tryAcquireLease(leaseName(server), this.settings.proxyId(), ttlMillis)) {
+        this.logger.info("Server " + server.getName() + " is handled by another proxy, " + operation + " skipped");
+        return false;
+      }
+      this.onBackendSuccess();
+    } catch (IOException | RuntimeException e) {
+      this.onBackendFailure("acquire lease of server " + server.getName(), e);
+      // Players waiting on a start matter more than a duplicate start, a stop is only safe when agreed on
+      return operation == Operation.START;
+    }
+    if (operation != Operation.STOP) return true;
+    // Last look at the other proxies' players, they may have joined since the previous sync
+    try {
+      int remotePlayers = remotePlayerCount(server.getName(), this.backend.readPlayerCounts(), this.settings.proxyId());
+      server.setRemotePlayerCount(remotePlayers);
+      if (remotePlayers == 0) return true;
+      this.logger.info("Server " + server.getName() + " has " + remotePlayers + " players on other proxies, stop skipped");
+    } catch (IOException | RuntimeException e) {
+      this.onBackendFailure("read player counts", e);
+    }
+    this.release(server, operation);
+    return false;
+  }
+
+  @Override
+  public void release(MinecraftServer server, Operation operation) {
+    try {
+      this.backend.releaseLease(leaseName(server), this.settings.proxyId());
+    } catch (IOException | RuntimeException e) {
+      // The lease expires on its own
+      this.onBackendFailure("release lease of server " + server.getName(), e);
+    }
+  }
+
+  public void close() {
+    try {
+      this.backend.publishPlayerCounts(this.settings.proxyId(), Map.of(), 0);
+    } catch (IOException | RuntimeException e) {
+      this.logger.warn("Failed to withdraw player counts from the coordination backend because: " + e);
+    }
+    try {
+      this.backend.close();
+    } catch (IOException e) {
+      this.logger.warn("Failed to close the coordination backend because: " + e);
+    }
+  }
+
+  private void applyRemotePlayerCounts(Collection<MinecraftServer> servers, Map<String, Map<String, Integer>> counts) {
+    for (MinecraftServer server : servers) {
+      server.setRemotePlayerCount(remotePlayerCount(server.getName(), counts, this.settings.proxyId()));
+    }
+  }
+
+  private static int remotePlayerCount(String serverName, Map<String, Map<String, Integer>> counts, String proxyId) {
+    int playerCount = 0;
+    for (Map.Entry<String, Map<String, Integer>> entry : counts.entrySet()) {
+      if (entry.getKey().equals(proxyId)) continue;
+      playerCount += entry.getValue().getOrDefault(serverName, 0);
+    }
+    return playerCount;
+  }
+
+  private static String leaseName(MinecraftServer server) {
+    return "server:" + server.getName();
+  }
+
+  private void onBackendSuccess() {
+    if (!this.backendFailing) return;
+    this.backendFailing = false;
+    this.logger.info("Coordination backend reachable again");
+  }
+
+  // Logged once per outage, the sync runs every few seconds
+  private void onBackendFailure(String action, Exception e) {
+    if (this.backendFailing) return;
+    this.backendFailing = true;
+    this.logger.error("Failed to " + action + " on the coordination backend because: " + e);
+  }
+}
@@ -0,0 +1,223 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Maps the Velocity servers to their EC2 instance. At startup the servers are registered straight from
+ * the persisted instance ID cache without any EC2 call, {@link #discover(Collection)} then runs in the
+ * background to revalidate them and to pick up servers added to Velocity later. Every AWS profile is
+ * looked up at the same time, so adding a region does not make discovery slower.
+ */
+public class FleetDiscovery {
+  private final Map<String, EC2Gateway> gateways;
+  private final InstanceIdCache cache;
+  private final Map<String, MinecraftServer> servers;
+  private final Function<String, InstanceSelector> selectorOf;
+  private final ServerFactory serverFactory;
+  private final Consumer<MinecraftServer> onAdded;
+  private final Consumer<MinecraftServer> onRemoved;
+  private final Executor regionExecutor;
+  private final Logger logger;
+  private final AtomicBoolean discoveryInProgress = new AtomicBoolean(false);
+  private final Set<String> reportedMissingServers = ConcurrentHashMap.newKeySet();
+
+  public interface ServerFactory {
+    MinecraftServer create(RegisteredServer velocityServer, EC2Gateway ec2, String instanceId);
+  }
+
+  public FleetDiscovery(
+    Map<String, EC2Gateway> gateways,
+    InstanceIdCache cache,
+    Map<String, MinecraftServer> servers,
+    Function<String, InstanceSelector> selectorOf,
+    ServerFactory serverFactory,
+    Consumer<MinecraftServer> onAdded,
+    Consumer<MinecraftServer> onRemoved,
+    Executor regionExecutor,
+    Logger logger
+  ) {
+    this.gateways = gateways;
+    this.cache = cache;
+    this.servers = servers;
+    this.selectorOf = selectorOf;
+    this.serverFactory = serverFactory;
+    this.onAdded = onAdded;
+    this.onRemoved = onRemoved;
+    this.regionExecutor = regionExecutor;
+    this.logger = logger;
+  }
+
+  public void registerCached(Collection<RegisteredServer> velocityServers) {
+    int registered = 0;
+    for (RegisteredServer velocityServer : velocityServers) {
+      InstanceSelector selector = this.selectorOf.apply(velocityServer.getServerInfo().getName());
+      EC2Gateway ec2 = this.gateways.get(selector.awsProfile());
+      if (ec2 == null) continue;
+      Optional<String> instanceId = selector.hasInstanceId()
+        ? Optional.of(selector.instanceId())
+        : this.cache.instanceIdOf(selector.cacheKey(ipAddressOf(velocityServer)));
+      if (instanceId.isEmpty()) continue;
+      this.register(velocityServer, ec2, instanceId.get());
+      registered++;
+    }
+    if (registered > 0) {
+      this.logger.info("Registered " + registered + " servers from the instance ID cache, revalidating them in the background");
+    }
+  }
+
+  public void discover(Collection<RegisteredServer> velocityServers) {
+    if (!this.discoveryInProgress.compareAndSet(false, true)) return;
+    try {
+      Set<String> velocityServerNames = new HashSet<>();
+      Set<String> cacheKeys = new HashSet<>();
+      Map<String, List<Target>> targetsByProfile = new LinkedHashMap<>();
+      for (RegisteredServer velocityServer : velocityServers) {
+        String name = velocityServer.getServerInfo().getName();
+        velocityServerNames.add(name);
+        InstanceSelector selector = this.selectorOf.apply(name);
+        Target target = new Target(velocityServer, selector, ipAddressOf(velocityServer));
+        cacheKeys.add(target.cacheKey());
+        if (!this.gateways.containsKey(selector.awsProfile())) {
+          MinecraftServer existing = this.servers.get(name);
+          if (existing != null) {
+            this.unregister(existing, "its AWS profile " + selector.awsProfile() + " is not configured");
+          } else if (this.reportedMissingServers.add(name)) {
+            this.logger.error("Server " + name + " uses the unknown AWS profile " + selector.awsProfile() + ", skipping");
+          }
+          continue;
+        }
+        targetsByProfile.computeIfAbsent(selector.awsProfile(), ignored -> new ArrayList<>()).add(target);
+      }
+
+      Executor executor = targetsByProfile.size() == 1 ? Runnable::run : this.regionExecutor;
+      Map<String, CompletableFuture<Optional<Map<String, String>>>> lookups = new LinkedHashMap<>();
+      targetsByProfile.forEach((profile, targets) -> lookups.put(
+        profile,
+        CompletableFuture.supplyAsync(() -> this.lookUp(profile, targets), executor)
+      ));
+      lookups.forEach((profile, lookup) -> lookup.join().ifPresent(
+        instanceIds -> this.apply(this.gateways.get(profile), targetsByProfile.get(profile), instanceIds)
+      ));
+
+      for (MinecraftServer server : this.servers.values()) {
+        if (!velocityServerNames.contains(server.getName())) {
+          this.unregister(server, "it is no longer registered in Velocity");
+        }
+      }
+      this.cache.retainOnly(cacheKeys);
+      this.cache.saveIfDirty();
+    } finally {
+      this.discoveryInProgress.set(false);
+    }
+  }
+
+  // Instance ID per cache key of the targets that were found, empty when the profile could not be read
+  private Optional<Map<String, String>> lookUp(String profile, List<Target> targets) {
+    EC2Gateway ec2 = this.gateways.get(profile);
+    Map<String, String> instanceIds = new HashMap<>();
+    List<String> ipAddresses = new ArrayList<>();
+    Map<String, List<String>> tagValuesByKey = new HashMap<>();
+    for (Target target : targets) {
+      if (target.selector.hasInstanceId()) {
+        instanceIds.put(target.cacheKey(), target.selector.instanceId());
+      } else if (target.selector.hasTag()) {
+        tagValuesByKey.computeIfAbsent(target.selector.tagKey(), ignored -> new ArrayList<>())
+          .add(target.selector.tagValue());
+      } else {
+        ipAddresses.add(target.ipAddress);
+      }
+    }
+    try {
+      Map<String, String> byIp = ipAddresses.isEmpty() ? Map.of() : ec2.findInstanceIdsByPrivateIp(ipAddresses);
+      Map<String, Map<String, String>> byTag = new HashMap<>();
+      for (Map.Entry<String, List<String>> entry : tagValuesByKey.entrySet()) {
+        byTag.put(entry.getKey(), ec2.findInstanceIdsByTag(entry.getKey(), entry.getValue()));
+      }
+      for (Target target : targets) {
+        if (target.selector.hasInstanceId()) continue;
+        String instanceId;
+        if (target.selector.hasTag()) {
+          instanceId = byTag.get(target.selector.tagKey()).get(target.selector.tagValue());
+        } else {
+          instanceId = byIp.get(target.ipAddress);
+        }
+        if (instanceId != null) instanceIds.put(target.cacheKey(), instanceId);
+      }
+      return Optional.of(instanceIds);
+    } catch (IOException | RuntimeException e) {
+      this.logger.error("Failed to look for server AWS instance ID in profile " + profile + " because: " + e);
+      return Optional.empty();
+    }
+  }
+
+  private void apply(EC2Gateway ec2, List<Target> targets, Map<String, String> instanceIds) {
+    for (Target target : targets) {
+      String name = target.velocityServer.getServerInfo().getName();
+      MinecraftServer existing = this.servers.get(name);
+      String instanceId = instanceIds.get(target.cacheKey());
+      if (instanceId == null) {
+        this.cache.remove(target.cacheKey());
+        if (existing != null) {
+          this.unregister(existing, "its " + target.describe() + " no longer matches an AWS instance");
+        } else if (this.reportedMissingServers.add(name)) {
+          this.logger.error("Server with " + target.describe() + " does not exists on AWS, skipping");
+        }
+        continue;
+      }
+      this.reportedMissingServers.remove(name);
+      this.cache.put(target.cacheKey(), instanceId);
+      if (
+        existing != null &&
+          existing.getAWSInstanceId().equals(instanceId) &&
+          existing.getEC2Gateway() == ec2 &&
+          existing.getIP().equals(target.ipAddress)
+      ) {
+        continue;
+      }
+      this.register(target.velocityServer, ec2, instanceId);
+    }
+  }
+
+  private void register(RegisteredServer velocityServer, EC2Gateway ec2, String instanceId) {
+    MinecraftServer server = this.serverFactory.create(velocityServer, ec2, instanceId);
+    MinecraftServer previous = this.servers.put(server.getName(), server);
+    this.onAdded.accept(server);
+    if (previous != null) {
+      this.onRemoved.accept(previous);
+      this.logger.info("Server " + server.getName() + " moved from instance " + previous.getAWSInstanceId() + " to " + instanceId);
+    } else {
+      this.logger.info("Server " + server.getName() + " runs on instance " + instanceId);
+    }
+  }
+
+  private void unregister(MinecraftServer server, String reason) {
+    if (!this.servers.remove(server.getName(), server)) return;
+    this.onRemoved.accept(server);
+    this.logger.warn("Server " + server.getName() + " removed because " + reason);
+  }
+
+  private static String ipAddressOf(RegisteredServer velocityServer) {
+    return velocityServer.getServerInfo().getAddress().getHostString();
+  }
+
+  private record Target(RegisteredServer velocityServer, InstanceSelector selector, String ipAddress) {
+    private String cacheKey() {
+      return this.selector.cacheKey(this.ipAddress);
+    }
+
+    private String describe() {
+      if (this.selector.hasTag()) return "tag " + this.selector.tagKey() + "=" + this.selector.tagValue();
+      return "IP address " + this.ipAddress;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.velocitypowered.api.event.proxy.ProxyPingEvent;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import net.kyori.adventure.text.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Answers server list pings from a {@link FleetStatusSnapshot}. The snapshot is rebuilt when a server
+ * changes state, joins or leaves the fleet, or when {@link #refresh()} sees a player count change, so a
+ * ping never calls EC2, probes a server or builds strings.
+ */
+public class FleetStatusBoard implements ServerLifecycleListener {
+  private final Collection<MinecraftServer> servers;
+  private volatile PingSettings settings;
+  private volatile FleetStatusSnapshot snapshot = FleetStatusSnapshot.EMPTY;
+  private volatile Description description = null;
+
+  // The MOTD last sent, reused while the proxy MOTD, the snapshot and the settings stay the same
+  private record Description(Component base, FleetStatusSnapshot snapshot, PingSettings settings, Component value) {
+  }
+
+  public FleetStatusBoard(Collection<MinecraftServer> servers, PingSettings settings) {
+    this.servers = servers;
+    this.settings = settings;
+  }
+
+  public PingSettings getSettings() {
+    return this.settings;
+  }
+
+  public void updateSettings(PingSettings settings) {
+    this.settings = settings;
+  }
+
+  public FleetStatusSnapshot getSnapshot() {
+    return this.snapshot;
+  }
+
+  @Override
+  public void onTransition(MinecraftServer server, ServerLifecycle previous, ServerLifecycle next) {
+    this.refresh();
+  }
+
+  public synchronized void refresh() {
+    List<FleetStatusSnapshot.Entry> entries = new ArrayList<>(this.servers.size());
+    for (MinecraftServer server : this.servers) {
+      FleetStatusSnapshot.Status status = FleetStatusSnapshot.Status.of(server.getLifecycleState());
+      int players = status == FleetStatusSnapshot.Status.ONLINE ? server.getActivePlayerCount() : 0;
+      entries.add(new FleetStatusSnapshot.Entry(server.getName(), status, players));
+    }
+    entries.sort(Comparator.comparing(FleetStatusSnapshot.Entry::name));
+    if (!entries.equals(this.snapshot.getEntries())) {
+      this.snapshot = FleetStatusSnapshot.of(entries);
+    }
+  }
+
+  public void fillPing(ProxyPingEvent event) {
+    PingSettings settings = this.settings;
+    if (!settings.enabled()) return;
+    FleetStatusSnapshot snapshot = this.snapshot;
+    ServerPing ping = event.getPing();
+    ServerPing.Builder builder = ping.asBuilder();
+    event.setPing(builder
+      .description(this.descriptionOf(ping.getDescriptionComponent(), snapshot, settings))
+      .onlinePlayers(Math.max(builder.getOnlinePlayers(), snapshot.getPlayerCount()))
+      .clearSamplePlayers()
+      .samplePlayers(snapshot.getSample())
+      .build());
+  }
+
+  // Without a MOTD of its own the plugin keeps the proxy MOTD as first line, it should fit on one line
+  private Component descriptionOf(Component base, FleetStatusSnapshot snapshot, PingSettings settings) {
+    Description cached = this.description;
+    if (cached != null && cached.base() == base && cached.snapshot() == snapshot && cached.settings() == settings) {
+      return cached.value();
+    }
+    Component firstLine = settings.motd().isEmpty() && base != null ? base : Component.text(settings.motd());
+    Component value = firstLine.append(Component.newline()).append(snapshot.getSummary());
+    this.description = new Description(base, snapshot, settings, value);
+    return value;
+  }
+}
@@ -0,0 +1,88 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public class FleetStatusRefresher {
+  private final ReadinessProber prober;
+  private final PluginMetrics metrics;
+  private final Executor regionExecutor;
+  private final Logger logger;
+
+  public FleetStatusRefresher(ReadinessProber prober, PluginMetrics metrics, Executor regionExecutor, Logger logger) {
+    this.prober = prober;
+    this.metrics = metrics;
+    this.regionExecutor = regionExecutor;
+    this.logger = logger;
+  }
+
+  // Servers of a region or account whose status cannot be read are left out of this refresh
+  public void refresh(Collection<MinecraftServer> servers) {
+    if (servers.isEmpty()) return;
+    Map<EC2Gateway, List<MinecraftServer>> serversByGateway = new LinkedHashMap<>();
+    for (MinecraftServer server : servers) {
+      serversByGateway.computeIfAbsent(server.getEC2Gateway(), ignored -> new ArrayList<>()).add(server);
+    }
+    // Every region is described at the same time, so the tick lasts as long as the slowest one
+    Executor executor = serversByGateway.size() == 1 ? Runnable::run : this.regionExecutor;
+    Map<EC2Gateway, CompletableFuture<Optional<Map<String, InstanceState>>>> pending = new LinkedHashMap<>();
+    serversByGateway.forEach((gateway, gatewayServers) -> pending.put(
+      gateway,
+      CompletableFuture.supplyAsync(() -> this.describe(gateway, gatewayServers), executor)
+    ));
+    Map<String, InstanceState> states = new HashMap<>();
+    List<MinecraftServer> refreshedServers = new ArrayList<>(servers.size());
+    pending.forEach((gateway, future) -> future.join().ifPresent(gatewayStates -> {
+      states.putAll(gatewayStates);
+      refreshedServers.addAll(serversByGateway.get(gateway));
+    }));
+    if (refreshedServers.isEmpty()) return;
+    servers = refreshedServers;
+
+    List<MinecraftServer> serversToProbe = new ArrayList<>();
+    for (MinecraftServer server : servers) {
+      if (states.get(server.getAWSInstanceId()) == InstanceState.RUNNING && server.getLastHeartbeat().isEmpty()) {
+        serversToProbe.add(server);
+      }
+    }
+    long probeStartedAt = System.nanoTime();
+    Map<MinecraftServer, ProbeResult> probeResults = new HashMap<>(this.prober.probe(serversToProbe));
+    if (!serversToProbe.isEmpty()) {
+      this.metrics.recordProbe(System.nanoTime() - probeStartedAt);
+    }
+    for (MinecraftServer server : servers) {
+      if (!probeResults.containsKey(server) && server.getLastHeartbeat().isPresent()) {
+        probeResults.put(server, ProbeResult.portOpen());
+      }
+    }
+    for (MinecraftServer server : servers) {
+      server.update(
+        states.getOrDefault(server.getAWSInstanceId(), InstanceState.UNKNOWN),
+        probeResults.getOrDefault(server, ProbeResult.unreachable())
+      );
+    }
+  }
+
+  private Optional<Map<String, InstanceState>> describe(EC2Gateway ec2, List<MinecraftServer> servers) {
+    List<String> instanceIds = new ArrayList<>(servers.size());
+    for (MinecraftServer server : servers) {
+      instanceIds.add(server.getAWSInstanceId());
+    }
+    try {
+      return Optional.of(ec2.describeInstanceStates(instanceIds));
+    } catch (IOException | RuntimeException e) {
+      this.logger.error("Failed to refresh fleet instance status because: " + e);
+      return Optional.empty();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.velocitypowered.api.proxy.server.ServerPing;
+import net.kyori.adventure.text.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * What the server list shows about the fleet, built once per change so answering a ping only copies
+ * references.
+ */
+public final class FleetStatusSnapshot {
+  public static final FleetStatusSnapshot EMPTY = of(List.of());
+
+  private static final int MAX_SAMPLE_LINES = 12;
+  private static final UUID SAMPLE_ID = new UUID(0, 0);
+
+  private final List<Entry> entries;
+  private final Component summary;
+  private final ServerPing.SamplePlayer[] sample;
+  private final int playerCount;
+
+  public enum Status {
+    ASLEEP("§8asleep"),
+    BOOTING("§ebooting"),
+    ONLINE("§aonline");
+
+    private final String label;
+
+    Status(String label) {
+      this.label = label;
+    }
+
+    public static Status of(ServerLifecycleState state) {
+      return switch (state) {
+        case STOPPED, STOPPING -> ASLEEP;
+        case STARTING, BOOTING -> BOOTING;
+        case ONLINE, IDLE -> ONLINE;
+      };
+    }
+  }
+
+  // Player counts only matter for servers that are up, so a sleeping server always reports none
+  public record Entry(String name, Status status, int players) {
+  }
+
+  private FleetStatusSnapshot(List<Entry> entries, Component summary, ServerPing.SamplePlayer[] sample, int playerCount) {
+    this.entries = entries;
+    this.summary = summary;
+    this.sample = sample;
+    this.playerCount = playerCount;
+  }
+
+  public static FleetStatusSnapshot of(List<Entry> entries) {
+    int[] counts = new int[Status.values().length];
+    int playerCount = 0;
+    int sampleLines = Math.min(entries.size(), MAX_SAMPLE_LINES);
+    boolean truncated = entries.size() > sampleLines;
+    ServerPing.SamplePlayer[] sample = new ServerPing.SamplePlayer[truncated ? sampleLines + 1 : sampleLines];
+    for (int index = 0; index < entries.size(); index++) {
+      Entry entry = entries.get(index);
+      counts[entry.status().ordinal()]++;
+      playerCount += entry.players();
+      if (index < sampleLines) sample[index] = new ServerPing.SamplePlayer(describe(entry), SAMPLE_ID);
+    }
+    if (truncated) {
+      sample[sampleLines] = new ServerPing.SamplePlayer("§7... and " + (entries.size() - sampleLines) + " more", SAMPLE_ID);
+    }
+    Component summary = Component.text(
+      "§a" + counts[Status.ONLINE.ordinal()] + " online §7| §e" + counts[Status.BOOTING.ordinal()] + " booting §7| §8" +
+        counts[Status.ASLEEP.ordinal()] + " asleep"
+    );
+    return new FleetStatusSnapshot(List.copyOf(entries), summary, sample, playerCount);
+  }
+
+  public List<Entry> getEntries() {
+    return this.entries;
+  }
+
+  public Component getSummary() {
+    return this.summary;
+  }
+
+  // Shared by every ping, callers must not modify it
+  public ServerPing.SamplePlayer[] getSample() {
+    return this.sample;
+  }
+
+  public int getPlayerCount() {
+    return this.playerCount;
+  }
+
+  private static String describe(Entry entry) {
+    String line = "§f" + entry.name() + " §7- " + entry.status().label;
+    if (entry.status() != Status.ONLINE) return line;
+    return line + " §7(" + entry.players() + (entry.players() == 1 ? " player)" : " players)");
+  }
+}
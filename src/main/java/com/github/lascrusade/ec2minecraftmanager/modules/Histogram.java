@@ -0,0 +1,65 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed-bucket latency histogram, recording only touches two striped counters
+public class Histogram {
+  public static final double[] CALL_BUCKETS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+  public static final double[] BOOT_BUCKETS = { 1, 5, 10, 20, 30, 45, 60, 90, 120, 180, 300, 600 };
+
+  private final double[] upperBoundsSeconds;
+  private final long[] upperBoundsNanos;
+  private final LongAdder[] buckets;
+  private final LongAdder sumNanos = new LongAdder();
+
+  public Histogram(double[] upperBoundsSeconds) {
+    this.upperBoundsSeconds = upperBoundsSeconds.clone();
+    this.upperBoundsNanos = new long[upperBoundsSeconds.length];
+    for (int index = 0; index < upperBoundsSeconds.length; index++) {
+      this.upperBoundsNanos[index] = (long) (upperBoundsSeconds[index] * TimeUnit.SECONDS.toNanos(1));
+    }
+    this.buckets = new LongAdder[upperBoundsSeconds.length + 1];
+    for (int index = 0; index < this.buckets.length; index++) {
+      this.buckets[index] = new LongAdder();
+    }
+  }
+
+  public void record(long nanos) {
+    if (nanos < 0) nanos = 0;
+    int index = 0;
+    while (index < this.upperBoundsNanos.length && nanos > this.upperBoundsNanos[index]) {
+      index++;
+    }
+    this.buckets[index].increment();
+    this.sumNanos.add(nanos);
+  }
+
+  public long getCount() {
+    long count = 0;
+    for (LongAdder bucket : this.buckets) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  // Writes the bucket, sum and count samples, labels is either empty or a "key=\"value\"" list
+  public void writePrometheus(StringBuilder out, String name, String labels) {
+    String prefix = labels.isEmpty() ? "" : labels + ",";
+    long cumulative = 0;
+    for (int index = 0; index < this.buckets.length; index++) {
+      cumulative += this.buckets[index].sum();
+      String bound = index < this.upperBoundsSeconds.length ? formatBound(this.upperBoundsSeconds[index]) : "+Inf";
+      out.append(name).append("_bucket{").append(prefix).append("le=\"").append(bound).append("\"} ")
+        .append(cumulative).append('\n');
+    }
+    String labelSet = labels.isEmpty() ? "" : "{" + labels + "}";
+    out.append(name).append("_sum").append(labelSet).append(' ')
+      .append(this.sumNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1)).append('\n');
+    out.append(name).append("_count").append(labelSet).append(' ').append(cumulative).append('\n');
+  }
+
+  private static String formatBound(double bound) {
+    return bound == Math.rint(bound) ? String.valueOf((long) bound) : String.valueOf(bound);
+  }
+}
@@ -0,0 +1,92 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InstanceIdCache {
+  private static final int MAGIC = 0x49504944;
+  private static final int VERSION = 1;
+
+  private final Path file;
+  private final Logger logger;
+  private final Map<String, String> instanceIds = new ConcurrentHashMap<>();
+  private volatile boolean dirty = false;
+
+  public InstanceIdCache(Path file, Logger logger) {
+    this.file = file;
+    this.logger = logger;
+  }
+
+  public Optional<String> instanceIdOf(String ipAddress) {
+    return Optional.ofNullable(this.instanceIds.get(ipAddress));
+  }
+
+  public void put(String ipAddress, String instanceId) {
+    if (!instanceId.equals(this.instanceIds.put(ipAddress, instanceId))) {
+      this.dirty = true;
+    }
+  }
+
+  public void remove(String ipAddress) {
+    if (this.instanceIds.remove(ipAddress) != null) {
+      this.dirty = true;
+    }
+  }
+
+  public void retainOnly(Collection<String> ipAddresses) {
+    if (this.instanceIds.keySet().retainAll(new HashSet<>(ipAddresses))) {
+      this.dirty = true;
+    }
+  }
+
+  public void load() {
+    if (!Files.exists(this.file)) return;
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.file)))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        this.logger.warn("Instance ID cache file " + this.file + " has an unknown format, ignoring it");
+        return;
+      }
+      int entryCount = input.readInt();
+      for (int index = 0; index < entryCount; index++) {
+        String ipAddress = input.readUTF();
+        this.instanceIds.put(ipAddress, input.readUTF());
+      }
+    } catch (IOException e) {
+      this.logger.error("Failed to load instance ID cache because: " + e);
+    }
+  }
+
+  public void saveIfDirty() {
+    if (!this.dirty) return;
+    this.dirty = false;
+    Path temporaryFile = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(this.file.getParent());
+      try (DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temporaryFile))
+      )) {
+        Map<String, String> snapshot = Map.copyOf(this.instanceIds);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(snapshot.size());
+        for (Map.Entry<String, String> entry : snapshot.entrySet()) {
+          output.writeUTF(entry.getKey());
+          output.writeUTF(entry.getValue());
+        }
+      }
+      Files.move(temporaryFile, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      this.dirty = true;
+      this.logger.error("Failed to save instance ID cache because: " + e);
+    }
+  }
+}
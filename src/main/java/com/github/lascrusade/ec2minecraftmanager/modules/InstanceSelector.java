@@ -0,0 +1,56 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.moandjiezana.toml.Toml;
+import org.slf4j.Logger;
+
+/**
+ * How a Velocity server is matched to its EC2 instance within its AWS profile: a fixed instance ID, a
+ * {@code Key=Value} tag, or by default the private IP address Velocity connects to.
+ */
+public record InstanceSelector(String awsProfile, String instanceId, String tagKey, String tagValue) {
+
+  public boolean hasInstanceId() {
+    return !this.instanceId.isEmpty();
+  }
+
+  public boolean hasTag() {
+    return !this.tagKey.isEmpty();
+  }
+
+  // Identifies the lookup result in the instance ID cache, IPs only mean something within a profile
+  public String cacheKey(String ipAddress) {
+    if (this.hasInstanceId()) return this.awsProfile + "/id:" + this.instanceId;
+    if (this.hasTag()) return this.awsProfile + "/tag:" + this.tagKey + "=" + this.tagValue;
+    return this.awsProfile + "/ip:" + ipAddress;
+  }
+
+  public static InstanceSelector fromConfig(String name, Toml config, Logger logger) {
+    Toml serverConfig = null;
+    Toml serversConfig = config.getTable("servers");
+    if (serversConfig != null) {
+      serverConfig = serversConfig.getTable(name);
+    }
+    if (serverConfig == null) {
+      serverConfig = new Toml();
+    }
+
+    String awsProfile = serverConfig.getString("awsProfile", AwsProfile.DEFAULT_PROFILE).trim();
+    if (awsProfile.isEmpty()) {
+      awsProfile = AwsProfile.DEFAULT_PROFILE;
+    }
+    String instanceId = serverConfig.getString("instanceId", "").trim();
+    String tagKey = "";
+    String tagValue = "";
+    String instanceTag = serverConfig.getString("instanceTag", "").trim();
+    if (!instanceTag.isEmpty()) {
+      int separator = instanceTag.indexOf('=');
+      if (separator <= 0) {
+        logger.warn("Server " + name + " instance tag " + instanceTag + " is not Key=Value, matching by private IP instead");
+      } else {
+        tagKey = instanceTag.substring(0, separator).trim();
+        tagValue = instanceTag.substring(separator + 1).trim();
+      }
+    }
+    return new InstanceSelector(awsProfile, instanceId, tagKey, tagValue);
+  }
+}
@@ -0,0 +1,29 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+public enum InstanceState {
+  PENDING("pending"),
+  RUNNING("running"),
+  SHUTTING_DOWN("shutting-down"),
+  TERMINATED("terminated"),
+  STOPPING("stopping"),
+  STOPPED("stopped"),
+  UNKNOWN("unknown");
+
+  private final String awsName;
+
+  InstanceState(String awsName) {
+    this.awsName = awsName;
+  }
+
+  public String getAWSName() {
+    return this.awsName;
+  }
+
+  public static InstanceState fromAWSName(String name) {
+    if (name == null) return UNKNOWN;
+    for (InstanceState state : values()) {
+      if (state.awsName.equals(name.trim())) return state;
+    }
+    return UNKNOWN;
+  }
+}
@@ -0,0 +1,113 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+public class InstrumentedEC2Gateway implements EC2Gateway {
+  private final EC2Gateway delegate;
+  private final PluginMetrics metrics;
+  private final MonotonicClock clock;
+
+  public InstrumentedEC2Gateway(EC2Gateway delegate, PluginMetrics metrics, MonotonicClock clock) {
+    this.delegate = delegate;
+    this.metrics = metrics;
+    this.clock = clock;
+  }
+
+  @Override
+  public Map<String, String> findInstanceIdsByPrivateIp(Collection<String> privateIpAddresses) throws IOException {
+    long startedAt = this.clock.nanoTime();
+    try {
+      return this.delegate.findInstanceIdsByPrivateIp(privateIpAddresses);
+    } catch (IOException | RuntimeException e) {
+      this.recordError("DescribeInstances", e);
+      throw e;
+    } finally {
+      this.metrics.recordEC2Call("DescribeInstances", this.clock.nanoTime() - startedAt);
+    }
+  }
+
+  @Override
+  public Map<String, String> findInstanceIdsByTag(String tagKey, Collection<String> tagValues) throws IOException {
+    long startedAt = this.clock.nanoTime();
+    try {
+      return this.delegate.findInstanceIdsByTag(tagKey, tagValues);
+    } catch (IOException | RuntimeException e) {
+      this.recordError("DescribeInstances", e);
+      throw e;
+    } finally {
+      this.metrics.recordEC2Call("DescribeInstances", this.clock.nanoTime() - startedAt);
+    }
+  }
+
+  @Override
+  public InstanceState describeInstanceState(String instanceId) throws IOException {
+    long startedAt = this.clock.nanoTime();
+    try {
+      return this.delegate.describeInstanceState(instanceId);
+    } catch (IOException | RuntimeException e) {
+      this.recordError("DescribeInstanceStatus", e);
+      throw e;
+    } finally {
+      this.metrics.recordEC2Call("DescribeInstanceStatus", this.clock.nanoTime() - startedAt);
+    }
+  }
+
+  @Override
+  public Map<String, InstanceState> describeInstanceStates(Collection<String> instanceIds) throws IOException {
+    long startedAt = this.clock.nanoTime();
+    try {
+      return this.delegate.describeInstanceStates(instanceIds);
+    } catch (IOException | RuntimeException e) {
+      this.recordError("DescribeInstanceStatus", e);
+      throw e;
+    } finally {
+      this.metrics.recordEC2Call("DescribeInstanceStatus", this.clock.nanoTime() - startedAt);
+    }
+  }
+
+  @Override
+  public void startInstance(String instanceId) throws IOException {
+    long startedAt = this.clock.nanoTime();
+    try {
+      this.delegate.startInstance(instanceId);
+    } catch (IOException | RuntimeException e) {
+      this.recordError("StartInstances", e);
+      throw e;
+    } finally {
+      this.metrics.recordEC2Call("StartInstances", this.clock.nanoTime() - startedAt);
+    }
+  }
+
+  @Override
+  public void stopInstance(String instanceId) throws IOException {
+    long startedAt = this.clock.nanoTime();
+    try {
+      this.delegate.stopInstance(instanceId);
+    } catch (IOException | RuntimeException e) {
+      this.recordError("StopInstances", e);
+      throw e;
+    } finally {
+      this.metrics.recordEC2Call("StopInstances", this.clock.nanoTime() - startedAt);
+    }
+  }
+
+  @Override
+  public void hibernateInstance(String instanceId) throws IOException {
+    long startedAt = this.clock.nanoTime();
+    try {
+      this.delegate.hibernateInstance(instanceId);
+    } catch (IOException | RuntimeException e) {
+      this.recordError("StopInstances", e);
+      throw e;
+    } finally {
+      this.metrics.recordEC2Call("StopInstances", this.clock.nanoTime() - startedAt);
+    }
+  }
+
+  private void recordError(String action, Exception e) {
+    String errorCode = e instanceof EC2Exception ec2Exception ? ec2Exception.getErrorCode() : e.getClass().getSimpleName();
+    this.metrics.recordEC2Error(action, errorCode == null ? "Unknown" : errorCode);
+  }
+}
@@ -0,0 +1,33 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The configured values the settings found out of range or unknown and replaced by their default. At
+ * startup they are only logged so the plugin still starts with a broken config, a reload that found any
+ * is rejected as a whole and the previous valid config stays.
+ */
+public final class InvalidConfigValues {
+  private final List<String> messages = new ArrayList<>();
+
+  public void add(String message) {
+    this.messages.add(message);
+  }
+
+  public boolean isEmpty() {
+    return this.messages.isEmpty();
+  }
+
+  public List<String> getMessages() {
+    return List.copyOf(this.messages);
+  }
+
+  public void warnDefaults(Logger logger) {
+    for (String message : this.messages) {
+      logger.warn(message);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+
+public class JoinHistory {
+  public static final int BUCKET_MINUTES = 15;
+  public static final int BUCKETS_PER_DAY = 24 * 60 / BUCKET_MINUTES;
+  public static final int BUCKETS_PER_WEEK = 7 * BUCKETS_PER_DAY;
+
+  private static final double WEEKLY_DECAY = 0.7;
+
+  private final float[] weights = new float[BUCKETS_PER_WEEK];
+  private final int[] lastUpdatedWeek = new int[BUCKETS_PER_WEEK];
+
+  public synchronized void record(ZonedDateTime time) {
+    int bucket = bucketOf(time);
+    int week = weekOf(time);
+    this.weights[bucket] = (float) (this.decayedWeight(bucket, week) + 1.0);
+    this.lastUpdatedWeek[bucket] = week;
+  }
+
+  // Expected joins in the bucket containing the given time, based on the decayed weekly history
+  public synchronized double expectedJoins(ZonedDateTime time) {
+    int bucket = bucketOf(time);
+    return this.decayedWeight(bucket, weekOf(time)) * (1.0 - WEEKLY_DECAY);
+  }
+
+  public synchronized void write(DataOutput output) throws IOException {
+    for (int bucket = 0; bucket < BUCKETS_PER_WEEK; bucket++) {
+      output.writeFloat(this.weights[bucket]);
+      output.writeInt(this.lastUpdatedWeek[bucket]);
+    }
+  }
+
+  public synchronized void read(DataInput input) throws IOException {
+    for (int bucket = 0; bucket < BUCKETS_PER_WEEK; bucket++) {
+      this.weights[bucket] = input.readFloat();
+      this.lastUpdatedWeek[bucket] = input.readInt();
+    }
+  }
+
+  public static ZonedDateTime bucketEnd(ZonedDateTime time) {
+    int minute = (time.getMinute() / BUCKET_MINUTES + 1) * BUCKET_MINUTES;
+    return time.withMinute(0).withSecond(0).withNano(0).plusMinutes(minute);
+  }
+
+  private double decayedWeight(int bucket, int week) {
+    int elapsedWeeks = Math.max(0, week - this.lastUpdatedWeek[bucket]);
+    return this.weights[bucket] * Math.pow(WEEKLY_DECAY, elapsedWeeks);
+  }
+
+  private static int bucketOf(ZonedDateTime time) {
+    int day = time.getDayOfWeek().getValue() - 1;
+    return day * BUCKETS_PER_DAY + time.getHour() * (60 / BUCKET_MINUTES) + time.getMinute() / BUCKET_MINUTES;
+  }
+
+  private static int weekOf(ZonedDateTime time) {
+    return (int) Math.floorDiv(time.toLocalDate().toEpochDay() + 3, 7);
+  }
+}
@@ -0,0 +1,77 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class JoinHistoryStore {
+  private static final int MAGIC = 0x4A4F494E;
+  private static final int VERSION = 1;
+
+  private final Path file;
+  private final Logger logger;
+  private final Map<String, JoinHistory> histories = new ConcurrentHashMap<>();
+  private volatile boolean dirty = false;
+
+  public JoinHistoryStore(Path file, Logger logger) {
+    this.file = file;
+    this.logger = logger;
+  }
+
+  public JoinHistory historyOf(String serverName) {
+    return this.histories.computeIfAbsent(serverName, name -> new JoinHistory());
+  }
+
+  public void markDirty() {
+    this.dirty = true;
+  }
+
+  public void load() {
+    if (!Files.exists(this.file)) return;
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.file)))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        this.logger.warn("Join history file " + this.file + " has an unknown format, ignoring it");
+        return;
+      }
+      int serverCount = input.readInt();
+      for (int index = 0; index < serverCount; index++) {
+        String name = input.readUTF();
+        JoinHistory history = new JoinHistory();
+        history.read(input);
+        this.histories.put(name, history);
+      }
+    } catch (IOException e) {
+      this.logger.error("Failed to load join history because: " + e);
+    }
+  }
+
+  public void saveIfDirty() {
+    if (!this.dirty) return;
+    this.dirty = false;
+    Path temporaryFile = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(this.file.getParent());
+      try (DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temporaryFile))
+      )) {
+        Map<String, JoinHistory> snapshot = Map.copyOf(this.histories);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(snapshot.size());
+        for (Map.Entry<String, JoinHistory> entry : snapshot.entrySet()) {
+          output.writeUTF(entry.getKey());
+          entry.getValue().write(output);
+        }
+      }
+      Files.move(temporaryFile, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      this.dirty = true;
+      this.logger.error("Failed to save join history because: " + e);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Daily time range, optionally limited to some days, such as "18:00-23:00" or "Sat,Sun 10:00-02:00".
+ * A range ending before it starts runs past midnight and belongs to the day it starts on.
+ */
+public record KeepAliveWindow(Set<DayOfWeek> days, LocalTime from, LocalTime to) {
+
+  public boolean contains(ZonedDateTime dateTime) {
+    LocalTime time = dateTime.toLocalTime();
+    DayOfWeek day = dateTime.getDayOfWeek();
+    if (!this.from.isAfter(this.to)) {
+      return this.days.contains(day) && !time.isBefore(this.from) && time.isBefore(this.to);
+    }
+    if (!time.isBefore(this.from)) return this.days.contains(day);
+    return time.isBefore(this.to) && this.days.contains(day.minus(1));
+  }
+
+  public static KeepAliveWindow parse(String value) {
+    String trimmed = value.trim();
+    Set<DayOfWeek> days = EnumSet.allOf(DayOfWeek.class);
+    int space = trimmed.indexOf(' ');
+    if (space > 0) {
+      days = EnumSet.noneOf(DayOfWeek.class);
+      for (String dayName : trimmed.substring(0, space).split(",")) {
+        days.add(parseDay(dayName.trim(), value));
+      }
+      trimmed = trimmed.substring(space + 1).trim();
+    }
+    String[] range = trimmed.split("-");
+    if (range.length != 2) {
+      throw new IllegalArgumentException("Keep alive window " + value + " is not like \"Sat,Sun 18:00-23:00\"");
+    }
+    try {
+      return new KeepAliveWindow(days, LocalTime.parse(range[0].trim()), LocalTime.parse(range[1].trim()));
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Keep alive window " + value + " has an invalid time: " + e.getMessage());
+    }
+  }
+
+  private static DayOfWeek parseDay(String dayName, String value) {
+    String prefix = dayName.toUpperCase(Locale.ROOT);
+    for (DayOfWeek day : DayOfWeek.values()) {
+      if (prefix.length() >= 3 && day.name().startsWith(prefix)) return day;
+    }
+    throw new IllegalArgumentException("Keep alive window " + value + " has an unknown day " + dayName);
+  }
+}
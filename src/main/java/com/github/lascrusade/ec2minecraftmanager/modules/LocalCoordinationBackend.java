@@ -0,0 +1,60 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory stand-in used with a single proxy. Several coordinators sharing one instance behave like
+ * proxies sharing a real backend, which is how the coordination is exercised without one.
+ */
+public class LocalCoordinationBackend implements CoordinationBackend {
+  private final Clock clock;
+  private final Map<String, PlayerCounts> playerCounts = new HashMap<>();
+  private final Map<String, Lease> leases = new HashMap<>();
+
+  public LocalCoordinationBackend(Clock clock) {
+    this.clock = clock;
+  }
+
+  @Override
+  public synchronized void publishPlayerCounts(String proxyId, Map<String, Integer> playerCounts, long ttlMillis) {
+    if (playerCounts.isEmpty()) {
+      this.playerCounts.remove(proxyId);
+    } else {
+      this.playerCounts.put(proxyId, new PlayerCounts(Map.copyOf(playerCounts), this.clock.millis() + ttlMillis));
+    }
+  }
+
+  @Override
+  public synchronized Map<String, Map<String, Integer>> readPlayerCounts() {
+    long now = this.clock.millis();
+    this.playerCounts.values().removeIf(counts -> counts.expiresAtMillis() <= now);
+    Map<String, Map<String, Integer>> output = new HashMap<>();
+    this.playerCounts.forEach((proxyId, counts) -> output.put(proxyId, counts.counts()));
+    return output;
+  }
+
+  @Override
+  public synchronized boolean tryAcquireLease(String name, String owner, long ttlMillis) {
+    long now = this.clock.millis();
+    Lease lease = this.leases.get(name);
+    if (lease != null && lease.expiresAtMillis() > now && !lease.owner().equals(owner)) return false;
+    this.leases.put(name, new Lease(owner, now + ttlMillis));
+    return true;
+  }
+
+  @Override
+  public synchronized void releaseLease(String name, String owner) {
+    Lease lease = this.leases.get(name);
+    if (lease != null && lease.owner().equals(owner)) {
+      this.leases.remove(name);
+    }
+  }
+
+  private record PlayerCounts(Map<String, Integer> counts, long expiresAtMillis) {
+  }
+
+  private record Lease(String owner, long expiresAtMillis) {
+  }
+}
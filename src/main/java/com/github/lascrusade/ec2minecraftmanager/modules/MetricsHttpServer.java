@@ -0,0 +1,73 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class MetricsHttpServer {
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final PluginMetrics metrics;
+  private final Logger logger;
+
+  private MetricsHttpServer(HttpServer server, ExecutorService executor, PluginMetrics metrics, Logger logger) {
+    this.server = server;
+    this.executor = executor;
+    this.metrics = metrics;
+    this.logger = logger;
+  }
+
+  public static Optional<MetricsHttpServer> start(MetricsSettings settings, PluginMetrics metrics, Logger logger) {
+    if (!settings.enabled()) return Optional.empty();
+    HttpServer server;
+    try {
+      server = HttpServer.create(new InetSocketAddress(settings.host(), settings.port()), 0);
+    } catch (IOException e) {
+      logger.error("Cannot start metrics endpoint on " + settings.host() + ":" + settings.port() + " because: " + e);
+      return Optional.empty();
+    }
+    ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, "ec2minecraftmanager-metrics");
+      thread.setDaemon(true);
+      return thread;
+    });
+    MetricsHttpServer metricsServer = new MetricsHttpServer(server, executor, metrics, logger);
+    server.createContext("/metrics", metricsServer::handle);
+    server.setExecutor(executor);
+    server.start();
+    logger.info("Metrics endpoint listening on http://" + settings.host() + ":" + settings.port() + "/metrics");
+    return Optional.of(metricsServer);
+  }
+
+  public void stop() {
+    this.server.stop(0);
+    this.executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      byte[] body = this.metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    } catch (IOException | RuntimeException e) {
+      this.logger.warn("Metrics request failed because: " + e);
+    }
+  }
+}
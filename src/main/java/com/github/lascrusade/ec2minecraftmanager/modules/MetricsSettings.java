@@ -0,0 +1,27 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.moandjiezana.toml.Toml;
+
+public record MetricsSettings(boolean enabled, String host, int port) {
+  private static final String DEFAULT_HOST = "127.0.0.1";
+  private static final int DEFAULT_PORT = 9225;
+
+  public static MetricsSettings fromConfig(Toml config, InvalidConfigValues invalidValues) {
+    Toml metricsConfig = config.getTable("metrics");
+    if (metricsConfig == null) {
+      metricsConfig = new Toml();
+    }
+    boolean enabled = metricsConfig.getBoolean("enabled", false);
+    String host = metricsConfig.getString("host", DEFAULT_HOST).trim();
+    if (host.isEmpty()) {
+      invalidValues.add("Metrics host invalid, set the default host to " + DEFAULT_HOST);
+      host = DEFAULT_HOST;
+    }
+    long port = metricsConfig.getLong("port", (long) DEFAULT_PORT);
+    if (port <= 0 || port > 65535) {
+      invalidValues.add("Metrics port invalid, set the default port to " + DEFAULT_PORT);
+      port = DEFAULT_PORT;
+    }
+    return new MetricsSettings(enabled, host, (int) port);
+  }
+}
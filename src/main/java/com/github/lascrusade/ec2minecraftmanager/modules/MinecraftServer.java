@@ -5,36 +5,84 @@ import com.velocitypowered.api.proxy.server.RegisteredServer;
 import org.slf4j.Logger;
 
 import java.io.IOException;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.net.SocketAddress;
-import java.util.Date;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class MinecraftServer {
+  private static final Duration START_WAIT_POLL_INTERVAL = Duration.ofSeconds(5);
+  private static final int START_WAIT_MAX_ATTEMPTS = 40;
+  private static final int STOP_WAIT_MAX_ATTEMPTS = 60;
+  private static final Set<String> HIBERNATION_UNSUPPORTED_ERRORS = Set.of(
+    "UnsupportedHibernationConfiguration",
+    "UnsupportedOperation"
+  );
+
   private final String instanceId;
-  private final long idleTimeout;
-  private final String entryPermission;
+  private volatile ServerSettings settings;
   private final Logger logger;
   private final RegisteredServer velocityInstance;
+  private final EC2Gateway ec2;
+  private final Executor executor;
+  private final MonotonicClock clock;
+  private final ShutdownPolicy shutdownPolicy;
+  private final AtomicReference<ServerLifecycle> lifecycle;
+  private final AtomicReference<CompletableFuture<Void>> pendingStart = new AtomicReference<>();
+  private final List<ServerLifecycleListener> lifecycleListeners = new CopyOnWriteArrayList<>();
 
-  private Date lastInactivityTime = null;
-  private boolean running = false;
-  private boolean started = false;
+  private volatile ServerStatusSnapshot statusSnapshot = null;
+  private volatile BackendHeartbeat lastHeartbeat = null;
+  private volatile boolean heldOnline = false;
+  private volatile StopMode lastStopMode = StopMode.STOP;
+  private volatile OptionalLong keepWarmNoticeSinceNanos = OptionalLong.empty();
+  private volatile ServerOperationGuard operationGuard = ServerOperationGuard.NONE;
+  private volatile Sleeper sleeper = Sleeper.SYSTEM;
+  private volatile int remotePlayerCount = 0;
+  private volatile boolean restored = false;
+  private volatile ShutdownDecision lastReportedDecision = null;
+  private volatile OptionalLong lastReportedDecisionSinceNanos = OptionalLong.empty();
 
 
   public MinecraftServer(
     String instanceId,
-    long idleTimeout,
-    String entryPermission,
+    ServerSettings settings,
     RegisteredServer velocityServerInstance,
+    EC2Gateway ec2,
+    Executor executor,
+    MonotonicClock clock,
+    Logger logger
+  ) {
+    this(instanceId, settings, velocityServerInstance, ec2, executor, clock, Clock.systemDefaultZone(), logger);
+  }
+
+  public MinecraftServer(
+    String instanceId,
+    ServerSettings settings,
+    RegisteredServer velocityServerInstance,
+    EC2Gateway ec2,
+    Executor executor,
+    MonotonicClock clock,
+    Clock wallClock,
     Logger logger
   ) {
     this.instanceId = instanceId;
-    this.idleTimeout = idleTimeout;
-    this.entryPermission = entryPermission;
+    this.settings = settings;
     this.logger = logger;
     this.velocityInstance = velocityServerInstance;
+    this.ec2 = ec2;
+    this.executor = executor;
+    this.clock = clock;
+    this.shutdownPolicy = new ShutdownPolicy(wallClock);
+    this.lifecycle = new AtomicReference<>(ServerLifecycle.enter(ServerLifecycleState.STOPPED, clock.nanoTime()));
   }
 
   public String getName() {
@@ -54,29 +102,150 @@ public class MinecraftServer {
   }
 
   public String getEntryPermissionName() {
-    return this.entryPermission;
+    return this.settings.entryPermission();
+  }
+
+  public EC2Gateway getEC2Gateway() {
+    return this.ec2;
+  }
+
+  public RegisteredServer getVelocityServer() {
+    return this.velocityInstance;
+  }
+
+  public ServerSettings getSettings() {
+    return this.settings;
+  }
+
+  public void updateSettings(ServerSettings settings) {
+    this.settings = settings;
+  }
+
+
+  public void addLifecycleListener(ServerLifecycleListener listener) {
+    this.lifecycleListeners.add(listener);
+  }
+
+  public void setOperationGuard(ServerOperationGuard operationGuard) {
+    this.operationGuard = operationGuard;
+  }
+
+  public void setSleeper(Sleeper sleeper) {
+    this.sleeper = sleeper;
+  }
+
+  public void setRemotePlayerCount(int remotePlayerCount) {
+    this.remotePlayerCount = remotePlayerCount;
+  }
+
+  public int getRemotePlayerCount() {
+    return this.remotePlayerCount;
+  }
+
+  public void holdOnline(boolean held) {
+    this.heldOnline = held;
+  }
+
+  public boolean isHeldOnline() {
+    return this.heldOnline;
+  }
+
+  public StopMode getLastStopMode() {
+    return this.lastStopMode;
+  }
+
+  public double getPlayerActivity() {
+    return this.shutdownPolicy.getPlayerActivity();
+  }
+
+  public ShutdownPolicy.Timers getShutdownTimers() {
+    return this.shutdownPolicy.getTimers();
   }
 
+  // Puts back the state saved before a proxy restart, only before anything else moved the lifecycle.
+  // Listeners are not told, the restored state is what they saw last time; the next poll checks it
+  public boolean restore(ServerLifecycle lifecycle, ShutdownPolicy.Timers timers) {
+    ServerLifecycle initial = this.lifecycle.get();
+    if (initial.state() != ServerLifecycleState.STOPPED || this.pendingStart.get() != null) return false;
+    if (!this.lifecycle.compareAndSet(initial, lifecycle)) return false;
+    this.shutdownPolicy.restore(timers, this.clock.nanoTime());
+    this.restored = true;
+    this.logger.info("Server " + this.getName() + " restored as " + lifecycle.state());
+    return true;
+  }
+
+  public boolean isRestored() {
+    return this.restored;
+  }
+
+  public ServerLifecycle getLifecycle() {
+    return this.lifecycle.get();
+  }
+
+  public ServerLifecycleState getLifecycleState() {
+    return this.lifecycle.get().state();
+  }
 
   public boolean isInstanceTurnedOn() {
-    return this.started;
+    return this.getLifecycleState().isInstanceRunning();
+  }
+
+  public boolean isStarting() {
+    return this.getLifecycleState() == ServerLifecycleState.STARTING;
+  }
+
+  public boolean isStopping() {
+    return this.getLifecycleState() == ServerLifecycleState.STOPPING;
   }
 
   public boolean isOnline() {
-    return this.running;
+    return this.getLifecycleState().isReady();
   }
 
   public int getPlayerCount() {
     return this.velocityInstance.getPlayersConnected().size();
   }
 
+  // Players of this proxy and of the other coordinated proxies, or what the backend reports if higher
+  public int getActivePlayerCount() {
+    int playerCount = this.getPlayerCount() + this.remotePlayerCount;
+    return this.getLastHeartbeat().map(heartbeat -> Math.max(playerCount, heartbeat.playerCount())).orElse(playerCount);
+  }
+
+  public Optional<BackendHeartbeat> getLastHeartbeat() {
+    BackendHeartbeat heartbeat = this.lastHeartbeat;
+    if (heartbeat == null) return Optional.empty();
+    long maxAgeNanos = TimeUnit.SECONDS.toNanos(this.settings.heartbeatTimeoutSeconds());
+    if (!heartbeat.isFresh(this.clock.nanoTime(), maxAgeNanos)) return Optional.empty();
+    return Optional.of(heartbeat);
+  }
+
+  public Optional<ServerStatusSnapshot> getStatusSnapshot() {
+    ServerStatusSnapshot snapshot = this.statusSnapshot;
+    if (snapshot == null) return Optional.empty();
+    long ttlNanos = TimeUnit.SECONDS.toNanos(this.settings.statusCacheTtlSeconds());
+    if (!snapshot.isFresh(this.clock.nanoTime(), ttlNanos)) return Optional.empty();
+    return Optional.of(snapshot);
+  }
+
+  public long getLatencyMillis() {
+    return this.getStatusSnapshot().map(ServerStatusSnapshot::latencyMillis).orElse(-1L);
+  }
+
+  public int getReportedPlayerCount() {
+    return this.getStatusSnapshot().map(ServerStatusSnapshot::onlinePlayers).orElse(-1);
+  }
 
-  public void update() {
+
+  public void update(InstanceState instanceState, ProbeResult probeResult) {
     try {
-      this.updateStartedStatus();
-      this.updateRunningStatus();
-      this.updateInactivityTime();
-      if (this.isIdleForTooLong()) {
+      this.updateStatusSnapshot(instanceState, probeResult);
+      int playerCount = this.getActivePlayerCount();
+      ServerLifecycle current = this.observe(instanceState, probeResult.reachable(), playerCount);
+      if (current.state().isInstanceRunning()) {
+        this.shutdownPolicy.recordPlayers(playerCount, this.clock.nanoTime(), this.settings);
+      }
+      if (this.isIdleForTooLong(current)) {
         this.stop();
       }
     } catch (Exception e) {
@@ -84,95 +253,375 @@ public class MinecraftServer {
     }
   }
 
-  private void updateStartedStatus() throws RuntimeException, IOException {
-    String result = String.join(
-      " ",
-      Utilities.runBash(
-        "aws ec2 describe-instance-status" +
-          " --instance-ids=" + this.instanceId +
-          " --query=InstanceStatuses[0].InstanceState.Name" +
-          " --output=text"
-      )
-    );
-    this.started = result.equals("running");
+  public void onBackendReady() {
+    this.observeBackend(true, this.getActivePlayerCount());
   }
 
-  private void updateRunningStatus() throws RuntimeException {
-    if (!this.started) {
-      this.running = false;
-      return;
+  public void onBackendHeartbeat(int playerCount, float tps) {
+    if (!this.getLifecycleState().isInstanceRunning()) return;
+    this.lastHeartbeat = new BackendHeartbeat(playerCount, tps, this.clock.nanoTime());
+    this.observeBackend(true, this.getActivePlayerCount());
+  }
+
+  public void onBackendShuttingDown() {
+    this.lastHeartbeat = null;
+    this.statusSnapshot = null;
+    this.observeBackend(false, this.getPlayerCount());
+  }
+
+  private void updateStatusSnapshot(InstanceState instanceState, ProbeResult probeResult) {
+    if (instanceState == InstanceState.UNKNOWN) return;
+    if (instanceState != InstanceState.RUNNING || !probeResult.reachable()) {
+      this.statusSnapshot = null;
+      this.lastHeartbeat = null;
+    } else if (probeResult.status() != null) {
+      this.statusSnapshot = probeResult.status();
     }
-    String ip = this.getIP();
-    int port = this.getPort();
-    SocketAddress sockaddr = new InetSocketAddress(ip, port);
-    Socket socket = null;
-    try {
-      socket = new Socket();
-      socket.connect(sockaddr, 2000);
-      this.running = true;
-    } catch (IOException stex) {
-      this.running = false;
-    } finally {
-      if (socket != null) {
-        try {
-          socket.close();
-        } catch (IOException e) {
-          throw new RuntimeException("Cannot close MC server socket", e);
-        }
+  }
+
+  private ServerLifecycle observe(InstanceState instanceState, boolean reachable, int playerCount) {
+    return this.observe(instanceState, reachable, playerCount, false);
+  }
+
+  // Backend messages can arrive after the poll saw the instance stop, only the running states take them
+  private ServerLifecycle observeBackend(boolean reachable, int playerCount) {
+    return this.observe(InstanceState.RUNNING, reachable, playerCount, true);
+  }
+
+  private ServerLifecycle observe(InstanceState instanceState, boolean reachable, int playerCount, boolean fromBackend) {
+    while (true) {
+      ServerLifecycle current = this.lifecycle.get();
+      if (fromBackend && !current.state().isInstanceRunning()) return current;
+      long now = this.clock.nanoTime();
+      boolean startInFlight = this.pendingStart.get() != null;
+      ServerLifecycle next = nextLifecycle(current, instanceState, reachable, playerCount, startInFlight, now);
+      if (next == current) return current;
+      if (!current.state().canTransitionTo(next.state())) {
+        this.logger.warn(
+          "Server " + this.getName() + " rejected transition " + current.state() + " -> " + next.state()
+        );
+        return current;
+      }
+      if (this.lifecycle.compareAndSet(current, next)) {
+        this.logTransition(current, next);
+        return next;
+      }
+    }
+  }
+
+  private static ServerLifecycle nextLifecycle(
+    ServerLifecycle current,
+    InstanceState instanceState,
+    boolean reachable,
+    int playerCount,
+    boolean startInFlight,
+    long now
+  ) {
+    // No answer about the instance is no evidence it changed, the next poll decides
+    if (instanceState == InstanceState.UNKNOWN) return current;
+    ServerLifecycleState state = current.state();
+    if (state == ServerLifecycleState.STARTING && instanceState != InstanceState.RUNNING) {
+      // Without a start of our own in flight, a STARTING entered from an observed pending instance
+      // must not outlive that instance falling back to stopped
+      boolean settled = instanceState == InstanceState.STOPPED || instanceState == InstanceState.TERMINATED;
+      return startInFlight || !settled ? current : ServerLifecycle.enter(ServerLifecycleState.STOPPED, now);
+    }
+    if (state == ServerLifecycleState.STOPPING) {
+      // A pending instance here means the stop completed and something started it again
+      if (instanceState == InstanceState.STOPPED || instanceState == InstanceState.TERMINATED ||
+        instanceState == InstanceState.PENDING) {
+        return ServerLifecycle.enter(ServerLifecycleState.STOPPED, now);
       }
+      return current;
+    }
+    if (instanceState == InstanceState.STOPPING) {
+      return ServerLifecycle.enter(ServerLifecycleState.STOPPING, now);
+    }
+    if (instanceState == InstanceState.PENDING) {
+      if (state == ServerLifecycleState.STOPPED) {
+        return ServerLifecycle.enter(ServerLifecycleState.STARTING, now);
+      }
+      reachable = false;
+    } else if (instanceState != InstanceState.RUNNING) {
+      return state == ServerLifecycleState.STOPPED ? current : ServerLifecycle.enter(ServerLifecycleState.STOPPED, now);
+    }
+
+    ServerLifecycleState nextState;
+    if (!reachable) {
+      nextState = ServerLifecycleState.BOOTING;
+    } else if (playerCount > 0) {
+      nextState = ServerLifecycleState.ONLINE;
+    } else {
+      nextState = ServerLifecycleState.IDLE;
+    }
+    long inactiveSince = current.isCountingInactivity() ? current.inactiveSinceNanos() : now;
+    if (playerCount > 0) inactiveSince = now;
+    if (nextState == state && inactiveSince == current.inactiveSinceNanos()) {
+      return current;
+    }
+    long enteredAt = nextState == state ? current.enteredAtNanos() : now;
+    return new ServerLifecycle(nextState, enteredAt, inactiveSince);
+  }
+
+  private boolean isIdleForTooLong(ServerLifecycle current) {
+    if (this.heldOnline || !current.isCountingInactivity()) return false;
+    ServerSettings settings = this.settings;
+    long now = this.clock.nanoTime();
+    long inactiveFor = TimeUnit.NANOSECONDS.toSeconds(current.inactiveForNanos(now));
+    if (inactiveFor <= settings.idleTimeout()) return false;
+    ShutdownDecision decision = this.shutdownPolicy.decide(settings, inactiveFor, now);
+    if (decision.stop() || decision.rule() != ShutdownRule.IDLE_TIMEOUT) {
+      this.reportShutdownDecision(current, decision);
+    }
+    if (decision.stop()) return true;
+    OptionalLong inactiveSince = OptionalLong.of(current.inactiveSinceNanos());
+    if (decision.rule() == ShutdownRule.IDLE_TIMEOUT && !inactiveSince.equals(this.keepWarmNoticeSinceNanos)) {
+      this.keepWarmNoticeSinceNanos = inactiveSince;
+      this.logger.info(
+        "Server " + this.getName() + " idle for " + inactiveFor + "s, keeping it warm for " +
+          settings.keepWarmMinutes() + " more minutes"
+      );
     }
+    return false;
   }
 
-  private void updateInactivityTime() {
-    if (this.getPlayerCount() > 0 || (!this.running && !this.started)) {
-      this.lastInactivityTime = null;
-    } else if (this.lastInactivityTime == null) {
-      this.lastInactivityTime = new Date();
+  // Reported once per idle period and outcome, so a rule holding the server is counted once
+  private void reportShutdownDecision(ServerLifecycle current, ShutdownDecision decision) {
+    ShutdownDecision last = this.lastReportedDecision;
+    OptionalLong inactiveSince = OptionalLong.of(current.inactiveSinceNanos());
+    if (last != null && inactiveSince.equals(this.lastReportedDecisionSinceNanos) &&
+      last.rule() == decision.rule() && last.stop() == decision.stop()) {
+      return;
     }
+    this.lastReportedDecision = decision;
+    this.lastReportedDecisionSinceNanos = inactiveSince;
+    String required = decision.requiredIdleSeconds() == ShutdownRule.NEVER ?
+      "until the rule lifts" : decision.requiredIdleSeconds() + "s";
+    this.logger.info(
+      "Server " + this.getName() + " idle for " + decision.inactiveForSeconds() + "s, " +
+        (decision.stop() ? "stopping" : "kept running") + " by rule " + decision.rule().getConfigName() +
+        " (required idle " + required + ")"
+    );
+    for (ServerLifecycleListener listener : this.lifecycleListeners) {
+      try {
+        listener.onShutdownDecision(this, decision);
+      } catch (RuntimeException e) {
+        this.logger.error("Server " + this.getName() + " lifecycle listener failed because: " + e);
+      }
+    }
+  }
+
+  private boolean transition(ServerLifecycle expected, ServerLifecycleState nextState) {
+    if (!expected.state().canTransitionTo(nextState)) return false;
+    ServerLifecycle next = ServerLifecycle.enter(nextState, this.clock.nanoTime());
+    if (!this.lifecycle.compareAndSet(expected, next)) return false;
+    this.logTransition(expected, next);
+    return true;
   }
 
-  private boolean isIdleForTooLong() {
-    if (this.lastInactivityTime == null) return false;
-    long inactivityTimeDiff = ((new Date()).getTime() - this.lastInactivityTime.getTime()) / 1000;
-    return inactivityTimeDiff > this.idleTimeout;
+  private void logTransition(ServerLifecycle previous, ServerLifecycle next) {
+    if (previous.state() == next.state()) return;
+    this.logger.info("Server " + this.getName() + " " + previous.state() + " -> " + next.state());
+    this.shutdownPolicy.onTransition(previous, next, this.settings);
+    for (ServerLifecycleListener listener : this.lifecycleListeners) {
+      try {
+        listener.onTransition(this, previous, next);
+      } catch (RuntimeException e) {
+        this.logger.error("Server " + this.getName() + " lifecycle listener failed because: " + e);
+      }
+    }
   }
 
 
-  public void start() {
-    if (this.started) {
-      this.logger.info("Instance already started");
+  public CompletableFuture<Void> start() {
+    while (true) {
+      CompletableFuture<Void> inFlight = this.pendingStart.get();
+      if (inFlight != null) {
+        return inFlight;
+      }
+      ServerLifecycle current = this.lifecycle.get();
+      if (current.state() == ServerLifecycleState.STOPPING) {
+        CompletableFuture<Void> resumeFuture = new CompletableFuture<>();
+        if (!this.pendingStart.compareAndSet(null, resumeFuture)) continue;
+        this.logger.info("Instance is shutting down, start queued until it has stopped");
+        this.executor.execute(() -> this.runStartAfterStop(resumeFuture));
+        return resumeFuture;
+      }
+      if (current.state() != ServerLifecycleState.STOPPED) {
+        this.logger.info("Instance already started");
+        return CompletableFuture.completedFuture(null);
+      }
+      CompletableFuture<Void> startFuture = new CompletableFuture<>();
+      if (!this.pendingStart.compareAndSet(null, startFuture)) continue;
+      if (!this.transition(current, ServerLifecycleState.STARTING)) {
+        this.pendingStart.compareAndSet(startFuture, null);
+        continue;
+      }
+      this.executor.execute(() -> this.runStart(startFuture));
+      return startFuture;
+    }
+  }
+
+  private void runStartAfterStop(CompletableFuture<Void> startFuture) {
+    try {
+      this.ec2.waitForInstanceState(
+        this.instanceId,
+        InstanceState.STOPPED,
+        START_WAIT_POLL_INTERVAL,
+        STOP_WAIT_MAX_ATTEMPTS
+      );
+    } catch (IOException | RuntimeException e) {
+      this.logger.error("Failed to wait for server instance to stop because: " + e);
+      this.pendingStart.compareAndSet(startFuture, null);
+      startFuture.completeExceptionally(e);
+      return;
+    }
+    ServerLifecycle current = this.observe(InstanceState.STOPPED, false, 0);
+    if (current.state() != ServerLifecycleState.STOPPED || !this.transition(current, ServerLifecycleState.STARTING)) {
+      this.logger.info("Server " + this.getName() + " changed state while stopping, queued start skipped");
+      this.pendingStart.compareAndSet(startFuture, null);
+      startFuture.complete(null);
       return;
     }
+    this.runStart(startFuture);
+  }
+
+  private void runStart(CompletableFuture<Void> startFuture) {
     try {
-      this.logger.info("Starting instance");
-      Utilities.runBash(
-        "aws ec2 start-instances --instance-ids=" + this.instanceId +
-          "; aws ec2 wait instance-running --instance-ids=" + this.instanceId
+      this.logger.info("Starting instance " + this.instanceId);
+      this.startInstance();
+      this.ec2.waitForInstanceState(
+        this.instanceId,
+        InstanceState.RUNNING,
+        START_WAIT_POLL_INTERVAL,
+        START_WAIT_MAX_ATTEMPTS
       );
-      this.started = true;
+      ServerLifecycle current = this.lifecycle.get();
+      if (current.state() == ServerLifecycleState.STARTING) {
+        this.transition(current, ServerLifecycleState.BOOTING);
+      }
+      startFuture.complete(null);
     } catch (IOException | RuntimeException e) {
       this.logger.error("Failed to start server instance because: " + e);
+      ServerLifecycle current = this.lifecycle.get();
+      if (current.state() == ServerLifecycleState.STARTING) {
+        this.transition(current, ServerLifecycleState.STOPPED);
+      }
+      startFuture.completeExceptionally(e);
+    } finally {
+      this.pendingStart.compareAndSet(startFuture, null);
     }
   }
 
 
   public void stop() {
-    if (!this.started) {
+    ServerLifecycle current = this.lifecycle.get();
+    if (current.state() == ServerLifecycleState.STOPPED || current.state() == ServerLifecycleState.STOPPING) {
       this.logger.info("Instance already shutted down");
       return;
     }
+    if (current.state() != ServerLifecycleState.IDLE && current.state() != ServerLifecycleState.BOOTING) {
+      this.logger.warn("Rejected shutting down server " + this.getName() + " while " + current.state());
+      return;
+    }
+    ServerOperationGuard guard = this.operationGuard;
+    if (!guard.tryAcquire(this, ServerOperationGuard.Operation.STOP)) return;
+    boolean transitioned = false;
     try {
+      // Another proxy may have acted on the instance since it was last polled
+      if (guard != ServerOperationGuard.NONE) {
+        InstanceState instanceState = this.ec2.describeInstanceState(this.instanceId);
+        if (instanceState != InstanceState.RUNNING) {
+          this.logger.info("Server " + this.getName() + " instance is " + instanceState.getAWSName() + ", shut down skipped");
+          return;
+        }
+      }
+      if (!this.transition(current, ServerLifecycleState.STOPPING)) {
+        this.logger.warn("Server " + this.getName() + " changed state, shut down skipped");
+        return;
+      }
+      transitioned = true;
       this.logger.info("Shutting down instance");
-      Utilities.runBash("aws ec2 stop-instances --instance-ids=" + this.instanceId);
-      this.started = false;
-      this.running = false;
+      this.lastStopMode = this.stopInstance();
+      this.statusSnapshot = null;
     } catch (IOException | RuntimeException e) {
       this.logger.error("Failed to shut down server because: " + e);
+      ServerLifecycle stopping = this.lifecycle.get();
+      if (transitioned && stopping.state() == ServerLifecycleState.STOPPING) {
+        this.transition(stopping, current.state());
+      }
+    } finally {
+      guard.release(this, ServerOperationGuard.Operation.STOP);
+    }
+  }
+
+
+  // Under coordination the start is issued only by the lease holder and only if the instance is still
+  // stopped, a proxy that cannot get the lease waits until another one has started the instance. The
+  // lease is short, so a stop still running is waited for before taking it, never while holding it
+  private void startInstance() throws IOException {
+    ServerOperationGuard guard = this.operationGuard;
+    if (guard == ServerOperationGuard.NONE) {
+      this.ec2.startInstance(this.instanceId);
+      return;
+    }
+    for (int attempt = 1; ; attempt++) {
+      InstanceState instanceState = this.ec2.describeInstanceState(this.instanceId);
+      if (instanceState == InstanceState.PENDING || instanceState == InstanceState.RUNNING) {
+        this.logger.info("Server " + this.getName() + " instance started by another proxy");
+        return;
+      }
+      if (instanceState != InstanceState.STOPPING && guard.tryAcquire(this, ServerOperationGuard.Operation.START)) {
+        try {
+          instanceState = this.ec2.describeInstanceState(this.instanceId);
+          if (instanceState == InstanceState.PENDING || instanceState == InstanceState.RUNNING) {
+            this.logger.info("Server " + this.getName() + " instance already " + instanceState.getAWSName());
+            return;
+          }
+          if (instanceState != InstanceState.STOPPING) {
+            this.ec2.startInstance(this.instanceId);
+            return;
+          }
+        } finally {
+          guard.release(this, ServerOperationGuard.Operation.START);
+        }
+      }
+      if (attempt >= START_WAIT_MAX_ATTEMPTS + STOP_WAIT_MAX_ATTEMPTS) {
+        throw new IOException(
+          "Server " + this.getName() + (instanceState == InstanceState.STOPPING
+            ? " instance still stopping"
+            : " lease still held by another proxy")
+        );
+      }
+      try {
+        this.sleeper.sleep(START_WAIT_POLL_INTERVAL.toNanos());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting to start server " + this.getName(), e);
+      }
+    }
+  }
+
+
+  private StopMode stopInstance() throws IOException {
+    if (this.settings.stopMode() != StopMode.HIBERNATE) {
+      this.ec2.stopInstance(this.instanceId);
+      return StopMode.STOP;
+    }
+    try {
+      this.ec2.hibernateInstance(this.instanceId);
+      return StopMode.HIBERNATE;
+    } catch (EC2Exception e) {
+      if (!HIBERNATION_UNSUPPORTED_ERRORS.contains(e.getErrorCode())) throw e;
+      this.logger.warn("Server " + this.getName() + " cannot hibernate, stopping instead because: " + e);
+      this.ec2.stopInstance(this.instanceId);
+      return StopMode.STOP;
     }
   }
 
 
   public boolean allowPlayer(Player player) {
-    return !Objects.equals(this.entryPermission, "") || player.hasPermission(this.entryPermission);
+    String entryPermission = this.settings.entryPermission();
+    return !Objects.equals(entryPermission, "") || player.hasPermission(entryPermission);
   }
 }
@@ -0,0 +1,8 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+@FunctionalInterface
+public interface MonotonicClock {
+  MonotonicClock SYSTEM = System::nanoTime;
+
+  long nanoTime();
+}
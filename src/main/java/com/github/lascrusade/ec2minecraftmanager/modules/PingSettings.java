@@ -0,0 +1,20 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.moandjiezana.toml.Toml;
+
+public record PingSettings(boolean enabled, String motd) {
+
+  public static PingSettings fromConfig(Toml config, InvalidConfigValues invalidValues) {
+    Toml pingConfig = config.getTable("ping");
+    if (pingConfig == null) {
+      pingConfig = new Toml();
+    }
+    boolean enabled = pingConfig.getBoolean("enabled", true);
+    String motd = pingConfig.getString("motd", "").trim();
+    if (motd.contains("\n")) {
+      invalidValues.add("Ping MOTD must be a single line, keeping only its first line");
+      motd = motd.substring(0, motd.indexOf('\n')).trim();
+    }
+    return new PingSettings(enabled, motd);
+  }
+}
@@ -34,4 +34,34 @@ public record PlayerEventNotifier(Logger logger) {
     player.sendMessage(Component.text("§7Please wait for §640 secs §7for server to start"));
   }
 
+  public void serverShuttingDown(Player player, String serverName) {
+    player.sendMessage(Component.text("§7Server §6" + serverName + " §7is shutting down, it will start again right after"));
+  }
+
+  public void queuedForServer(Player player, String serverName, int position) {
+    player.sendMessage(Component.text(
+      "§7You are §6#" + position + " §7in the queue for §6" + serverName + "§7, you will be moved once it is ready"
+    ));
+  }
+
+  public void queueProgress(Player player, String serverName, int position, int size, long elapsedSeconds) {
+    player.sendActionBar(Component.text(String.format(
+      "§7Queue for §6%s§7: §6%d/%d §7- starting for §6%d:%02d",
+      serverName,
+      position,
+      size,
+      elapsedSeconds / 60,
+      elapsedSeconds % 60
+    )));
+  }
+
+  public void queueTransfer(Player player, String serverName) {
+    player.sendMessage(Component.text("§7Server §2" + serverName + " §7is ready, moving you..."));
+  }
+
+  public void queueTimedOut(Player player, String serverName) {
+    this.logger.warn("Player " + player.getUsername() + " waited too long for server " + serverName + ", left the queue");
+    player.sendMessage(Component.text("§4Server §c" + serverName + " §4took too long to start, please try again later"));
+  }
+
 }
@@ -0,0 +1,337 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+public class PluginMetrics implements ServerLifecycleListener {
+  private static final String PREFIX = "ec2mm_";
+
+  // Keyed by name, a server moved to another instance keeps its series
+  private final Map<String, ServerMetrics> serverMetrics = new ConcurrentHashMap<>();
+  private final Map<String, CallMetrics> ec2Calls = new ConcurrentHashMap<>();
+  private final Map<String, BreakerMetrics> circuitBreakers = new ConcurrentHashMap<>();
+  private final Histogram tickDuration = new Histogram(Histogram.CALL_BUCKETS);
+  private final Histogram probeDuration = new Histogram(Histogram.CALL_BUCKETS);
+  private final Map<DeniedConnect, LongAdder> deniedConnects = new EnumMap<>(DeniedConnect.class);
+  private final LongAdder queuedConnects = new LongAdder();
+  private final Map<ShutdownRule, LongAdder> shutdownStops = new EnumMap<>(ShutdownRule.class);
+  private final Map<ShutdownRule, LongAdder> shutdownHolds = new EnumMap<>(ShutdownRule.class);
+
+  private volatile Collection<MinecraftServer> servers = List.of();
+  private volatile ToIntFunction<MinecraftServer> queueDepth = server -> 0;
+  private volatile PrewarmStats prewarmStats = null;
+
+  public enum DeniedConnect {
+    UNKNOWN_SERVER,
+    UNCONFIGURED_SERVER,
+    PERMISSION,
+    NOT_READY
+  }
+
+  public PluginMetrics() {
+    for (DeniedConnect reason : DeniedConnect.values()) {
+      this.deniedConnects.put(reason, new LongAdder());
+    }
+    for (ShutdownRule rule : ShutdownRule.values()) {
+      this.shutdownStops.put(rule, new LongAdder());
+      this.shutdownHolds.put(rule, new LongAdder());
+    }
+  }
+
+  public void bindFleet(
+    Collection<MinecraftServer> servers,
+    ToIntFunction<MinecraftServer> queueDepth,
+    PrewarmStats prewarmStats
+  ) {
+    this.servers = servers;
+    this.queueDepth = queueDepth;
+    this.prewarmStats = prewarmStats;
+    for (MinecraftServer server : servers) {
+      this.serverMetrics.computeIfAbsent(server.getName(), ServerMetrics::new);
+    }
+  }
+
+  public void removeServer(MinecraftServer server) {
+    this.serverMetrics.remove(server.getName());
+  }
+
+  public void recordEC2Call(String action, long nanos) {
+    this.ec2Calls.computeIfAbsent(action, CallMetrics::new).latency.record(nanos);
+  }
+
+  public void recordEC2Error(String action, String errorCode) {
+    this.ec2Calls.computeIfAbsent(action, CallMetrics::new).errors
+      .computeIfAbsent(errorCode, ignored -> new LongAdder())
+      .increment();
+  }
+
+  public void recordEC2Retry(String action) {
+    this.ec2Calls.computeIfAbsent(action, CallMetrics::new).retries.increment();
+  }
+
+  public void recordEC2Coalesced(String action) {
+    this.ec2Calls.computeIfAbsent(action, CallMetrics::new).coalesced.increment();
+  }
+
+  public void bindCircuitBreaker(String gateway, CircuitBreaker breaker) {
+    this.circuitBreakers.put(gateway, new BreakerMetrics(gateway, breaker));
+  }
+
+  public void recordEC2CircuitOpened(String gateway) {
+    BreakerMetrics metrics = this.circuitBreakers.get(gateway);
+    if (metrics != null) metrics.opens.increment();
+  }
+
+  public void recordEC2Rejected(String gateway) {
+    BreakerMetrics metrics = this.circuitBreakers.get(gateway);
+    if (metrics != null) metrics.rejected.increment();
+  }
+
+  public void recordEC2StaleRead(String gateway) {
+    BreakerMetrics metrics = this.circuitBreakers.get(gateway);
+    if (metrics != null) metrics.staleReads.increment();
+  }
+
+  public void recordTick(long nanos) {
+    this.tickDuration.record(nanos);
+  }
+
+  public void recordProbe(long nanos) {
+    this.probeDuration.record(nanos);
+  }
+
+  public void recordDeniedConnect(DeniedConnect reason) {
+    this.deniedConnects.get(reason).increment();
+  }
+
+  public void recordQueuedConnect() {
+    this.queuedConnects.increment();
+  }
+
+  // The time must come from the clock the servers enter their states with
+  public void recordPlayerJoined(MinecraftServer server, long nowNanos) {
+    ServerMetrics metrics = this.serverMetrics.get(server.getName());
+    if (metrics == null || !metrics.awaitingFirstJoin) return;
+    OptionalLong startRequestedAtNanos = metrics.startRequestedAtNanos;
+    OptionalLong portOpenAtNanos = metrics.portOpenAtNanos;
+    if (startRequestedAtNanos.isEmpty() || portOpenAtNanos.isEmpty()) return;
+    metrics.awaitingFirstJoin = false;
+    metrics.portOpenToFirstJoin.record(nowNanos - portOpenAtNanos.getAsLong());
+    metrics.startToFirstJoin.record(nowNanos - startRequestedAtNanos.getAsLong());
+  }
+
+  public long getShutdownDecisions(ShutdownRule rule, boolean stop) {
+    return (stop ? this.shutdownStops : this.shutdownHolds).get(rule).sum();
+  }
+
+  @Override
+  public void onShutdownDecision(MinecraftServer server, ShutdownDecision decision) {
+    (decision.stop() ? this.shutdownStops : this.shutdownHolds).get(decision.rule()).increment();
+  }
+
+  @Override
+  public void onTransition(MinecraftServer server, ServerLifecycle previous, ServerLifecycle next) {
+    ServerMetrics metrics = this.serverMetrics.computeIfAbsent(server.getName(), ServerMetrics::new);
+    ServerLifecycleState state = next.state();
+    long now = next.enteredAtNanos();
+    if (state == ServerLifecycleState.STARTING) {
+      metrics.startRequestedAtNanos = OptionalLong.of(now);
+      metrics.runningAtNanos = OptionalLong.empty();
+      metrics.portOpenAtNanos = OptionalLong.empty();
+      metrics.awaitingFirstJoin = true;
+      return;
+    }
+    if (!state.isInstanceRunning()) {
+      metrics.startRequestedAtNanos = OptionalLong.empty();
+      metrics.awaitingFirstJoin = false;
+      return;
+    }
+    // Only a start seen from its request is timed, not an instance found running
+    OptionalLong startRequestedAtNanos = metrics.startRequestedAtNanos;
+    if (startRequestedAtNanos.isEmpty()) return;
+    OptionalLong runningAtNanos = metrics.runningAtNanos;
+    if (runningAtNanos.isEmpty()) {
+      runningAtNanos = OptionalLong.of(now);
+      metrics.runningAtNanos = runningAtNanos;
+      metrics.startToRunning.record(now - startRequestedAtNanos.getAsLong());
+    }
+    if (state.isReady() && metrics.portOpenAtNanos.isEmpty()) {
+      metrics.portOpenAtNanos = OptionalLong.of(now);
+      metrics.runningToPortOpen.record(now - runningAtNanos.getAsLong());
+    }
+  }
+
+  public String toPrometheusText() {
+    StringBuilder out = new StringBuilder(8192);
+
+    header(out, "start_to_running_seconds", "Time from start request until EC2 reports the instance running", "histogram");
+    for (ServerMetrics metrics : this.serverMetrics.values()) {
+      metrics.startToRunning.writePrometheus(out, PREFIX + "start_to_running_seconds", metrics.labels);
+    }
+    header(out, "running_to_port_open_seconds", "Time from instance running until the server answers", "histogram");
+    for (ServerMetrics metrics : this.serverMetrics.values()) {
+      metrics.runningToPortOpen.writePrometheus(out, PREFIX + "running_to_port_open_seconds", metrics.labels);
+    }
+    header(out, "port_open_to_first_join_seconds", "Time from server ready until the first player joins", "histogram");
+    for (ServerMetrics metrics : this.serverMetrics.values()) {
+      metrics.portOpenToFirstJoin.writePrometheus(out, PREFIX + "port_open_to_first_join_seconds", metrics.labels);
+    }
+    header(out, "start_to_first_join_seconds", "Time from start request until the first player joins", "histogram");
+    for (ServerMetrics metrics : this.serverMetrics.values()) {
+      metrics.startToFirstJoin.writePrometheus(out, PREFIX + "start_to_first_join_seconds", metrics.labels);
+    }
+
+    header(out, "ec2_call_seconds", "EC2 API call latency", "histogram");
+    for (CallMetrics metrics : this.ec2Calls.values()) {
+      metrics.latency.writePrometheus(out, PREFIX + "ec2_call_seconds", metrics.labels);
+    }
+    header(out, "ec2_call_errors_total", "Failed EC2 API calls", "counter");
+    for (CallMetrics metrics : this.ec2Calls.values()) {
+      for (Map.Entry<String, LongAdder> error : metrics.errors.entrySet()) {
+        sample(out, "ec2_call_errors_total", metrics.labels + ",code=\"" + escape(error.getKey()) + "\"", error.getValue().sum());
+      }
+    }
+    header(out, "ec2_call_retries_total", "EC2 API calls retried after throttling or a transient error", "counter");
+    for (CallMetrics metrics : this.ec2Calls.values()) {
+      sample(out, "ec2_call_retries_total", metrics.labels, metrics.retries.sum());
+    }
+    header(out, "ec2_call_coalesced_total", "EC2 API reads answered by an identical read already running", "counter");
+    for (CallMetrics metrics : this.ec2Calls.values()) {
+      sample(out, "ec2_call_coalesced_total", metrics.labels, metrics.coalesced.sum());
+    }
+    header(out, "ec2_circuit_state", "Current state of the EC2 circuit breaker", "gauge");
+    for (BreakerMetrics metrics : this.circuitBreakers.values()) {
+      CircuitBreaker.State current = metrics.breaker.getState();
+      for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+        String labels = metrics.labels + ",state=\"" + state.name().toLowerCase() + "\"";
+        sample(out, "ec2_circuit_state", labels, state == current ? 1 : 0);
+      }
+    }
+    header(out, "ec2_circuit_opens_total", "Times the EC2 circuit breaker opened", "counter");
+    for (BreakerMetrics metrics : this.circuitBreakers.values()) {
+      sample(out, "ec2_circuit_opens_total", metrics.labels, metrics.opens.sum());
+    }
+    header(out, "ec2_circuit_rejected_total", "EC2 API calls failed fast while the circuit breaker was open", "counter");
+    for (BreakerMetrics metrics : this.circuitBreakers.values()) {
+      sample(out, "ec2_circuit_rejected_total", metrics.labels, metrics.rejected.sum());
+    }
+    header(out, "ec2_circuit_stale_reads_total", "Instance state reads answered with the last known states", "counter");
+    for (BreakerMetrics metrics : this.circuitBreakers.values()) {
+      sample(out, "ec2_circuit_stale_reads_total", metrics.labels, metrics.staleReads.sum());
+    }
+
+    header(out, "tick_seconds", "Duration of a polling tick", "histogram");
+    this.tickDuration.writePrometheus(out, PREFIX + "tick_seconds", "");
+    header(out, "probe_seconds", "Duration of a readiness probe round", "histogram");
+    this.probeDuration.writePrometheus(out, PREFIX + "probe_seconds", "");
+
+    header(out, "denied_connects_total", "Server connects denied by the plugin", "counter");
+    for (Map.Entry<DeniedConnect, LongAdder> denied : this.deniedConnects.entrySet()) {
+      sample(out, "denied_connects_total", "reason=\"" + denied.getKey().name().toLowerCase() + "\"", denied.getValue().sum());
+    }
+    header(out, "queued_connects_total", "Server connects held in the waiting queue", "counter");
+    sample(out, "queued_connects_total", "", this.queuedConnects.sum());
+
+    header(out, "shutdown_decisions_total", "Idle shutdown decisions by the rule that fired", "counter");
+    for (ShutdownRule rule : ShutdownRule.values()) {
+      String labels = "rule=\"" + rule.getConfigName() + "\"";
+      sample(out, "shutdown_decisions_total", labels + ",decision=\"stop\"", this.shutdownStops.get(rule).sum());
+      sample(out, "shutdown_decisions_total", labels + ",decision=\"hold\"", this.shutdownHolds.get(rule).sum());
+    }
+
+    ToIntFunction<MinecraftServer> queueDepth = this.queueDepth;
+    header(out, "queue_depth", "Players waiting for the server to be ready", "gauge");
+    for (MinecraftServer server : this.servers) {
+      sample(out, "queue_depth", serverLabel(server), queueDepth.applyAsInt(server));
+    }
+    header(out, "server_state", "Current lifecycle state of the server", "gauge");
+    for (MinecraftServer server : this.servers) {
+      ServerLifecycleState current = server.getLifecycleState();
+      for (ServerLifecycleState state : ServerLifecycleState.values()) {
+        String labels = serverLabel(server) + ",state=\"" + state.name().toLowerCase() + "\"";
+        sample(out, "server_state", labels, state == current ? 1 : 0);
+      }
+    }
+
+    PrewarmStats prewarmStats = this.prewarmStats;
+    if (prewarmStats != null) {
+      header(out, "prewarm_starts_total", "Instances started ahead of predicted demand", "counter");
+      sample(out, "prewarm_starts_total", "", prewarmStats.getPrewarmStarts());
+      header(out, "prewarm_hits_total", "Joins on a pre-warmed server", "counter");
+      sample(out, "prewarm_hits_total", "", prewarmStats.getHits());
+      header(out, "prewarm_misses_total", "Joins that hit a stopped server", "counter");
+      sample(out, "prewarm_misses_total", "", prewarmStats.getMisses());
+    }
+    return out.toString();
+  }
+
+  private static void header(StringBuilder out, String name, String help, String type) {
+    out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void sample(StringBuilder out, String name, String labels, long value) {
+    out.append(PREFIX).append(name);
+    if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+    out.append(' ').append(value).append('\n');
+  }
+
+  private static String serverLabel(MinecraftServer server) {
+    return serverLabel(server.getName());
+  }
+
+  private static String serverLabel(String serverName) {
+    return "server=\"" + escape(serverName) + "\"";
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static class ServerMetrics {
+    private final String labels;
+    private final Histogram startToRunning = new Histogram(Histogram.BOOT_BUCKETS);
+    private final Histogram runningToPortOpen = new Histogram(Histogram.BOOT_BUCKETS);
+    private final Histogram portOpenToFirstJoin = new Histogram(Histogram.BOOT_BUCKETS);
+    private final Histogram startToFirstJoin = new Histogram(Histogram.BOOT_BUCKETS);
+    private volatile OptionalLong startRequestedAtNanos = OptionalLong.empty();
+    private volatile OptionalLong runningAtNanos = OptionalLong.empty();
+    private volatile OptionalLong portOpenAtNanos = OptionalLong.empty();
+    private volatile boolean awaitingFirstJoin;
+
+    private ServerMetrics(String serverName) {
+      this.labels = serverLabel(serverName);
+    }
+  }
+
+  private static class CallMetrics {
+    private final String labels;
+    private final Histogram latency = new Histogram(Histogram.CALL_BUCKETS);
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    private CallMetrics(String action) {
+      this.labels = "action=\"" + escape(action) + "\"";
+    }
+  }
+
+  private static class BreakerMetrics {
+    private final String labels;
+    private final CircuitBreaker breaker;
+    private final LongAdder opens = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder staleReads = new LongAdder();
+
+    private BreakerMetrics(String gateway, CircuitBreaker breaker) {
+      this.labels = "gateway=\"" + escape(gateway) + "\"";
+      this.breaker = breaker;
+    }
+  }
+}
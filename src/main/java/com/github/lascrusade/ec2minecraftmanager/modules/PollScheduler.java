@@ -0,0 +1,76 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.util.*;
+
+public class PollScheduler implements ServerLifecycleListener {
+  private PollingSettings settings;
+  private final MonotonicClock clock;
+  private final PriorityQueue<ScheduledPoll> queue =
+    new PriorityQueue<>(Comparator.comparingLong(ScheduledPoll::dueAtNanos));
+  private final Map<MinecraftServer, ScheduledPoll> scheduledPolls = new HashMap<>();
+
+  public PollScheduler(PollingSettings settings, MonotonicClock clock) {
+    this.settings = settings;
+    this.clock = clock;
+  }
+
+  public synchronized PollingSettings getSettings() {
+    return this.settings;
+  }
+
+  // Already scheduled polls keep their due time, the new intervals apply from their next poll
+  public synchronized void updateSettings(PollingSettings settings) {
+    this.settings = settings;
+  }
+
+  public synchronized void scheduleNow(MinecraftServer server) {
+    this.scheduleAt(server, this.clock.nanoTime());
+  }
+
+  public synchronized void scheduleNext(MinecraftServer server) {
+    long interval = this.settings.intervalNanos(server.getLifecycleState());
+    this.scheduleAt(server, this.clock.nanoTime() + interval);
+  }
+
+  public synchronized void remove(MinecraftServer server) {
+    this.scheduledPolls.remove(server);
+  }
+
+  public synchronized List<MinecraftServer> drainDue() {
+    long now = this.clock.nanoTime();
+    List<MinecraftServer> dueServers = new ArrayList<>();
+    while (!this.queue.isEmpty() && this.queue.peek().dueAtNanos() - now <= 0) {
+      ScheduledPoll poll = this.queue.poll();
+      if (this.scheduledPolls.get(poll.server()) != poll) continue;
+      this.scheduledPolls.remove(poll.server());
+      dueServers.add(poll.server());
+    }
+    return dueServers;
+  }
+
+  public synchronized OptionalLong nextDueNanos() {
+    while (!this.queue.isEmpty() && this.scheduledPolls.get(this.queue.peek().server()) != this.queue.peek()) {
+      this.queue.poll();
+    }
+    return this.queue.isEmpty() ? OptionalLong.empty() : OptionalLong.of(this.queue.peek().dueAtNanos());
+  }
+
+  @Override
+  public synchronized void onTransition(MinecraftServer server, ServerLifecycle previous, ServerLifecycle next) {
+    ScheduledPoll scheduled = this.scheduledPolls.get(server);
+    if (scheduled == null) return;
+    long dueAt = this.clock.nanoTime() + this.settings.intervalNanos(next.state());
+    if (dueAt - scheduled.dueAtNanos() < 0) {
+      this.scheduleAt(server, dueAt);
+    }
+  }
+
+  private void scheduleAt(MinecraftServer server, long dueAtNanos) {
+    ScheduledPoll poll = new ScheduledPoll(server, dueAtNanos);
+    this.scheduledPolls.put(server, poll);
+    this.queue.add(poll);
+  }
+
+  private record ScheduledPoll(MinecraftServer server, long dueAtNanos) {
+  }
+}
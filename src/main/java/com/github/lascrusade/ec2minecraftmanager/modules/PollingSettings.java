@@ -0,0 +1,43 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.moandjiezana.toml.Toml;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public record PollingSettings(Map<ServerLifecycleState, Long> intervalSeconds) {
+  private static final Map<ServerLifecycleState, Long> DEFAULT_INTERVALS = Map.of(
+    ServerLifecycleState.STOPPED, 300L,
+    ServerLifecycleState.STARTING, 5L,
+    ServerLifecycleState.BOOTING, 5L,
+    ServerLifecycleState.ONLINE, 30L,
+    ServerLifecycleState.IDLE, 30L,
+    ServerLifecycleState.STOPPING, 10L
+  );
+
+  public long intervalNanos(ServerLifecycleState state) {
+    return TimeUnit.SECONDS.toNanos(this.intervalSeconds.get(state));
+  }
+
+  public static PollingSettings fromConfig(Toml config, InvalidConfigValues invalidValues) {
+    Toml pollingConfig = config.getTable("polling");
+    if (pollingConfig == null) {
+      pollingConfig = new Toml();
+    }
+    Map<ServerLifecycleState, Long> intervals = new EnumMap<>(ServerLifecycleState.class);
+    for (ServerLifecycleState state : ServerLifecycleState.values()) {
+      String key = state.name().toLowerCase();
+      long defaultInterval = DEFAULT_INTERVALS.get(state);
+      long interval = pollingConfig.getLong(key, defaultInterval);
+      if (interval <= 0) {
+        invalidValues.add(
+          "Polling interval for " + key + " servers invalid, set the default to " + defaultInterval + " seconds"
+        );
+        interval = defaultInterval;
+      }
+      intervals.put(state, interval);
+    }
+    return new PollingSettings(intervals);
+  }
+}
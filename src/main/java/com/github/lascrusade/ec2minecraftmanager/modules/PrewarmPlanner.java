@@ -0,0 +1,169 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import org.slf4j.Logger;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PrewarmPlanner implements ServerLifecycleListener {
+  private static final double COLD_START_SMOOTHING = 0.2;
+
+  private final JoinHistoryStore historyStore;
+  private final PrewarmStats stats = new PrewarmStats();
+  private final Clock wallClock;
+  private final MonotonicClock clock;
+  private final Logger logger;
+  private final Map<MinecraftServer, PrewarmWindow> windows = new ConcurrentHashMap<>();
+  private final Map<MinecraftServer, Long> startRequestedAt = new ConcurrentHashMap<>();
+  private final Map<MinecraftServer, Long> budgetUsedNanos = new ConcurrentHashMap<>();
+
+  private volatile LocalDate budgetDay;
+  private volatile long averageColdStartNanos = Duration.ofMinutes(1).toNanos();
+  private volatile long lastPlanNanos;
+
+  public PrewarmPlanner(JoinHistoryStore historyStore, Clock wallClock, MonotonicClock clock, Logger logger) {
+    this.historyStore = historyStore;
+    this.wallClock = wallClock;
+    this.clock = clock;
+    this.logger = logger;
+    this.budgetDay = LocalDate.now(wallClock);
+    this.lastPlanNanos = clock.nanoTime();
+  }
+
+  public PrewarmStats getStats() {
+    return this.stats;
+  }
+
+  public boolean isPrewarmed(MinecraftServer server) {
+    return this.windows.containsKey(server);
+  }
+
+  public void recordConnectAttempt(MinecraftServer server) {
+    this.historyStore.historyOf(server.getName()).record(ZonedDateTime.now(this.wallClock));
+    this.historyStore.markDirty();
+
+    ServerLifecycleState state = server.getLifecycleState();
+    PrewarmWindow window = this.windows.get(server);
+    if (state.isReady() && window != null) {
+      window.joins.incrementAndGet();
+      this.stats.recordHit(this.averageColdStartNanos);
+    } else if (state == ServerLifecycleState.STOPPED) {
+      this.stats.recordMiss();
+    }
+  }
+
+  public void plan(Collection<MinecraftServer> servers) {
+    long now = this.clock.nanoTime();
+    long elapsedNanos = Math.max(0, now - this.lastPlanNanos);
+    this.lastPlanNanos = now;
+    ZonedDateTime wallNow = ZonedDateTime.now(this.wallClock);
+    if (!wallNow.toLocalDate().equals(this.budgetDay)) {
+      this.budgetDay = wallNow.toLocalDate();
+      this.budgetUsedNanos.clear();
+    }
+
+    for (Map.Entry<MinecraftServer, PrewarmWindow> entry : this.windows.entrySet()) {
+      MinecraftServer server = entry.getKey();
+      PrewarmWindow window = entry.getValue();
+      if (server.getLifecycleState().isInstanceRunning() && server.getActivePlayerCount() == 0) {
+        this.budgetUsedNanos.merge(server, elapsedNanos, Long::sum);
+      }
+      boolean budgetExhausted = this.isBudgetExhausted(server);
+      if (!wallNow.isBefore(window.end) || budgetExhausted) {
+        this.endWindow(server, window, budgetExhausted);
+      }
+    }
+
+    for (MinecraftServer server : servers) {
+      PrewarmSettings settings = server.getSettings().prewarm();
+      if (!settings.enabled() || this.isBudgetExhausted(server)) continue;
+
+      ZonedDateTime predictedAt = wallNow.plusMinutes(settings.leadMinutes());
+      JoinHistory history = this.historyStore.historyOf(server.getName());
+      if (history.expectedJoins(predictedAt) < settings.threshold()) continue;
+
+      ZonedDateTime windowEnd = JoinHistory.bucketEnd(predictedAt);
+      PrewarmWindow window = this.windows.get(server);
+      if (window != null) {
+        if (windowEnd.isAfter(window.end)) window.end = windowEnd;
+        continue;
+      }
+      ServerLifecycleState state = server.getLifecycleState();
+      if (state == ServerLifecycleState.STOPPING) continue;
+      this.windows.put(server, new PrewarmWindow(windowEnd));
+      server.holdOnline(true);
+      if (state == ServerLifecycleState.STOPPED) {
+        this.logger.info(
+          "Pre-warming server " + server.getName() + " for predicted demand until " + windowEnd.toLocalTime()
+        );
+        this.stats.recordPrewarmStart();
+        server.start();
+      }
+    }
+  }
+
+  @Override
+  public void onTransition(MinecraftServer server, ServerLifecycle previous, ServerLifecycle next) {
+    if (next.state() == ServerLifecycleState.STARTING) {
+      this.startRequestedAt.put(server, next.enteredAtNanos());
+    } else if (next.state().isReady()) {
+      Long requestedAt = this.startRequestedAt.remove(server);
+      if (requestedAt != null) {
+        long coldStart = next.enteredAtNanos() - requestedAt;
+        this.averageColdStartNanos = (long) (
+          COLD_START_SMOOTHING * coldStart + (1 - COLD_START_SMOOTHING) * this.averageColdStartNanos
+        );
+      }
+    } else if (next.state() == ServerLifecycleState.STOPPED) {
+      this.startRequestedAt.remove(server);
+    }
+  }
+
+  // A server that moved to another instance carries its window and budget over to the replacement, a
+  // server gone for good (replacement null) drops them
+  public void replace(MinecraftServer server, MinecraftServer replacement) {
+    PrewarmWindow window = this.windows.remove(server);
+    Long budgetUsed = this.budgetUsedNanos.remove(server);
+    this.startRequestedAt.remove(server);
+    if (replacement == null) return;
+    if (window != null && this.windows.putIfAbsent(replacement, window) == null) {
+      replacement.holdOnline(true);
+    }
+    if (budgetUsed != null) {
+      this.budgetUsedNanos.merge(replacement, budgetUsed, Long::sum);
+    }
+  }
+
+  private boolean isBudgetExhausted(MinecraftServer server) {
+    long budgetNanos = TimeUnit.MINUTES.toNanos(server.getSettings().prewarm().budgetMinutes());
+    return this.budgetUsedNanos.getOrDefault(server, 0L) >= budgetNanos;
+  }
+
+  private void endWindow(MinecraftServer server, PrewarmWindow window, boolean budgetExhausted) {
+    if (!this.windows.remove(server, window)) return;
+    server.holdOnline(false);
+    if (window.joins.get() == 0) {
+      this.stats.recordWastedWindow();
+    }
+    this.logger.info(
+      "Pre-warm window of server " + server.getName() + " ended" +
+        (budgetExhausted ? " (daily budget used)" : "") + " with " + window.joins + " joins; " + this.stats
+    );
+  }
+
+  private static class PrewarmWindow {
+    private volatile ZonedDateTime end;
+    private final AtomicInteger joins = new AtomicInteger();
+
+    private PrewarmWindow(ZonedDateTime end) {
+      this.end = end;
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.moandjiezana.toml.Toml;
+
+public record PrewarmSettings(boolean enabled, long budgetMinutes, long leadMinutes, double threshold) {
+  private static final long DEFAULT_BUDGET_MINUTES = 120;
+  private static final long DEFAULT_LEAD_MINUTES = 10;
+  private static final double DEFAULT_THRESHOLD = 1.0;
+
+  public static PrewarmSettings fromConfig(String name, Toml serverConfig, InvalidConfigValues invalidValues) {
+    boolean enabled = serverConfig.getBoolean("prewarm", false);
+    long budgetMinutes = serverConfig.getLong("prewarmBudget", DEFAULT_BUDGET_MINUTES);
+    if (budgetMinutes < 0) {
+      invalidValues.add("Server " + name + " pre-warm budget invalid, set the default budget to 120 minutes");
+      budgetMinutes = DEFAULT_BUDGET_MINUTES;
+    }
+    long leadMinutes = serverConfig.getLong("prewarmLead", DEFAULT_LEAD_MINUTES);
+    if (leadMinutes < 0) {
+      invalidValues.add("Server " + name + " pre-warm lead invalid, set the default lead to 10 minutes");
+      leadMinutes = DEFAULT_LEAD_MINUTES;
+    }
+    double threshold = serverConfig.getDouble("prewarmThreshold", DEFAULT_THRESHOLD);
+    if (threshold <= 0) {
+      invalidValues.add("Server " + name + " pre-warm threshold invalid, set the default threshold to 1 join");
+      threshold = DEFAULT_THRESHOLD;
+    }
+    return new PrewarmSettings(enabled, budgetMinutes, leadMinutes, threshold);
+  }
+}
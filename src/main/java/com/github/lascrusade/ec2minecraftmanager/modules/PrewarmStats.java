@@ -0,0 +1,61 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PrewarmStats {
+  private final LongAdder prewarmStarts = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder wastedWindows = new LongAdder();
+  private final LongAdder savedWaitNanos = new LongAdder();
+
+  public void recordPrewarmStart() {
+    this.prewarmStarts.increment();
+  }
+
+  public void recordHit(long savedWaitNanos) {
+    this.hits.increment();
+    this.savedWaitNanos.add(savedWaitNanos);
+  }
+
+  public void recordMiss() {
+    this.misses.increment();
+  }
+
+  public void recordWastedWindow() {
+    this.wastedWindows.increment();
+  }
+
+  public long getPrewarmStarts() {
+    return this.prewarmStarts.sum();
+  }
+
+  public long getHits() {
+    return this.hits.sum();
+  }
+
+  public long getMisses() {
+    return this.misses.sum();
+  }
+
+  public long getWastedWindows() {
+    return this.wastedWindows.sum();
+  }
+
+  public long getSavedWaitSeconds() {
+    return TimeUnit.NANOSECONDS.toSeconds(this.savedWaitNanos.sum());
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+      "%d pre-warm starts, %d hits, %d cold-start misses, %d wasted windows, ~%ds of cold-start wait saved",
+      this.getPrewarmStarts(),
+      this.getHits(),
+      this.getMisses(),
+      this.getWastedWindows(),
+      this.getSavedWaitSeconds()
+    );
+  }
+}
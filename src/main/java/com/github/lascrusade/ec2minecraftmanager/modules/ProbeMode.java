@@ -0,0 +1,14 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+public enum ProbeMode {
+  TCP,
+  PING;
+
+  public static ProbeMode fromConfig(String value) {
+    if (value == null) return null;
+    for (ProbeMode mode : values()) {
+      if (mode.name().equalsIgnoreCase(value.trim())) return mode;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,18 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+public record ProbeResult(boolean reachable, ServerStatusSnapshot status) {
+  private static final ProbeResult UNREACHABLE = new ProbeResult(false, null);
+  private static final ProbeResult PORT_OPEN = new ProbeResult(true, null);
+
+  public static ProbeResult unreachable() {
+    return UNREACHABLE;
+  }
+
+  public static ProbeResult portOpen() {
+    return PORT_OPEN;
+  }
+
+  public static ProbeResult status(ServerStatusSnapshot status) {
+    return new ProbeResult(true, status);
+  }
+}
@@ -1,8 +1,11 @@
 package com.github.lascrusade.ec2minecraftmanager.modules;
 
 import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
 import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
 import com.velocitypowered.api.event.player.ServerPreConnectEvent;
+import com.velocitypowered.api.event.proxy.ProxyPingEvent;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 import net.kyori.adventure.text.Component;
@@ -15,11 +18,34 @@ public class ProxyEventListeners {
   private final Logger logger;
   private final PlayerEventNotifier playerEventNotif;
   private final Map<String, MinecraftServer> servers;
+  private final PrewarmPlanner prewarmPlanner;
+  private final WaitingQueue waitingQueue;
+  private final PluginMetrics metrics;
+  private final FleetStatusBoard statusBoard;
+  private final MonotonicClock clock;
 
-  public ProxyEventListeners(Logger logger, Map<String, MinecraftServer> servers) {
+  public ProxyEventListeners(
+    Logger logger,
+    Map<String, MinecraftServer> servers,
+    PrewarmPlanner prewarmPlanner,
+    WaitingQueue waitingQueue,
+    PluginMetrics metrics,
+    FleetStatusBoard statusBoard,
+    MonotonicClock clock
+  ) {
     this.logger = logger;
     this.playerEventNotif = new PlayerEventNotifier(logger);
     this.servers = servers;
+    this.prewarmPlanner = prewarmPlanner;
+    this.waitingQueue = waitingQueue;
+    this.metrics = metrics;
+    this.statusBoard = statusBoard;
+    this.clock = clock;
+  }
+
+  @Subscribe
+  public void onProxyPing(ProxyPingEvent event) {
+    this.statusBoard.fillPing(event);
   }
 
   @Subscribe
@@ -28,12 +54,26 @@ public class ProxyEventListeners {
     this.logger.info(player.getUsername() + " logs in");
   }
 
+  @Subscribe
+  public void onPlayerDisconnect(DisconnectEvent event) {
+    this.waitingQueue.remove(event.getPlayer());
+  }
+
+  @Subscribe
+  public void afterPlayerConnectToServer(ServerConnectedEvent event) {
+    MinecraftServer server = this.servers.get(event.getServer().getServerInfo().getName());
+    if (server != null) {
+      this.metrics.recordPlayerJoined(server, this.clock.nanoTime());
+    }
+  }
+
   @Subscribe
   public void beforePlayerConnectToServer(ServerPreConnectEvent event) {
     Player player = event.getPlayer();
     Optional<RegisteredServer> serverInProxy = event.getResult().getServer();
     if (serverInProxy.isEmpty()) {
       this.playerEventNotif.unknownServerEntryDenied(player);
+      this.metrics.recordDeniedConnect(PluginMetrics.DeniedConnect.UNKNOWN_SERVER);
       event.setResult(ServerPreConnectEvent.ServerResult.denied());
       return;
     }
@@ -41,25 +81,59 @@ public class ProxyEventListeners {
     MinecraftServer server = this.servers.get(serverName);
     if (server == null) {
       this.playerEventNotif.unconfiguredServerEntryDenied(player, serverName);
+      this.metrics.recordDeniedConnect(PluginMetrics.DeniedConnect.UNCONFIGURED_SERVER);
       event.setResult(ServerPreConnectEvent.ServerResult.denied());
       return;
     }
     if (!server.allowPlayer(player)) {
       this.playerEventNotif.serverEntryPermissionDenied(player, serverName);
+      this.metrics.recordDeniedConnect(PluginMetrics.DeniedConnect.PERMISSION);
       event.setResult(ServerPreConnectEvent.ServerResult.denied());
       return;
     }
+    if (!this.waitingQueue.isQueued(player, server)) {
+      this.prewarmPlanner.recordConnectAttempt(server);
+    }
     player.sendMessage(Component.text("§4YWAITINGGGG"));
+    if (server.isStopping()) {
+      this.playerEventNotif.serverShuttingDown(player, serverName);
+      server.start();
+      this.holdOrDeny(event, player, server);
+      return;
+    }
     if (!server.isInstanceTurnedOn()) {
-      this.playerEventNotif.startingServerOS(player, serverName);
+      if (server.isStarting()) {
+        this.playerEventNotif.playerEntryAttemptOnServerStartup(player);
+      } else {
+        this.playerEventNotif.startingServerOS(player, serverName);
+      }
       server.start();
-      event.setResult(ServerPreConnectEvent.ServerResult.denied());
+      this.holdOrDeny(event, player, server);
       return;
     } else if (!server.isOnline()) {
       this.playerEventNotif.playerEntryAttemptOnServerStartup(player);
-      event.setResult(ServerPreConnectEvent.ServerResult.denied());
+      this.holdOrDeny(event, player, server);
       return;
     }
+    this.waitingQueue.remove(player);
     this.playerEventNotif.playerConnectingToServer(player, serverName);
   }
+
+  // Parks the player on the fallback server until the target is ready, or denies when there is none
+  private void holdOrDeny(ServerPreConnectEvent event, Player player, MinecraftServer server) {
+    Optional<RegisteredServer> fallback = this.waitingQueue.getFallbackServer();
+    if (fallback.isEmpty() || fallback.get().equals(server.getVelocityServer())) {
+      this.metrics.recordDeniedConnect(PluginMetrics.DeniedConnect.NOT_READY);
+      event.setResult(ServerPreConnectEvent.ServerResult.denied());
+      return;
+    }
+    int position = this.waitingQueue.enqueue(player, server);
+    this.metrics.recordQueuedConnect();
+    this.playerEventNotif.queuedForServer(player, server.getName(), position);
+    if (player.getCurrentServer().isEmpty()) {
+      event.setResult(ServerPreConnectEvent.ServerResult.allowed(fallback.get()));
+    } else {
+      event.setResult(ServerPreConnectEvent.ServerResult.denied());
+    }
+  }
 }
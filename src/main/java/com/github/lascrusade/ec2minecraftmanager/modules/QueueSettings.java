@@ -0,0 +1,46 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.moandjiezana.toml.Toml;
+import org.slf4j.Logger;
+
+public record QueueSettings(
+  String fallbackServer,
+  double connectsPerSecond,
+  long progressIntervalSeconds,
+  long maxWaitSeconds
+) {
+  private static final double DEFAULT_CONNECTS_PER_SECOND = 5;
+  private static final long DEFAULT_PROGRESS_INTERVAL = 5;
+  private static final long DEFAULT_MAX_WAIT = 300;
+
+  public boolean isEnabled() {
+    return !this.fallbackServer.isEmpty();
+  }
+
+  public static QueueSettings fromConfig(Toml config, Logger logger, InvalidConfigValues invalidValues) {
+    Toml queueConfig = config.getTable("queue");
+    if (queueConfig == null) {
+      queueConfig = new Toml();
+    }
+    String fallbackServer = queueConfig.getString("fallbackServer", "").trim();
+    if (fallbackServer.isEmpty()) {
+      logger.info("No queue fallback server set, players are denied until their server is ready");
+    }
+    double connectsPerSecond = queueConfig.getDouble("connectsPerSecond", DEFAULT_CONNECTS_PER_SECOND);
+    if (connectsPerSecond <= 0) {
+      invalidValues.add("Queue connects per second invalid, set the default to 5 connects per second");
+      connectsPerSecond = DEFAULT_CONNECTS_PER_SECOND;
+    }
+    long progressIntervalSeconds = queueConfig.getLong("progressInterval", DEFAULT_PROGRESS_INTERVAL);
+    if (progressIntervalSeconds <= 0) {
+      invalidValues.add("Queue progress interval invalid, set the default interval to 5 seconds");
+      progressIntervalSeconds = DEFAULT_PROGRESS_INTERVAL;
+    }
+    long maxWaitSeconds = queueConfig.getLong("maxWait", DEFAULT_MAX_WAIT);
+    if (maxWaitSeconds <= 0) {
+      invalidValues.add("Queue max wait invalid, set the default max wait to 5 minutes");
+      maxWaitSeconds = DEFAULT_MAX_WAIT;
+    }
+    return new QueueSettings(fallbackServer, connectsPerSecond, progressIntervalSeconds, maxWaitSeconds);
+  }
+}
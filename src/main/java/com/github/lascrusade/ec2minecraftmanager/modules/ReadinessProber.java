@@ -0,0 +1,205 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+public class ReadinessProber {
+  private static final int INITIAL_READ_BUFFER_BYTES = 4096;
+
+  private final Logger logger;
+
+  public ReadinessProber(Logger logger) {
+    this.logger = logger;
+  }
+
+  public Map<MinecraftServer, ProbeResult> probe(Collection<MinecraftServer> servers) {
+    Map<MinecraftServer, ProbeResult> results = new HashMap<>();
+    if (servers.isEmpty()) return results;
+
+    Selector selector;
+    try {
+      selector = Selector.open();
+    } catch (IOException e) {
+      this.logger.error("Cannot open probe selector because: " + e);
+      for (MinecraftServer server : servers) results.put(server, ProbeResult.unreachable());
+      return results;
+    }
+
+    try {
+      List<PendingProbe> pendingProbes = new ArrayList<>();
+      long now = System.nanoTime();
+      for (MinecraftServer server : servers) {
+        PendingProbe probe = this.connect(selector, server, now, results);
+        if (probe != null) pendingProbes.add(probe);
+      }
+
+      while (!pendingProbes.isEmpty()) {
+        long earliestDeadline = Long.MAX_VALUE;
+        for (PendingProbe probe : pendingProbes) {
+          earliestDeadline = Math.min(earliestDeadline, probe.deadlineNanos);
+        }
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(earliestDeadline - System.nanoTime());
+        if (waitMillis > 0) {
+          selector.select(waitMillis);
+        } else {
+          selector.selectNow();
+        }
+
+        for (SelectionKey key : selector.selectedKeys()) {
+          PendingProbe probe = (PendingProbe) key.attachment();
+          ProbeResult result = this.advance(probe);
+          if (result != null) {
+            results.put(probe.server, result);
+            probe.close();
+          }
+        }
+        selector.selectedKeys().clear();
+
+        now = System.nanoTime();
+        Iterator<PendingProbe> iterator = pendingProbes.iterator();
+        while (iterator.hasNext()) {
+          PendingProbe probe = iterator.next();
+          if (results.containsKey(probe.server)) {
+            iterator.remove();
+          } else if (now - probe.deadlineNanos >= 0) {
+            results.put(probe.server, ProbeResult.unreachable());
+            probe.close();
+            iterator.remove();
+          }
+        }
+      }
+    } catch (IOException e) {
+      this.logger.error("Readiness probe failed because: " + e);
+      for (MinecraftServer server : servers) results.putIfAbsent(server, ProbeResult.unreachable());
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        ((PendingProbe) key.attachment()).close();
+      }
+      try {
+        selector.close();
+      } catch (IOException e) {
+        this.logger.warn("Cannot close probe selector because: " + e);
+      }
+    }
+    return results;
+  }
+
+  private PendingProbe connect(
+    Selector selector,
+    MinecraftServer server,
+    long now,
+    Map<MinecraftServer, ProbeResult> results
+  ) {
+    InetSocketAddress address = new InetSocketAddress(server.getIP(), server.getPort());
+    if (address.isUnresolved()) {
+      results.put(server, ProbeResult.unreachable());
+      return null;
+    }
+    long deadline = now + TimeUnit.MILLISECONDS.toNanos(server.getSettings().probeTimeoutMillis());
+    PendingProbe probe = null;
+    try {
+      SocketChannel channel = SocketChannel.open();
+      probe = new PendingProbe(server, channel, deadline);
+      channel.configureBlocking(false);
+      probe.key = channel.register(selector, SelectionKey.OP_CONNECT, probe);
+      if (channel.connect(address)) {
+        ProbeResult result = this.onConnected(probe);
+        if (result != null) {
+          results.put(server, result);
+          probe.close();
+          return null;
+        }
+      }
+      return probe;
+    } catch (IOException e) {
+      results.put(server, ProbeResult.unreachable());
+      if (probe != null) probe.close();
+      return null;
+    }
+  }
+
+  // Returns the final result once the probe is done, null while it still waits on the selector
+  private ProbeResult advance(PendingProbe probe) {
+    try {
+      SelectionKey key = probe.key;
+      if (key.isConnectable()) {
+        if (!probe.channel.finishConnect()) return null;
+        return this.onConnected(probe);
+      }
+      if (key.isWritable()) {
+        probe.channel.write(probe.request);
+        if (!probe.request.hasRemaining()) {
+          probe.requestSentNanos = System.nanoTime();
+          key.interestOps(SelectionKey.OP_READ);
+        }
+        return null;
+      }
+      if (key.isReadable()) {
+        if (!probe.response.hasRemaining()) probe.growResponseBuffer();
+        if (probe.channel.read(probe.response) < 0) return ProbeResult.unreachable();
+        String json = ServerListPing.tryReadStatusResponse(probe.response);
+        if (json == null) return null;
+        long now = System.nanoTime();
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(now - probe.requestSentNanos);
+        return ProbeResult.status(ServerListPing.parseStatus(json, latencyMillis, now));
+      }
+      return null;
+    } catch (IOException | RuntimeException e) {
+      this.logger.debug("Probe of server " + probe.server.getName() + " failed because: " + e);
+      return ProbeResult.unreachable();
+    }
+  }
+
+  private ProbeResult onConnected(PendingProbe probe) {
+    if (probe.server.getSettings().probeMode() == ProbeMode.TCP) {
+      return ProbeResult.portOpen();
+    }
+    probe.request = ServerListPing.createStatusRequest(probe.server.getIP(), probe.server.getPort());
+    probe.response = ByteBuffer.allocate(INITIAL_READ_BUFFER_BYTES);
+    probe.key.interestOps(SelectionKey.OP_WRITE);
+    return null;
+  }
+
+  private static class PendingProbe {
+    private final MinecraftServer server;
+    private final SocketChannel channel;
+    private final long deadlineNanos;
+    private SelectionKey key;
+    private ByteBuffer request;
+    private ByteBuffer response;
+    private long requestSentNanos;
+
+    private PendingProbe(MinecraftServer server, SocketChannel channel, long deadlineNanos) {
+      this.server = server;
+      this.channel = channel;
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    private void growResponseBuffer() {
+      int capacity = this.response.capacity() * 2;
+      if (capacity > ServerListPing.MAX_RESPONSE_BYTES + 8) {
+        throw new IllegalStateException("Status response too large");
+      }
+      ByteBuffer grown = ByteBuffer.allocate(capacity);
+      this.response.flip();
+      grown.put(this.response);
+      this.response = grown;
+    }
+
+    private void close() {
+      if (this.key != null) this.key.cancel();
+      try {
+        this.channel.close();
+      } catch (IOException ignored) {
+      }
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RESP2 client: commands are sent as arrays of bulk strings, replies come back as String,
+ * Long, null or List of those. The socket is opened on first use and dropped after any I/O error, so
+ * the next call reconnects.
+ */
+public class RedisConnection implements Closeable {
+  private static final int MAX_BULK_BYTES = 64 * 1024 * 1024;
+
+  private final String host;
+  private final int port;
+  private final String password;
+  private final int timeoutMillis;
+
+  private Socket socket = null;
+  private InputStream input = null;
+  private OutputStream output = null;
+
+  public RedisConnection(String host, int port, String password, int timeoutMillis) {
+    this.host = host;
+    this.port = port;
+    this.password = password;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  public Object command(String... arguments) throws IOException {
+    return this.pipeline(List.of(List.of(arguments))).get(0);
+  }
+
+  // Sends every command before reading the replies, an error reply fails the call once all are read
+  public synchronized List<Object> pipeline(List<List<String>> commands) throws IOException {
+    try {
+      this.connect();
+      for (List<String> command : commands) {
+        this.write(command);
+      }
+      this.output.flush();
+      List<Object> replies = new ArrayList<>(commands.size());
+      RedisErrorReply error = null;
+      for (int index = 0; index < commands.size(); index++) {
+        Object reply = this.readReply();
+        if (reply instanceof RedisErrorReply errorReply && error == null) {
+          error = errorReply;
+        }
+        replies.add(reply);
+      }
+      if (error != null) {
+        throw new IOException("Redis error: " + error.message());
+      }
+      return replies;
+    } catch (IOException | RuntimeException e) {
+      this.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (this.socket == null) return;
+    try {
+      this.socket.close();
+    } catch (IOException ignored) {
+      // Nothing left to do with a socket that fails to close
+    }
+    this.socket = null;
+    this.input = null;
+    this.output = null;
+  }
+
+  private void connect() throws IOException {
+    if (this.socket != null) return;
+    Socket socket = new Socket();
+    try {
+      socket.connect(new InetSocketAddress(this.host, this.port), this.timeoutMillis);
+      socket.setSoTimeout(this.timeoutMillis);
+      socket.setTcpNoDelay(true);
+      this.socket = socket;
+      this.input = new BufferedInputStream(socket.getInputStream());
+      this.output = new BufferedOutputStream(socket.getOutputStream());
+      if (!this.password.isEmpty()) {
+        this.write(List.of("AUTH", this.password));
+        this.output.flush();
+        if (this.readReply() instanceof RedisErrorReply error) {
+          throw new IOException("Redis authentication failed: " + error.message());
+        }
+      }
+    } catch (IOException e) {
+      socket.close();
+      this.socket = null;
+      throw e;
+    }
+  }
+
+  private void write(List<String> command) throws IOException {
+    this.writeLine("*" + command.size());
+    for (String argument : command) {
+      byte[] bytes = argument.getBytes(StandardCharsets.UTF_8);
+      this.writeLine("$" + bytes.length);
+      this.output.write(bytes);
+      this.output.write('\r');
+      this.output.write('\n');
+    }
+  }
+
+  private void writeLine(String line) throws IOException {
+    this.output.write(line.getBytes(StandardCharsets.US_ASCII));
+    this.output.write('\r');
+    this.output.write('\n');
+  }
+
+  private Object readReply() throws IOException {
+    int type = this.input.read();
+    if (type < 0) throw new EOFException("Redis closed the connection");
+    String line = this.readLine();
+    switch (type) {
+      case '+':
+        return line;
+      case '-':
+        return new RedisErrorReply(line);
+      case ':':
+        return Long.parseLong(line);
+      case '$': {
+        int length = Integer.parseInt(line);
+        if (length < 0) return null;
+        if (length > MAX_BULK_BYTES) throw new IOException("Redis reply too large: " + length + " bytes");
+        byte[] bytes = this.input.readNBytes(length + 2);
+        if (bytes.length != length + 2) throw new EOFException("Redis closed the connection");
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+      }
+      case '*': {
+        int count = Integer.parseInt(line);
+        if (count < 0) return null;
+        List<Object> elements = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+          elements.add(this.readReply());
+        }
+        return elements;
+      }
+      default:
+        throw new IOException("Unexpected Redis reply type " + (char) type);
+    }
+  }
+
+  private String readLine() throws IOException {
+    StringBuilder line = new StringBuilder();
+    while (true) {
+      int next = this.input.read();
+      if (next < 0) throw new EOFException("Redis closed the connection");
+      if (next == '\r') {
+        this.input.read();
+        return line.toString();
+      }
+      line.append((char) next);
+    }
+  }
+
+  private record RedisErrorReply(String message) {
+  }
+}
@@ -0,0 +1,114 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared state in Redis or any server speaking its protocol. Each proxy writes its player counts to a
+ * hash of its own and registers itself in a sorted set scored by expiry, times come from the Redis
+ * clock so proxies with skewed clocks agree. Leases are plain keys with a TTL, checked and changed by
+ * small scripts so a proxy never extends or deletes a lease another proxy took over.
+ */
+public class RedisCoordinationBackend implements CoordinationBackend {
+  private static final String KEY_PREFIX = "ec2mm:";
+  private static final String PROXIES_KEY = KEY_PREFIX + "proxies";
+  private static final String ACQUIRE_SCRIPT =
+    "local owner = redis.call('GET', KEYS[1]) " +
+      "if owner == false then redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) return 1 end " +
+      "if owner == ARGV[1] then redis.call('PEXPIRE', KEYS[1], ARGV[2]) return 1 end " +
+      "return 0";
+  private static final String RELEASE_SCRIPT =
+    "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0";
+
+  private final RedisConnection connection;
+
+  public RedisCoordinationBackend(RedisConnection connection) {
+    this.connection = connection;
+  }
+
+  @Override
+  public void publishPlayerCounts(String proxyId, Map<String, Integer> playerCounts, long ttlMillis) throws IOException {
+    String countsKey = playersKey(proxyId);
+    List<List<String>> commands = new ArrayList<>();
+    commands.add(List.of("MULTI"));
+    commands.add(List.of("DEL", countsKey));
+    if (playerCounts.isEmpty()) {
+      commands.add(List.of("ZREM", PROXIES_KEY, proxyId));
+    } else {
+      List<String> hashSet = new ArrayList<>(2 + playerCounts.size() * 2);
+      hashSet.add("HSET");
+      hashSet.add(countsKey);
+      playerCounts.forEach((server, count) -> {
+        hashSet.add(server);
+        hashSet.add(Integer.toString(count));
+      });
+      commands.add(hashSet);
+      commands.add(List.of("PEXPIRE", countsKey, Long.toString(ttlMillis)));
+      commands.add(List.of("ZADD", PROXIES_KEY, Long.toString(this.nowMillis() + ttlMillis), proxyId));
+    }
+    commands.add(List.of("EXEC"));
+    this.connection.pipeline(commands);
+  }
+
+  @Override
+  public Map<String, Map<String, Integer>> readPlayerCounts() throws IOException {
+    long now = this.nowMillis();
+    List<Object> replies = this.connection.pipeline(List.of(
+      List.of("ZREMRANGEBYSCORE", PROXIES_KEY, "-inf", Long.toString(now)),
+      List.of("ZRANGE", PROXIES_KEY, "0", "-1")
+    ));
+    List<String> proxyIds = new ArrayList<>();
+    for (Object proxyId : (List<?>) replies.get(1)) {
+      proxyIds.add((String) proxyId);
+    }
+    if (proxyIds.isEmpty()) return Map.of();
+    List<List<String>> commands = new ArrayList<>(proxyIds.size());
+    for (String proxyId : proxyIds) {
+      commands.add(List.of("HGETALL", playersKey(proxyId)));
+    }
+    replies = this.connection.pipeline(commands);
+    Map<String, Map<String, Integer>> output = new HashMap<>();
+    for (int index = 0; index < proxyIds.size(); index++) {
+      List<?> fields = (List<?>) replies.get(index);
+      Map<String, Integer> counts = new HashMap<>();
+      for (int field = 0; field + 1 < fields.size(); field += 2) {
+        counts.put((String) fields.get(field), Integer.parseInt((String) fields.get(field + 1)));
+      }
+      output.put(proxyIds.get(index), counts);
+    }
+    return output;
+  }
+
+  @Override
+  public boolean tryAcquireLease(String name, String owner, long ttlMillis) throws IOException {
+    Object reply = this.connection.command("EVAL", ACQUIRE_SCRIPT, "1", leaseKey(name), owner, Long.toString(ttlMillis));
+    return Long.valueOf(1).equals(reply);
+  }
+
+  @Override
+  public void releaseLease(String name, String owner) throws IOException {
+    this.connection.command("EVAL", RELEASE_SCRIPT, "1", leaseKey(name), owner);
+  }
+
+  @Override
+  public void close() {
+    this.connection.close();
+  }
+
+  // TIME answers seconds and microseconds
+  private long nowMillis() throws IOException {
+    List<?> time = (List<?>) this.connection.command("TIME");
+    return Long.parseLong((String) time.get(0)) * 1000 + Long.parseLong((String) time.get(1)) / 1000;
+  }
+
+  private static String playersKey(String proxyId) {
+    return KEY_PREFIX + "players:" + proxyId;
+  }
+
+  private static String leaseKey(String name) {
+    return KEY_PREFIX + "lease:" + name;
+  }
+}
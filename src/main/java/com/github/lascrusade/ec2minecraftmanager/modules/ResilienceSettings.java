@@ -0,0 +1,72 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.moandjiezana.toml.Toml;
+
+public record ResilienceSettings(
+  int maxRetries,
+  long retryBaseDelayMillis,
+  long retryMaxDelayMillis,
+  double rateLimit,
+  double rateBurst,
+  int breakerFailures,
+  long breakerOpenSeconds
+) {
+  private static final long DEFAULT_MAX_RETRIES = 3;
+  private static final long DEFAULT_RETRY_BASE_DELAY = 200;
+  private static final long DEFAULT_RETRY_MAX_DELAY = 5000;
+  private static final double DEFAULT_RATE_LIMIT = 10.0;
+  private static final double DEFAULT_RATE_BURST = 20.0;
+  private static final long DEFAULT_BREAKER_FAILURES = 5;
+  private static final long DEFAULT_BREAKER_OPEN = 30;
+
+  public static ResilienceSettings fromConfig(Toml config, InvalidConfigValues invalidValues) {
+    Toml callsConfig = config.getTable("ec2Calls");
+    if (callsConfig == null) {
+      callsConfig = new Toml();
+    }
+    long maxRetries = callsConfig.getLong("maxRetries", DEFAULT_MAX_RETRIES);
+    if (maxRetries < 0 || maxRetries > 10) {
+      invalidValues.add("EC2 call max retries invalid, set the default max retries to 3");
+      maxRetries = DEFAULT_MAX_RETRIES;
+    }
+    long retryBaseDelayMillis = callsConfig.getLong("retryBaseDelay", DEFAULT_RETRY_BASE_DELAY);
+    if (retryBaseDelayMillis <= 0) {
+      invalidValues.add("EC2 call retry base delay invalid, set the default delay to 200 milliseconds");
+      retryBaseDelayMillis = DEFAULT_RETRY_BASE_DELAY;
+    }
+    long retryMaxDelayMillis = callsConfig.getLong("retryMaxDelay", DEFAULT_RETRY_MAX_DELAY);
+    if (retryMaxDelayMillis < retryBaseDelayMillis) {
+      invalidValues.add("EC2 call retry max delay invalid, set the default delay to 5 seconds");
+      retryMaxDelayMillis = Math.max(DEFAULT_RETRY_MAX_DELAY, retryBaseDelayMillis);
+    }
+    double rateLimit = callsConfig.getDouble("rateLimit", DEFAULT_RATE_LIMIT);
+    if (rateLimit <= 0) {
+      invalidValues.add("EC2 call rate limit invalid, set the default limit to 10 calls per second");
+      rateLimit = DEFAULT_RATE_LIMIT;
+    }
+    double rateBurst = callsConfig.getDouble("rateBurst", DEFAULT_RATE_BURST);
+    if (rateBurst < 1) {
+      invalidValues.add("EC2 call rate burst invalid, set the default burst to 20 calls");
+      rateBurst = DEFAULT_RATE_BURST;
+    }
+    long breakerFailures = callsConfig.getLong("breakerFailures", DEFAULT_BREAKER_FAILURES);
+    if (breakerFailures <= 0) {
+      invalidValues.add("EC2 circuit breaker failures invalid, set the default failures to 5");
+      breakerFailures = DEFAULT_BREAKER_FAILURES;
+    }
+    long breakerOpenSeconds = callsConfig.getLong("breakerOpen", DEFAULT_BREAKER_OPEN);
+    if (breakerOpenSeconds <= 0) {
+      invalidValues.add("EC2 circuit breaker open duration invalid, set the default duration to 30 seconds");
+      breakerOpenSeconds = DEFAULT_BREAKER_OPEN;
+    }
+    return new ResilienceSettings(
+      (int) maxRetries,
+      retryBaseDelayMillis,
+      retryMaxDelayMillis,
+      rateLimit,
+      rateBurst,
+      (int) breakerFailures,
+      breakerOpenSeconds
+    );
+  }
+}
@@ -0,0 +1,261 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the plugin working when EC2 throttles or fails. Every call waits for a token of a client side
+ * rate limit, throttling, server and network errors are retried with exponential backoff and full
+ * jitter, and identical reads running at the same time share one call. After too many failed calls in
+ * a row the circuit breaker of the gateway opens: state reads are then answered with the last known
+ * states and the other calls fail right away, until a trial call succeeds.
+ * <p>
+ * Start and stop requests are retried too, EC2 treats starting a running instance or stopping a stopped
+ * one as a no-op.
+ */
+public class ResilientEC2Gateway implements EC2Gateway {
+  private static final Set<String> TRANSIENT_ERROR_CODES = Set.of(
+    "RequestLimitExceeded",
+    "Throttling",
+    "ThrottlingException",
+    "RequestThrottled",
+    "ServiceUnavailable",
+    "Unavailable",
+    "InternalError"
+  );
+
+  private final EC2Gateway delegate;
+  private final String name;
+  private final ResilienceSettings settings;
+  private final TokenBucket rateLimit;
+  private final CircuitBreaker breaker;
+  private final PluginMetrics metrics;
+  private final Sleeper sleeper;
+  private final Logger logger;
+  private final Map<String, InstanceState> lastKnownStates = new ConcurrentHashMap<>();
+  private final Map<List<Object>, CompletableFuture<Object>> inFlightReads = new ConcurrentHashMap<>();
+
+  private interface Call<T> {
+    T call() throws IOException;
+  }
+
+  public ResilientEC2Gateway(
+    EC2Gateway delegate,
+    String name,
+    ResilienceSettings settings,
+    PluginMetrics metrics,
+    MonotonicClock clock,
+    Sleeper sleeper,
+    Logger logger
+  ) {
+    this.delegate = delegate;
+    this.name = name;
+    this.settings = settings;
+    this.rateLimit = new TokenBucket(settings.rateLimit(), settings.rateBurst(), clock);
+    this.breaker = new CircuitBreaker(
+      settings.breakerFailures(),
+      TimeUnit.SECONDS.toNanos(settings.breakerOpenSeconds()),
+      clock
+    );
+    this.metrics = metrics;
+    this.sleeper = sleeper;
+    this.logger = logger;
+    metrics.bindCircuitBreaker(name, this.breaker);
+  }
+
+  public CircuitBreaker.State getCircuitState() {
+    return this.breaker.getState();
+  }
+
+  @Override
+  public Map<String, String> findInstanceIdsByPrivateIp(Collection<String> privateIpAddresses) throws IOException {
+    return this.coalesce(
+      "DescribeInstances",
+      List.of("privateIp", Set.copyOf(privateIpAddresses)),
+      () -> this.call("DescribeInstances", () -> this.delegate.findInstanceIdsByPrivateIp(privateIpAddresses))
+    );
+  }
+
+  @Override
+  public Map<String, String> findInstanceIdsByTag(String tagKey, Collection<String> tagValues) throws IOException {
+    return this.coalesce(
+      "DescribeInstances",
+      List.of("tag", tagKey, Set.copyOf(tagValues)),
+      () -> this.call("DescribeInstances", () -> this.delegate.findInstanceIdsByTag(tagKey, tagValues))
+    );
+  }
+
+  @Override
+  public InstanceState describeInstanceState(String instanceId) throws IOException {
+    return this.describeInstanceStates(List.of(instanceId)).getOrDefault(instanceId, InstanceState.UNKNOWN);
+  }
+
+  @Override
+  public Map<String, InstanceState> describeInstanceStates(Collection<String> instanceIds) throws IOException {
+    Set<String> key = Set.copyOf(instanceIds);
+    return this.coalesce("DescribeInstanceStatus", List.of("state", key), () -> {
+      if (!this.breaker.tryAcquire()) return this.lastKnownStates(key);
+      Map<String, InstanceState> states = this.callAcquired(
+        "DescribeInstanceStatus",
+        () -> this.delegate.describeInstanceStates(key)
+      );
+      this.lastKnownStates.putAll(states);
+      return states;
+    });
+  }
+
+  @Override
+  public void startInstance(String instanceId) throws IOException {
+    this.call("StartInstances", () -> {
+      this.delegate.startInstance(instanceId);
+      return null;
+    });
+  }
+
+  @Override
+  public void stopInstance(String instanceId) throws IOException {
+    this.call("StopInstances", () -> {
+      this.delegate.stopInstance(instanceId);
+      return null;
+    });
+  }
+
+  @Override
+  public void hibernateInstance(String instanceId) throws IOException {
+    this.call("StopInstances", () -> {
+      this.delegate.hibernateInstance(instanceId);
+      return null;
+    });
+  }
+
+  // The states the breaker serves while it is open, only when every asked instance was seen before
+  private Map<String, InstanceState> lastKnownStates(Set<String> instanceIds) throws IOException {
+    Map<String, InstanceState> states = new HashMap<>();
+    for (String instanceId : instanceIds) {
+      InstanceState state = this.lastKnownStates.get(instanceId);
+      if (state == null) throw this.rejected("DescribeInstanceStatus");
+      states.put(instanceId, state);
+    }
+    this.metrics.recordEC2StaleRead(this.name);
+    return states;
+  }
+
+  // Callers asking for the same read while it runs wait for its result instead of calling EC2 again
+  @SuppressWarnings("unchecked")
+  private <T> T coalesce(String action, List<Object> key, Call<T> call) throws IOException {
+    CompletableFuture<Object> pending = new CompletableFuture<>();
+    CompletableFuture<Object> running = this.inFlightReads.putIfAbsent(key, pending);
+    if (running != null) {
+      this.metrics.recordEC2Coalesced(action);
+      try {
+        return (T) running.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for EC2 " + action, e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException ioException) throw ioException;
+        if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+        throw new IOException("EC2 " + action + " failed", e.getCause());
+      }
+    }
+    try {
+      T result = call.call();
+      pending.complete(result);
+      return result;
+    } catch (IOException | RuntimeException e) {
+      pending.completeExceptionally(e);
+      throw e;
+    } finally {
+      this.inFlightReads.remove(key, pending);
+    }
+  }
+
+  private <T> T call(String action, Call<T> call) throws IOException {
+    if (!this.breaker.tryAcquire()) throw this.rejected(action);
+    return this.callAcquired(action, call);
+  }
+
+  // Runs a call the breaker let through, every way out reports an outcome so a trial call never stays pending
+  private <T> T callAcquired(String action, Call<T> call) throws IOException {
+    for (int attempt = 0; ; attempt++) {
+      IOException failure;
+      try {
+        this.sleep(this.rateLimit.reserve(), action);
+        T result = call.call();
+        this.onSuccess();
+        return result;
+      } catch (IOException e) {
+        failure = e;
+      } catch (RuntimeException e) {
+        this.onFailure(e);
+        throw e;
+      }
+      if (failure instanceof EC2Exception && !isTransient(failure)) {
+        // EC2 answered, a rejected request does not mean the API is down
+        this.onSuccess();
+        throw failure;
+      }
+      if (!isTransient(failure) || attempt >= this.settings.maxRetries()) {
+        this.onFailure(failure);
+        throw failure;
+      }
+      this.metrics.recordEC2Retry(action);
+      long maxDelayMillis = Math.min(
+        this.settings.retryMaxDelayMillis(),
+        this.settings.retryBaseDelayMillis() << Math.min(attempt, 20)
+      );
+      try {
+        this.sleep(TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(maxDelayMillis + 1)), action);
+      } catch (IOException e) {
+        this.onFailure(e);
+        throw e;
+      }
+    }
+  }
+
+  private void onSuccess() {
+    if (this.breaker.recordSuccess()) {
+      this.logger.info("EC2 calls of " + this.name + " succeed again, circuit breaker closed");
+    }
+  }
+
+  private void onFailure(Exception e) {
+    if (this.breaker.recordFailure()) {
+      this.metrics.recordEC2CircuitOpened(this.name);
+      this.logger.warn(
+        "EC2 calls of " + this.name + " keep failing, circuit breaker opened for " +
+          this.settings.breakerOpenSeconds() + " seconds, last error: " + e
+      );
+    }
+  }
+
+  private IOException rejected(String action) {
+    this.metrics.recordEC2Rejected(this.name);
+    return new IOException(action + " not sent, circuit breaker of EC2 " + this.name + " is open");
+  }
+
+  private void sleep(long nanos, String action) throws IOException {
+    if (nanos <= 0) return;
+    try {
+      this.sleeper.sleep(nanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while calling EC2 " + action, e);
+    }
+  }
+
+  // Throttling, server errors and network failures, an interrupted call is not worth retrying
+  private static boolean isTransient(IOException e) {
+    if (e instanceof EC2Exception ec2Exception) {
+      return ec2Exception.getStatusCode() >= 500 || TRANSIENT_ERROR_CODES.contains(ec2Exception.getErrorCode());
+    }
+    return !Thread.currentThread().isInterrupted();
+  }
+}
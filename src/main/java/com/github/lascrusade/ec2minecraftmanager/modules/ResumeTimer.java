@@ -0,0 +1,110 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import org.slf4j.Logger;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ResumeTimer implements ServerLifecycleListener {
+  private final Logger logger;
+  private final Map<StopMode, ResumeStats> stats = new EnumMap<>(StopMode.class);
+  private final Map<MinecraftServer, PendingResume> pendingResumes = new ConcurrentHashMap<>();
+
+  public ResumeTimer(Logger logger) {
+    this.logger = logger;
+    for (StopMode mode : StopMode.values()) {
+      this.stats.put(mode, new ResumeStats());
+    }
+  }
+
+  public ResumeStats getStats(StopMode mode) {
+    return this.stats.get(mode);
+  }
+
+  @Override
+  public void onTransition(MinecraftServer server, ServerLifecycle previous, ServerLifecycle next) {
+    ServerLifecycleState state = next.state();
+    if (state == ServerLifecycleState.STARTING) {
+      this.pendingResumes.put(server, new PendingResume(server.getLastStopMode(), next.enteredAtNanos()));
+    } else if (state == ServerLifecycleState.STOPPED) {
+      this.pendingResumes.remove(server);
+    } else if (state.isReady()) {
+      PendingResume resume = this.pendingResumes.remove(server);
+      if (resume != null) {
+        this.record(server, resume.mode, next.enteredAtNanos() - resume.requestedAtNanos);
+      } else if (this.isKeptWarm(server, previous, next)) {
+        this.record(server, StopMode.KEEP_WARM, 0);
+      }
+    }
+  }
+
+  // A player coming back after the idle timeout, while the keep-warm grace still holds the instance up
+  private boolean isKeptWarm(MinecraftServer server, ServerLifecycle previous, ServerLifecycle next) {
+    ServerSettings settings = server.getSettings();
+    if (settings.stopMode() != StopMode.KEEP_WARM) return false;
+    if (previous.state() != ServerLifecycleState.IDLE || next.state() != ServerLifecycleState.ONLINE) return false;
+    long inactiveFor = TimeUnit.NANOSECONDS.toSeconds(previous.inactiveForNanos(next.enteredAtNanos()));
+    return inactiveFor > settings.idleTimeout();
+  }
+
+  private void record(MinecraftServer server, StopMode mode, long resumeNanos) {
+    this.stats.get(mode).record(resumeNanos);
+    this.logger.info(
+      "Server " + server.getName() + " resumed from " + mode.getConfigName() + " in " +
+        TimeUnit.NANOSECONDS.toMillis(resumeNanos) + "ms; " + this.summary()
+    );
+  }
+
+  private String summary() {
+    StringJoiner summary = new StringJoiner(", ");
+    for (Map.Entry<StopMode, ResumeStats> entry : this.stats.entrySet()) {
+      ResumeStats modeStats = entry.getValue();
+      if (modeStats.getCount() == 0) continue;
+      summary.add(entry.getKey().getConfigName() + " " + modeStats);
+    }
+    return summary.toString();
+  }
+
+  private record PendingResume(StopMode mode, long requestedAtNanos) {
+  }
+
+  public static class ResumeStats {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    private void record(long resumeNanos) {
+      this.count.increment();
+      this.totalNanos.add(resumeNanos);
+      this.maxNanos.accumulate(resumeNanos);
+    }
+
+    public long getCount() {
+      return this.count.sum();
+    }
+
+    public long getAverageMillis() {
+      long count = this.getCount();
+      return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.totalNanos.sum() / count);
+    }
+
+    public long getMaxMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(this.maxNanos.get());
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+        "avg %dms / max %dms over %d resumes",
+        this.getAverageMillis(),
+        this.getMaxMillis(),
+        this.getCount()
+      );
+    }
+  }
+}
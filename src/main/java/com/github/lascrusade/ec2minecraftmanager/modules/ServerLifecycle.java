@@ -0,0 +1,16 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+public record ServerLifecycle(ServerLifecycleState state, long enteredAtNanos, long inactiveSinceNanos) {
+
+  public static ServerLifecycle enter(ServerLifecycleState state, long nowNanos) {
+    return new ServerLifecycle(state, nowNanos, nowNanos);
+  }
+
+  public boolean isCountingInactivity() {
+    return this.state == ServerLifecycleState.BOOTING || this.state == ServerLifecycleState.IDLE;
+  }
+
+  public long inactiveForNanos(long nowNanos) {
+    return this.isCountingInactivity() ? nowNanos - this.inactiveSinceNanos : 0;
+  }
+}
@@ -0,0 +1,10 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+@FunctionalInterface
+public interface ServerLifecycleListener {
+
+  void onTransition(MinecraftServer server, ServerLifecycle previous, ServerLifecycle next);
+
+  default void onShutdownDecision(MinecraftServer server, ShutdownDecision decision) {
+  }
+}
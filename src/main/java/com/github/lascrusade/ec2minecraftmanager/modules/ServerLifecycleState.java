@@ -0,0 +1,29 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+public enum ServerLifecycleState {
+  STOPPED,
+  STARTING,
+  BOOTING,
+  ONLINE,
+  IDLE,
+  STOPPING;
+
+  public boolean isInstanceRunning() {
+    return this == BOOTING || this == ONLINE || this == IDLE;
+  }
+
+  public boolean isReady() {
+    return this == ONLINE || this == IDLE;
+  }
+
+  public boolean canTransitionTo(ServerLifecycleState next) {
+    if (this == next) return true;
+    return switch (this) {
+      case STOPPED -> next != STOPPED;
+      case STARTING -> next == BOOTING || next == ONLINE || next == IDLE || next == STOPPED;
+      case BOOTING, ONLINE, IDLE -> next != STARTING;
+      // A stop request EC2 refused leaves the instance in the state the stop started from
+      case STOPPING -> next == STOPPED || next == BOOTING || next == IDLE;
+    };
+  }
+}
@@ -0,0 +1,128 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class ServerListPing {
+  public static final int MAX_RESPONSE_BYTES = 256 * 1024;
+
+  private static final int HANDSHAKE_PACKET_ID = 0x00;
+  private static final int STATUS_REQUEST_PACKET_ID = 0x00;
+  private static final int STATUS_RESPONSE_PACKET_ID = 0x00;
+  private static final int UNKNOWN_PROTOCOL_VERSION = -1;
+  private static final int NEXT_STATE_STATUS = 1;
+
+  private ServerListPing() {
+  }
+
+  public static ByteBuffer createStatusRequest(String host, int port) {
+    ByteArrayOutputStream handshake = new ByteArrayOutputStream();
+    writeVarInt(handshake, HANDSHAKE_PACKET_ID);
+    writeVarInt(handshake, UNKNOWN_PROTOCOL_VERSION);
+    byte[] hostBytes = host.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(handshake, hostBytes.length);
+    handshake.writeBytes(hostBytes);
+    handshake.write((port >> 8) & 0xFF);
+    handshake.write(port & 0xFF);
+    writeVarInt(handshake, NEXT_STATE_STATUS);
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    writeVarInt(output, handshake.size());
+    output.writeBytes(handshake.toByteArray());
+    writeVarInt(output, 1);
+    writeVarInt(output, STATUS_REQUEST_PACKET_ID);
+    return ByteBuffer.wrap(output.toByteArray());
+  }
+
+  // Returns the status JSON once a whole response packet is buffered, null while more bytes are needed
+  public static String tryReadStatusResponse(ByteBuffer buffer) {
+    ByteBuffer view = buffer.duplicate().flip();
+    int packetLength = readVarInt(view);
+    if (packetLength < 0 || view.remaining() < packetLength) return null;
+    if (packetLength > MAX_RESPONSE_BYTES) {
+      throw new IllegalStateException("Status response too large: " + packetLength + " bytes");
+    }
+    int packetId = readVarInt(view);
+    if (packetId != STATUS_RESPONSE_PACKET_ID) {
+      throw new IllegalStateException("Unexpected status packet id " + packetId);
+    }
+    int jsonLength = readVarInt(view);
+    if (jsonLength < 0 || view.remaining() < jsonLength) {
+      throw new IllegalStateException("Malformed status response");
+    }
+    byte[] json = new byte[jsonLength];
+    view.get(json);
+    return new String(json, StandardCharsets.UTF_8);
+  }
+
+  public static ServerStatusSnapshot parseStatus(String json, long latencyMillis, long capturedAtNanos) {
+    JsonObject root = JsonParser.parseString(json).getAsJsonObject();
+    int onlinePlayers = 0;
+    int maxPlayers = 0;
+    if (root.has("players") && root.get("players").isJsonObject()) {
+      JsonObject players = root.getAsJsonObject("players");
+      onlinePlayers = players.has("online") ? players.get("online").getAsInt() : 0;
+      maxPlayers = players.has("max") ? players.get("max").getAsInt() : 0;
+    }
+    int protocolVersion = UNKNOWN_PROTOCOL_VERSION;
+    String versionName = "";
+    if (root.has("version") && root.get("version").isJsonObject()) {
+      JsonObject version = root.getAsJsonObject("version");
+      protocolVersion = version.has("protocol") ? version.get("protocol").getAsInt() : UNKNOWN_PROTOCOL_VERSION;
+      versionName = version.has("name") ? version.get("name").getAsString() : "";
+    }
+    StringBuilder motd = new StringBuilder();
+    if (root.has("description")) {
+      appendText(motd, root.get("description"));
+    }
+    return new ServerStatusSnapshot(
+      motd.toString(),
+      onlinePlayers,
+      maxPlayers,
+      protocolVersion,
+      versionName,
+      latencyMillis,
+      capturedAtNanos
+    );
+  }
+
+  private static void appendText(StringBuilder output, JsonElement component) {
+    if (component == null || component.isJsonNull()) return;
+    if (component.isJsonPrimitive()) {
+      output.append(component.getAsString());
+    } else if (component.isJsonArray()) {
+      for (JsonElement child : component.getAsJsonArray()) {
+        appendText(output, child);
+      }
+    } else if (component.isJsonObject()) {
+      JsonObject object = component.getAsJsonObject();
+      if (object.has("text")) output.append(object.get("text").getAsString());
+      if (object.has("extra")) appendText(output, object.get("extra"));
+    }
+  }
+
+  private static void writeVarInt(ByteArrayOutputStream output, int value) {
+    while ((value & ~0x7F) != 0) {
+      output.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    output.write(value);
+  }
+
+  // Returns -1 when the buffer does not yet hold the whole VarInt
+  private static int readVarInt(ByteBuffer buffer) {
+    int value = 0;
+    for (int position = 0; position < 5; position++) {
+      if (!buffer.hasRemaining()) return -1;
+      byte current = buffer.get();
+      value |= (current & 0x7F) << (position * 7);
+      if ((current & 0x80) == 0) return value;
+    }
+    throw new IllegalStateException("VarInt too big");
+  }
+}
@@ -0,0 +1,27 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+/**
+ * Decides whether this proxy may issue a start or stop of a server right now. Without coordination
+ * every operation is allowed, with it a single proxy at a time holds the right to act on a server.
+ */
+public interface ServerOperationGuard {
+  ServerOperationGuard NONE = new ServerOperationGuard() {
+    @Override
+    public boolean tryAcquire(MinecraftServer server, Operation operation) {
+      return true;
+    }
+
+    @Override
+    public void release(MinecraftServer server, Operation operation) {
+    }
+  };
+
+  enum Operation {
+    START,
+    STOP
+  }
+
+  boolean tryAcquire(MinecraftServer server, Operation operation);
+
+  void release(MinecraftServer server, Operation operation);
+}
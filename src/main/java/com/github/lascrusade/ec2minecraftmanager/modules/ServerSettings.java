@@ -0,0 +1,103 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.moandjiezana.toml.Toml;
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+public record ServerSettings(
+  long idleTimeout,
+  String entryPermission,
+  long probeTimeoutMillis,
+  ProbeMode probeMode,
+  long statusCacheTtlSeconds,
+  long heartbeatTimeoutSeconds,
+  StopMode stopMode,
+  long keepWarmMinutes,
+  PrewarmSettings prewarm,
+  ShutdownSettings shutdown
+) {
+  private static final long DEFAULT_IDLE_TIMEOUT = 300;
+  private static final long DEFAULT_PROBE_TIMEOUT_MILLIS = 2000;
+  private static final long DEFAULT_STATUS_CACHE_TTL = 120;
+  private static final long DEFAULT_HEARTBEAT_TIMEOUT = 45;
+  private static final long DEFAULT_KEEP_WARM_MINUTES = 15;
+
+  public long idleStopAfterSeconds() {
+    if (this.stopMode != StopMode.KEEP_WARM) return this.idleTimeout;
+    return this.idleTimeout + TimeUnit.MINUTES.toSeconds(this.keepWarmMinutes);
+  }
+
+  public static ServerSettings fromConfig(String name, Toml config, Logger logger, InvalidConfigValues invalidValues) {
+    Toml serverConfig = null;
+    Toml serversConfig = config.getTable("servers");
+    if (serversConfig != null) {
+      serverConfig = serversConfig.getTable(name);
+    }
+    if (serverConfig == null) {
+      serverConfig = new Toml();
+    }
+
+    long idleTimeout = serverConfig.getLong("idleTimeout", 0L);
+    if (idleTimeout <= 0 && serverConfig.contains("idleTimeout")) {
+      invalidValues.add("Server " + name + " timeout invalid, set the default timeout to 5 minutes");
+      idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    } else if (idleTimeout <= 0) {
+      logger.warn("Server " + name + " timeout unknown, set the default timeout to 5 minutes");
+      idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    }
+    String entryPermission = serverConfig.getString("permission");
+    if (entryPermission == null || entryPermission.trim().isEmpty()) {
+      logger.warn("Server " + name + " entry permission unknown. Be careful !! anyone can enter the server");
+      entryPermission = "";
+    }
+    long probeTimeoutMillis = serverConfig.getLong("probeTimeout", DEFAULT_PROBE_TIMEOUT_MILLIS);
+    if (probeTimeoutMillis <= 0) {
+      invalidValues.add("Server " + name + " probe timeout invalid, set the default probe timeout to 2 seconds");
+      probeTimeoutMillis = DEFAULT_PROBE_TIMEOUT_MILLIS;
+    }
+    String probeModeName = serverConfig.getString("probeMode", ProbeMode.TCP.name());
+    ProbeMode probeMode = ProbeMode.fromConfig(probeModeName);
+    if (probeMode == null) {
+      invalidValues.add(
+        "Server " + name + " probe mode " + probeModeName + " unknown, set the default probe mode to tcp"
+      );
+      probeMode = ProbeMode.TCP;
+    }
+    long statusCacheTtlSeconds = serverConfig.getLong("statusCacheTtl", DEFAULT_STATUS_CACHE_TTL);
+    if (statusCacheTtlSeconds <= 0) {
+      invalidValues.add("Server " + name + " status cache TTL invalid, set the default TTL to 2 minutes");
+      statusCacheTtlSeconds = DEFAULT_STATUS_CACHE_TTL;
+    }
+    long heartbeatTimeoutSeconds = serverConfig.getLong("heartbeatTimeout", DEFAULT_HEARTBEAT_TIMEOUT);
+    if (heartbeatTimeoutSeconds <= 0) {
+      invalidValues.add("Server " + name + " heartbeat timeout invalid, set the default timeout to 45 seconds");
+      heartbeatTimeoutSeconds = DEFAULT_HEARTBEAT_TIMEOUT;
+    }
+    String stopModeName = serverConfig.getString("stopMode", StopMode.STOP.getConfigName());
+    StopMode stopMode = StopMode.fromConfig(stopModeName);
+    if (stopMode == null) {
+      invalidValues.add(
+        "Server " + name + " stop mode " + stopModeName + " unknown, set the default stop mode to stop"
+      );
+      stopMode = StopMode.STOP;
+    }
+    long keepWarmMinutes = serverConfig.getLong("keepWarm", DEFAULT_KEEP_WARM_MINUTES);
+    if (keepWarmMinutes < 0) {
+      invalidValues.add("Server " + name + " keep warm duration invalid, set the default duration to 15 minutes");
+      keepWarmMinutes = DEFAULT_KEEP_WARM_MINUTES;
+    }
+    return new ServerSettings(
+      idleTimeout,
+      entryPermission,
+      probeTimeoutMillis,
+      probeMode,
+      statusCacheTtlSeconds,
+      heartbeatTimeoutSeconds,
+      stopMode,
+      keepWarmMinutes,
+      PrewarmSettings.fromConfig(name, serverConfig, invalidValues),
+      ShutdownSettings.fromConfig(name, serverConfig, invalidValues)
+    );
+  }
+}
@@ -0,0 +1,16 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+public record ServerStatusSnapshot(
+  String motd,
+  int onlinePlayers,
+  int maxPlayers,
+  int protocolVersion,
+  String versionName,
+  long latencyMillis,
+  long capturedAtNanos
+) {
+
+  public boolean isFresh(long nowNanos, long ttlNanos) {
+    return nowNanos - this.capturedAtNanos < ttlNanos;
+  }
+}
@@ -0,0 +1,13 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.time.ZonedDateTime;
+
+public record ShutdownContext(
+  ServerSettings settings,
+  long inactiveForSeconds,
+  long uptimeSeconds,
+  double playerActivity,
+  boolean restartedDuringCooldown,
+  ZonedDateTime wallNow
+) {
+}
@@ -0,0 +1,4 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+public record ShutdownDecision(boolean stop, ShutdownRule rule, long requiredIdleSeconds, long inactiveForSeconds) {
+}
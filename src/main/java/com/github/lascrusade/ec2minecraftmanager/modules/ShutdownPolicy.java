@@ -0,0 +1,108 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.time.Clock;
+import java.time.ZonedDateTime;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per server state the {@link ShutdownRule}s need: when the instance came up, whether it was started
+ * again soon after a stop, and a moving average of the player count that decays over the configured
+ * activity window.
+ */
+public class ShutdownPolicy {
+  private final Clock wallClock;
+
+  // Monotonic readings can be any long, including negative ones, so an unset time is an empty optional
+  private OptionalLong runningSinceNanos = OptionalLong.empty();
+  private OptionalLong stoppedAtNanos = OptionalLong.empty();
+  private boolean restartedDuringCooldown = false;
+  private double playerActivity = 0;
+  private OptionalLong activitySampledAtNanos = OptionalLong.empty();
+
+  public ShutdownPolicy(Clock wallClock) {
+    this.wallClock = wallClock;
+  }
+
+  public synchronized void onTransition(ServerLifecycle previous, ServerLifecycle next, ServerSettings settings) {
+    long now = next.enteredAtNanos();
+    ServerLifecycleState state = next.state();
+    if (state == ServerLifecycleState.STARTING) {
+      long cooldownNanos = TimeUnit.MINUTES.toNanos(settings.shutdown().cooldownMinutes());
+      this.restartedDuringCooldown = this.stoppedAtNanos.isPresent() &&
+        now - this.stoppedAtNanos.getAsLong() < cooldownNanos;
+    } else if (state == ServerLifecycleState.STOPPED) {
+      this.stoppedAtNanos = OptionalLong.of(now);
+      this.runningSinceNanos = OptionalLong.empty();
+    } else if (this.runningSinceNanos.isEmpty() && state != ServerLifecycleState.STOPPING) {
+      this.runningSinceNanos = OptionalLong.of(now);
+    }
+  }
+
+  public synchronized void recordPlayers(int playerCount, long nowNanos, ServerSettings settings) {
+    if (this.activitySampledAtNanos.isEmpty()) {
+      this.playerActivity = playerCount;
+    } else {
+      double windowNanos = TimeUnit.MINUTES.toNanos(settings.shutdown().activityWindowMinutes());
+      double weight = 1 - Math.exp(-(nowNanos - this.activitySampledAtNanos.getAsLong()) / windowNanos);
+      this.playerActivity += weight * (playerCount - this.playerActivity);
+    }
+    this.activitySampledAtNanos = OptionalLong.of(nowNanos);
+  }
+
+  public synchronized Timers getTimers() {
+    return new Timers(this.runningSinceNanos, this.stoppedAtNanos, this.restartedDuringCooldown, this.playerActivity);
+  }
+
+  public synchronized void restore(Timers timers, long nowNanos) {
+    this.runningSinceNanos = timers.runningSinceNanos();
+    this.stoppedAtNanos = timers.stoppedAtNanos();
+    this.restartedDuringCooldown = timers.restartedDuringCooldown();
+    this.playerActivity = timers.playerActivity();
+    this.activitySampledAtNanos = OptionalLong.of(nowNanos);
+  }
+
+  public synchronized double getPlayerActivity() {
+    return this.playerActivity;
+  }
+
+  public ShutdownDecision decide(ServerSettings settings, long inactiveForSeconds, long nowNanos) {
+    ShutdownContext context;
+    synchronized (this) {
+      long uptimeNanos = this.runningSinceNanos.isPresent() ? nowNanos - this.runningSinceNanos.getAsLong() : 0;
+      context = new ShutdownContext(
+        settings,
+        inactiveForSeconds,
+        TimeUnit.NANOSECONDS.toSeconds(uptimeNanos),
+        this.playerActivity,
+        this.restartedDuringCooldown,
+        ZonedDateTime.now(this.wallClock)
+      );
+    }
+    ShutdownRule firedRule = ShutdownRule.IDLE_TIMEOUT;
+    long requiredIdleSeconds = 0;
+    for (ShutdownRule rule : settings.shutdown().rules()) {
+      long required = rule.requiredIdleSeconds(context);
+      if (required > requiredIdleSeconds || (required == requiredIdleSeconds && rule == ShutdownRule.IDLE_TIMEOUT)) {
+        firedRule = rule;
+        requiredIdleSeconds = required;
+      }
+    }
+    // Keep-warm extends whichever idle time the rules ended up with
+    long keepWarmSeconds = settings.idleStopAfterSeconds() - settings.idleTimeout();
+    if (requiredIdleSeconds != ShutdownRule.NEVER) {
+      requiredIdleSeconds += keepWarmSeconds;
+    }
+    boolean stop = requiredIdleSeconds != ShutdownRule.NEVER && inactiveForSeconds > requiredIdleSeconds;
+    return new ShutdownDecision(stop, firedRule, requiredIdleSeconds, inactiveForSeconds);
+  }
+
+  // Times are monotonic clock readings, empty when not set
+  public record Timers(
+    OptionalLong runningSinceNanos,
+    OptionalLong stoppedAtNanos,
+    boolean restartedDuringCooldown,
+    double playerActivity
+  ) {
+  }
+}
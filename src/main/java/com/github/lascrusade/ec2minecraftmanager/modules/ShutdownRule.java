@@ -0,0 +1,68 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+/**
+ * Each rule tells how long (seconds) the server must have been idle before it may be stopped. The
+ * longest requirement wins, {@link #NEVER} means the rule keeps the server running for now.
+ */
+public enum ShutdownRule {
+  IDLE_TIMEOUT("idle") {
+    @Override
+    public long requiredIdleSeconds(ShutdownContext context) {
+      return context.settings().idleTimeout();
+    }
+  },
+  MIN_UPTIME("minUptime") {
+    @Override
+    public long requiredIdleSeconds(ShutdownContext context) {
+      long minUptimeSeconds = context.settings().shutdown().minUptimeMinutes() * 60;
+      return context.uptimeSeconds() < minUptimeSeconds ? NEVER : 0;
+    }
+  },
+  ACTIVITY("activity") {
+    @Override
+    public long requiredIdleSeconds(ShutdownContext context) {
+      ShutdownSettings shutdown = context.settings().shutdown();
+      long idleTimeout = context.settings().idleTimeout();
+      long extended = (long) (idleTimeout * (1 + shutdown.activityFactor() * context.playerActivity()));
+      return Math.max(idleTimeout, Math.min(extended, shutdown.activityMaxIdleSeconds()));
+    }
+  },
+  KEEP_ALIVE("keepAlive") {
+    @Override
+    public long requiredIdleSeconds(ShutdownContext context) {
+      for (KeepAliveWindow window : context.settings().shutdown().keepAliveWindows()) {
+        if (window.contains(context.wallNow())) return NEVER;
+      }
+      return 0;
+    }
+  },
+  RESTART_COOLDOWN("cooldown") {
+    @Override
+    public long requiredIdleSeconds(ShutdownContext context) {
+      if (!context.restartedDuringCooldown()) return 0;
+      return (long) (context.settings().idleTimeout() * context.settings().shutdown().cooldownFactor());
+    }
+  };
+
+  public static final long NEVER = Long.MAX_VALUE;
+
+  private final String configName;
+
+  ShutdownRule(String configName) {
+    this.configName = configName;
+  }
+
+  public String getConfigName() {
+    return this.configName;
+  }
+
+  public abstract long requiredIdleSeconds(ShutdownContext context);
+
+  public static ShutdownRule fromConfig(String value) {
+    if (value == null) return null;
+    for (ShutdownRule rule : values()) {
+      if (rule.configName.equalsIgnoreCase(value.trim())) return rule;
+    }
+    return null;
+  }
+}
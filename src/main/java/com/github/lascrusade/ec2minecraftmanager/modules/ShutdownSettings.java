@@ -0,0 +1,89 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.moandjiezana.toml.Toml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+public record ShutdownSettings(
+  Set<ShutdownRule> rules,
+  long minUptimeMinutes,
+  double activityFactor,
+  long activityWindowMinutes,
+  long activityMaxIdleSeconds,
+  List<KeepAliveWindow> keepAliveWindows,
+  long cooldownMinutes,
+  double cooldownFactor
+) {
+  private static final long DEFAULT_MIN_UPTIME_MINUTES = 30;
+  private static final double DEFAULT_ACTIVITY_FACTOR = 0.5;
+  private static final long DEFAULT_ACTIVITY_WINDOW_MINUTES = 60;
+  private static final long DEFAULT_ACTIVITY_MAX_IDLE = 3600;
+  private static final long DEFAULT_COOLDOWN_MINUTES = 30;
+  private static final double DEFAULT_COOLDOWN_FACTOR = 2.0;
+
+  public static ShutdownSettings fromConfig(String name, Toml serverConfig, InvalidConfigValues invalidValues) {
+    // The idle timeout always applies, the other rules only when listed
+    Set<ShutdownRule> rules = EnumSet.of(ShutdownRule.IDLE_TIMEOUT);
+    for (String ruleName : serverConfig.<String>getList("shutdownRules", List.of())) {
+      ShutdownRule rule = ShutdownRule.fromConfig(ruleName);
+      if (rule == null) {
+        invalidValues.add("Server " + name + " shutdown rule " + ruleName + " unknown, ignoring it");
+      } else {
+        rules.add(rule);
+      }
+    }
+    long minUptimeMinutes = serverConfig.getLong("minUptime", DEFAULT_MIN_UPTIME_MINUTES);
+    if (minUptimeMinutes < 0) {
+      invalidValues.add("Server " + name + " minimum uptime invalid, set the default minimum uptime to 30 minutes");
+      minUptimeMinutes = DEFAULT_MIN_UPTIME_MINUTES;
+    }
+    double activityFactor = serverConfig.getDouble("activityFactor", DEFAULT_ACTIVITY_FACTOR);
+    if (activityFactor < 0) {
+      invalidValues.add("Server " + name + " activity factor invalid, set the default factor to 0.5");
+      activityFactor = DEFAULT_ACTIVITY_FACTOR;
+    }
+    long activityWindowMinutes = serverConfig.getLong("activityWindow", DEFAULT_ACTIVITY_WINDOW_MINUTES);
+    if (activityWindowMinutes <= 0) {
+      invalidValues.add("Server " + name + " activity window invalid, set the default window to 60 minutes");
+      activityWindowMinutes = DEFAULT_ACTIVITY_WINDOW_MINUTES;
+    }
+    long activityMaxIdleSeconds = serverConfig.getLong("activityMaxIdle", DEFAULT_ACTIVITY_MAX_IDLE);
+    if (activityMaxIdleSeconds <= 0) {
+      invalidValues.add("Server " + name + " activity max idle invalid, set the default max idle to 1 hour");
+      activityMaxIdleSeconds = DEFAULT_ACTIVITY_MAX_IDLE;
+    }
+    List<KeepAliveWindow> keepAliveWindows = new ArrayList<>();
+    for (String window : serverConfig.<String>getList("keepAliveWindows", List.of())) {
+      try {
+        keepAliveWindows.add(KeepAliveWindow.parse(window));
+      } catch (IllegalArgumentException e) {
+        invalidValues.add("Server " + name + " " + e.getMessage() + ", ignoring it");
+      }
+    }
+    long cooldownMinutes = serverConfig.getLong("cooldown", DEFAULT_COOLDOWN_MINUTES);
+    if (cooldownMinutes < 0) {
+      invalidValues.add("Server " + name + " restart cooldown invalid, set the default cooldown to 30 minutes");
+      cooldownMinutes = DEFAULT_COOLDOWN_MINUTES;
+    }
+    double cooldownFactor = serverConfig.getDouble("cooldownFactor", DEFAULT_COOLDOWN_FACTOR);
+    if (cooldownFactor < 1) {
+      invalidValues.add("Server " + name + " cooldown factor invalid, set the default factor to 2");
+      cooldownFactor = DEFAULT_COOLDOWN_FACTOR;
+    }
+    // Still an EnumSet underneath, the rules are weighed in declaration order so a tie reports the same rule
+    return new ShutdownSettings(
+      Collections.unmodifiableSet(rules),
+      minUptimeMinutes,
+      activityFactor,
+      activityWindowMinutes,
+      activityMaxIdleSeconds,
+      List.copyOf(keepAliveWindows),
+      cooldownMinutes,
+      cooldownFactor
+    );
+  }
+}
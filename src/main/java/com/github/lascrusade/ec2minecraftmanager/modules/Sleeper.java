@@ -0,0 +1,14 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits on the same time base as the {@link MonotonicClock} it comes with, so code that paces itself
+ * runs on virtual time under the simulator and in tests.
+ */
+@FunctionalInterface
+public interface Sleeper {
+  Sleeper SYSTEM = TimeUnit.NANOSECONDS::sleep;
+
+  void sleep(long durationNanos) throws InterruptedException;
+}
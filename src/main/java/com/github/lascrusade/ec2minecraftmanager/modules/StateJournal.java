@@ -0,0 +1,338 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the server lifecycles, so a proxy restart resumes idle countdowns, uptimes and
+ * in-flight starts instead of starting over from stopped. Every record is framed by its length and a
+ * CRC32; replay stops at the first torn or corrupt record, which only loses the latest transitions.
+ * Times are stored as wall clock milliseconds since monotonic readings do not survive the process.
+ * <p>
+ * Transitions happen on Velocity event threads, so the file is only ever written by a single background
+ * writer that appends the records in the order the transitions were journaled.
+ */
+public class StateJournal implements ServerLifecycleListener {
+  private static final int MAGIC = 0x534a524e;
+  private static final int VERSION = 2;
+  private static final byte RECORD_SERVER = 1;
+  private static final byte RECORD_REMOVED = 2;
+  private static final int MAX_RECORD_BYTES = 64 * 1024;
+  private static final int MIN_RECORDS_BEFORE_COMPACTION = 1000;
+
+  private final Path file;
+  private final Clock wallClock;
+  private final MonotonicClock clock;
+  private final Logger logger;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+    Thread thread = new Thread(task, "ec2minecraftmanager-state-journal");
+    thread.setDaemon(true);
+    return thread;
+  });
+  // Only touched by the writer
+  private DataOutputStream output = null;
+  private int recordsSinceCompaction = 0;
+
+  public StateJournal(Path file, Clock wallClock, MonotonicClock clock, Logger logger) {
+    this.file = file;
+    this.wallClock = wallClock;
+    this.clock = clock;
+    this.logger = logger;
+  }
+
+  // Replays the journal then has it rewritten compacted, which also drops a torn tail
+  public synchronized void load() {
+    if (Files.exists(this.file)) {
+      try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.file)))) {
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+          this.logger.warn("State journal " + this.file + " has an unknown format, ignoring it");
+        } else {
+          this.replay(input);
+        }
+      } catch (EOFException e) {
+        this.logger.warn("State journal " + this.file + " is truncated, ignoring it");
+      } catch (IOException e) {
+        this.logger.error("Failed to read state journal because: " + e);
+      }
+    }
+    this.write(this::compact);
+  }
+
+  private void replay(DataInputStream input) throws IOException {
+    CRC32 crc = new CRC32();
+    int records = 0;
+    while (true) {
+      int length;
+      try {
+        length = input.readInt();
+      } catch (EOFException e) {
+        break;
+      }
+      try {
+        if (length <= 0 || length > MAX_RECORD_BYTES) {
+          throw new IOException("invalid record length " + length);
+        }
+        long checksum = input.readInt() & 0xFFFFFFFFL;
+        byte[] payload = new byte[length];
+        input.readFully(payload);
+        crc.reset();
+        crc.update(payload);
+        if (crc.getValue() != checksum) {
+          throw new IOException("checksum mismatch");
+        }
+        this.apply(new DataInputStream(new ByteArrayInputStream(payload)));
+        records++;
+      } catch (IOException | IllegalArgumentException e) {
+        this.logger.warn("State journal replay stopped after " + records + " records because of a damaged record: " + e);
+        break;
+      }
+    }
+    this.logger.info("Replayed " + records + " state journal records for " + this.entries.size() + " servers");
+  }
+
+  private void apply(DataInputStream record) throws IOException {
+    byte type = record.readByte();
+    String name = record.readUTF();
+    if (type == RECORD_REMOVED) {
+      this.entries.remove(name);
+      return;
+    }
+    if (type != RECORD_SERVER) throw new IOException("unknown record type " + type);
+    Entry entry = new Entry(
+      record.readUTF(),
+      ServerLifecycleState.valueOf(record.readUTF()),
+      record.readLong(),
+      record.readLong(),
+      readOptionalLong(record),
+      readOptionalLong(record),
+      record.readBoolean(),
+      record.readDouble()
+    );
+    this.entries.put(name, entry);
+  }
+
+  // Restores the server if the journal knows it on the same instance. A stop cut short by the restart
+  // comes back as idle, the instance is stopped again once the poll confirms it still runs idle. A start
+  // cut short comes back as booting: nothing re-issues it, the first poll soon after finds the instance
+  // either coming up or still stopped
+  public synchronized boolean restore(MinecraftServer server) {
+    Entry entry = this.entries.get(server.getName());
+    if (entry == null || !entry.instanceId().equals(server.getAWSInstanceId())) return false;
+    ServerLifecycleState state = switch (entry.state()) {
+      case STOPPING -> ServerLifecycleState.IDLE;
+      case STARTING -> ServerLifecycleState.BOOTING;
+      default -> entry.state();
+    };
+    ServerLifecycle lifecycle = new ServerLifecycle(
+      state,
+      this.toNanos(entry.enteredAtMillis()),
+      this.toNanos(entry.inactiveSinceMillis())
+    );
+    ShutdownPolicy.Timers timers = new ShutdownPolicy.Timers(
+      this.toOptionalNanos(entry.runningSinceMillis()),
+      this.toOptionalNanos(entry.stoppedAtMillis()),
+      entry.restartedDuringCooldown(),
+      entry.playerActivity()
+    );
+    return server.restore(lifecycle, timers);
+  }
+
+  @Override
+  public void onTransition(MinecraftServer server, ServerLifecycle previous, ServerLifecycle next) {
+    // A stopping server keeps the idle countdown it was stopped for
+    long inactiveSince = next.state() == ServerLifecycleState.STOPPING && previous.isCountingInactivity() ?
+      previous.inactiveSinceNanos() : next.inactiveSinceNanos();
+    ShutdownPolicy.Timers timers = server.getShutdownTimers();
+    Entry entry = new Entry(
+      server.getAWSInstanceId(),
+      next.state(),
+      this.toMillis(next.enteredAtNanos()),
+      this.toMillis(inactiveSince),
+      this.toOptionalMillis(timers.runningSinceNanos()),
+      this.toOptionalMillis(timers.stoppedAtNanos()),
+      timers.restartedDuringCooldown(),
+      timers.playerActivity()
+    );
+    // Queued under the lock so the records land in the same order as the entries
+    synchronized (this) {
+      this.entries.put(server.getName(), entry);
+      this.write(() -> this.append(RECORD_SERVER, server.getName(), entry));
+    }
+  }
+
+  // A server replaced by one on another instance is left alone, its successor's records overwrite it
+  public synchronized void remove(MinecraftServer server) {
+    Entry entry = this.entries.get(server.getName());
+    if (entry == null || !entry.instanceId().equals(server.getAWSInstanceId())) return;
+    this.entries.remove(server.getName());
+    this.write(() -> this.append(RECORD_REMOVED, server.getName(), null));
+  }
+
+  public void compactIfNeeded() {
+    this.write(() -> {
+      int servers;
+      synchronized (this) {
+        servers = this.entries.size();
+      }
+      if (this.recordsSinceCompaction < Math.max(MIN_RECORDS_BEFORE_COMPACTION, servers * 4)) return;
+      this.compact();
+    });
+  }
+
+  // Writes the last records and a compacted journal, then stops the writer
+  public void close() {
+    this.write(() -> {
+      this.compact();
+      this.closeOutput();
+    });
+    this.writer.shutdown();
+    try {
+      if (!this.writer.awaitTermination(5, TimeUnit.SECONDS)) {
+        this.logger.warn("State journal writer did not finish in time, the latest transitions may be lost");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void write(Runnable task) {
+    try {
+      this.writer.execute(task);
+    } catch (RejectedExecutionException e) {
+      // Closed with the proxy, the transitions after the final compaction are not kept
+    }
+  }
+
+  // Rewrites the journal with one record per server, then keeps appending to the new file. Runs on the
+  // writer, a record journaled meanwhile is in the snapshot or appended after it
+  private void compact() {
+    Map<String, Entry> snapshot;
+    synchronized (this) {
+      snapshot = new HashMap<>(this.entries);
+    }
+    this.closeOutput();
+    Path temporaryFile = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(this.file.getParent());
+      try (DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temporaryFile))
+      )) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        for (Map.Entry<String, Entry> entry : snapshot.entrySet()) {
+          output.write(frame(RECORD_SERVER, entry.getKey(), entry.getValue()));
+        }
+      }
+      Files.move(temporaryFile, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      this.recordsSinceCompaction = 0;
+    } catch (IOException e) {
+      this.logger.error("Failed to compact state journal because: " + e);
+    }
+  }
+
+  // Records are flushed to the OS right away, which survives a crash of the proxy process
+  private void append(byte type, String name, Entry entry) {
+    try {
+      if (this.output == null) {
+        this.output = new DataOutputStream(new FileOutputStream(this.file.toFile(), true));
+      }
+      this.output.write(frame(type, name, entry));
+      this.output.flush();
+      this.recordsSinceCompaction++;
+    } catch (IOException e) {
+      this.logger.error("Failed to append to state journal because: " + e);
+      this.closeOutput();
+    }
+  }
+
+  private static byte[] frame(byte type, String name, Entry entry) throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream(128);
+    try (DataOutputStream record = new DataOutputStream(payload)) {
+      record.writeByte(type);
+      record.writeUTF(name);
+      if (entry != null) {
+        record.writeUTF(entry.instanceId());
+        record.writeUTF(entry.state().name());
+        record.writeLong(entry.enteredAtMillis());
+        record.writeLong(entry.inactiveSinceMillis());
+        writeOptionalLong(record, entry.runningSinceMillis());
+        writeOptionalLong(record, entry.stoppedAtMillis());
+        record.writeBoolean(entry.restartedDuringCooldown());
+        record.writeDouble(entry.playerActivity());
+      }
+    }
+    CRC32 crc = new CRC32();
+    crc.update(payload.toByteArray());
+    ByteArrayOutputStream framed = new ByteArrayOutputStream(payload.size() + 8);
+    try (DataOutputStream output = new DataOutputStream(framed)) {
+      output.writeInt(payload.size());
+      output.writeInt((int) crc.getValue());
+      payload.writeTo(output);
+    }
+    return framed.toByteArray();
+  }
+
+  private void closeOutput() {
+    if (this.output == null) return;
+    try {
+      this.output.close();
+    } catch (IOException e) {
+      this.logger.warn("Failed to close state journal because: " + e);
+    }
+    this.output = null;
+  }
+
+  private long toMillis(long nanos) {
+    return this.wallClock.millis() - TimeUnit.NANOSECONDS.toMillis(this.clock.nanoTime() - nanos);
+  }
+
+  private long toNanos(long millis) {
+    return this.clock.nanoTime() - TimeUnit.MILLISECONDS.toNanos(this.wallClock.millis() - millis);
+  }
+
+  private OptionalLong toOptionalMillis(OptionalLong nanos) {
+    return nanos.isPresent() ? OptionalLong.of(this.toMillis(nanos.getAsLong())) : OptionalLong.empty();
+  }
+
+  private OptionalLong toOptionalNanos(OptionalLong millis) {
+    return millis.isPresent() ? OptionalLong.of(this.toNanos(millis.getAsLong())) : OptionalLong.empty();
+  }
+
+  // A presence flag then the value, an unset timer is never confused with a time
+  private static void writeOptionalLong(DataOutputStream output, OptionalLong value) throws IOException {
+    output.writeBoolean(value.isPresent());
+    output.writeLong(value.orElse(0));
+  }
+
+  private static OptionalLong readOptionalLong(DataInputStream input) throws IOException {
+    boolean present = input.readBoolean();
+    long value = input.readLong();
+    return present ? OptionalLong.of(value) : OptionalLong.empty();
+  }
+
+  private record Entry(
+    String instanceId,
+    ServerLifecycleState state,
+    long enteredAtMillis,
+    long inactiveSinceMillis,
+    OptionalLong runningSinceMillis,
+    OptionalLong stoppedAtMillis,
+    boolean restartedDuringCooldown,
+    double playerActivity
+  ) {
+  }
+}
@@ -0,0 +1,25 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+public enum StopMode {
+  STOP("stop"),
+  HIBERNATE("hibernate"),
+  KEEP_WARM("keep-warm");
+
+  private final String configName;
+
+  StopMode(String configName) {
+    this.configName = configName;
+  }
+
+  public String getConfigName() {
+    return this.configName;
+  }
+
+  public static StopMode fromConfig(String value) {
+    if (value == null) return null;
+    for (StopMode mode : values()) {
+      if (mode.configName.equalsIgnoreCase(value.trim())) return mode;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,34 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side rate limit. A call takes a token right away even when the bucket is empty and is told
+ * how long to wait for it, so callers are served in arrival order without spinning.
+ */
+public class TokenBucket {
+  private final double ratePerSecond;
+  private final double burst;
+  private final MonotonicClock clock;
+  private double tokens;
+  private long refilledAtNanos;
+
+  public TokenBucket(double ratePerSecond, double burst, MonotonicClock clock) {
+    this.ratePerSecond = ratePerSecond;
+    this.burst = burst;
+    this.clock = clock;
+    this.tokens = burst;
+    this.refilledAtNanos = clock.nanoTime();
+  }
+
+  // Takes one token and returns how long (nanoseconds) the caller must wait before using it
+  public synchronized long reserve() {
+    long now = this.clock.nanoTime();
+    double elapsedSeconds = (now - this.refilledAtNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+    this.tokens = Math.min(this.burst, this.tokens + elapsedSeconds * this.ratePerSecond);
+    this.refilledAtNanos = now;
+    this.tokens -= 1;
+    if (this.tokens >= 0) return 0;
+    return (long) (-this.tokens / this.ratePerSecond * TimeUnit.SECONDS.toNanos(1));
+  }
+}
@@ -6,12 +6,8 @@ import org.slf4j.Logger;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
 
 public class Utilities {
-
   public static Toml parseConfig(Path fromPath, Logger logger) {
     Toml output = new Toml();
     try {
@@ -66,41 +62,4 @@ public class Utilities {
       logger.error("Failed to get dummy config file because: " + e);
     }
   }
-
-
-  public static List<String> runBash(String command) throws RuntimeException, IOException {
-    ProcessBuilder processBuilder = new ProcessBuilder();
-    processBuilder.command("bash", "-c", command);
-    Process process = processBuilder.start();
-    String errorMsg = Utilities.getCmdlineErrorMsg(process);
-    if(!Objects.equals(errorMsg, "")) {
-      throw new RuntimeException("Failed to execute shell command '" + command + "' because: " + errorMsg);
-    }
-    List<String> cmdOutputLines = new ArrayList<>();
-    String cmdOutputLine;
-    BufferedReader cmdOutput = new BufferedReader(new InputStreamReader(process.getInputStream()));
-    while ((cmdOutputLine = cmdOutput.readLine()) != null) {
-      cmdOutputLines.add(cmdOutputLine);
-    }
-    return cmdOutputLines;
-  }
-
-  private static String getCmdlineErrorMsg(Process process) {
-    try {
-      boolean isError = false;
-      StringBuilder cmdOutputStringBuilder = new StringBuilder();
-      String cmdErrLine;
-      BufferedReader cmdError = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-      while ((cmdErrLine = cmdError.readLine()) != null) {
-        isError = true;
-        cmdOutputStringBuilder.append("/n").append(cmdErrLine);
-      }
-      if(!isError) {
-        return "";
-      }
-      return cmdOutputStringBuilder.toString();
-    } catch (IOException e) {
-      return e.toString();
-    }
-  }
 }
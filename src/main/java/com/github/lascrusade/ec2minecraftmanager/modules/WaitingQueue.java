@@ -0,0 +1,226 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class WaitingQueue implements ServerLifecycleListener {
+  private static final long START_RETRY_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+  private volatile QueueSettings settings;
+  private final ProxyServer proxyServer;
+  private final PlayerEventNotifier playerEventNotif;
+  private final MonotonicClock clock;
+  private final Logger logger;
+  private final Map<MinecraftServer, ServerQueue> queues = new HashMap<>();
+  private final Map<UUID, QueuedPlayer> queuedPlayers = new HashMap<>();
+  private final Map<MinecraftServer, Long> bootStartedAt = new ConcurrentHashMap<>();
+
+  public WaitingQueue(QueueSettings settings, ProxyServer proxyServer, MonotonicClock clock, Logger logger) {
+    this.settings = settings;
+    this.proxyServer = proxyServer;
+    this.playerEventNotif = new PlayerEventNotifier(logger);
+    this.clock = clock;
+    this.logger = logger;
+  }
+
+  public QueueSettings getSettings() {
+    return this.settings;
+  }
+
+  public void updateSettings(QueueSettings settings) {
+    this.settings = settings;
+  }
+
+  public Optional<RegisteredServer> getFallbackServer() {
+    QueueSettings settings = this.settings;
+    if (!settings.isEnabled()) return Optional.empty();
+    return this.proxyServer.getServer(settings.fallbackServer());
+  }
+
+  public synchronized boolean isQueued(Player player, MinecraftServer server) {
+    QueuedPlayer queued = this.queuedPlayers.get(player.getUniqueId());
+    return queued != null && queued.server == server;
+  }
+
+  public synchronized int getQueueSize(MinecraftServer server) {
+    ServerQueue queue = this.queues.get(server);
+    return queue == null ? 0 : queue.players.size();
+  }
+
+  // Returns the 1-based position of the player in the queue of the server
+  public synchronized int enqueue(Player player, MinecraftServer server) {
+    long now = this.clock.nanoTime();
+    QueuedPlayer queued = this.queuedPlayers.get(player.getUniqueId());
+    if (queued != null && queued.server != server) {
+      this.remove(player);
+      queued = null;
+    }
+    ServerQueue queue = this.queues.computeIfAbsent(server, ignored -> new ServerQueue(now));
+    if (queued == null) {
+      queued = new QueuedPlayer(player, server, now);
+      this.queuedPlayers.put(player.getUniqueId(), queued);
+      queue.players.add(queued);
+      this.logger.info(
+        "Player " + player.getUsername() + " queued for server " + server.getName() + " at " + queue.players.size()
+      );
+    }
+    return queue.positionOf(queued);
+  }
+
+  public synchronized void remove(Player player) {
+    QueuedPlayer queued = this.queuedPlayers.remove(player.getUniqueId());
+    if (queued == null) return;
+    ServerQueue queue = this.queues.get(queued.server);
+    if (queue != null) queue.players.remove(queued);
+  }
+
+  // Players queued for a server that moved to another instance keep their place on the replacement, a
+  // server gone for good (replacement null) lets its players go
+  public void replace(MinecraftServer server, MinecraftServer replacement) {
+    List<Player> released = new ArrayList<>();
+    synchronized (this) {
+      this.bootStartedAt.remove(server);
+      ServerQueue queue = this.queues.remove(server);
+      if (queue == null) return;
+      if (replacement != null) {
+        ServerQueue target = this.queues.computeIfAbsent(replacement, ignored -> new ServerQueue(this.clock.nanoTime()));
+        for (QueuedPlayer queued : queue.players) {
+          QueuedPlayer moved = new QueuedPlayer(queued.player, replacement, queued.queuedAtNanos);
+          this.queuedPlayers.put(queued.player.getUniqueId(), moved);
+          target.players.add(moved);
+        }
+        return;
+      }
+      for (QueuedPlayer queued : queue.players) {
+        this.queuedPlayers.remove(queued.player.getUniqueId());
+        released.add(queued.player);
+      }
+    }
+    for (Player player : released) {
+      this.playerEventNotif.queueTimedOut(player, server.getName());
+    }
+  }
+
+  public void tick() {
+    List<Runnable> actions = new ArrayList<>();
+    synchronized (this) {
+      long now = this.clock.nanoTime();
+      Iterator<Map.Entry<MinecraftServer, ServerQueue>> iterator = this.queues.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<MinecraftServer, ServerQueue> entry = iterator.next();
+        this.tick(entry.getKey(), entry.getValue(), now, actions);
+        if (entry.getValue().players.isEmpty()) iterator.remove();
+      }
+    }
+    for (Runnable action : actions) {
+      try {
+        action.run();
+      } catch (RuntimeException e) {
+        this.logger.error("Queue action failed because: " + e);
+      }
+    }
+  }
+
+  private void tick(MinecraftServer server, ServerQueue queue, long now, List<Runnable> actions) {
+    String serverName = server.getName();
+    long maxWaitNanos = TimeUnit.SECONDS.toNanos(this.settings.maxWaitSeconds());
+    Iterator<QueuedPlayer> iterator = queue.players.iterator();
+    while (iterator.hasNext()) {
+      QueuedPlayer queued = iterator.next();
+      if (!queued.player.isActive()) {
+        iterator.remove();
+        this.queuedPlayers.remove(queued.player.getUniqueId());
+      } else if (now - queued.queuedAtNanos > maxWaitNanos) {
+        iterator.remove();
+        this.queuedPlayers.remove(queued.player.getUniqueId());
+        actions.add(() -> this.playerEventNotif.queueTimedOut(queued.player, serverName));
+      }
+    }
+    if (queue.players.isEmpty()) return;
+
+    if (server.isOnline()) {
+      queue.refill(now, this.settings.connectsPerSecond());
+      RegisteredServer target = server.getVelocityServer();
+      while (queue.tokens >= 1 && !queue.players.isEmpty()) {
+        QueuedPlayer queued = queue.players.poll();
+        this.queuedPlayers.remove(queued.player.getUniqueId());
+        queue.tokens -= 1;
+        actions.add(() -> {
+          this.playerEventNotif.queueTransfer(queued.player, serverName);
+          queued.player.createConnectionRequest(target).fireAndForget();
+        });
+      }
+      return;
+    }
+    queue.refilledAtNanos = now;
+
+    if (server.getLifecycleState() == ServerLifecycleState.STOPPED && now - queue.startAttemptNanos >= START_RETRY_NANOS) {
+      queue.startAttemptNanos = now;
+      actions.add(server::start);
+    }
+    if (now - queue.progressSentNanos < TimeUnit.SECONDS.toNanos(this.settings.progressIntervalSeconds())) return;
+    queue.progressSentNanos = now;
+    int size = queue.players.size();
+    int position = 0;
+    for (QueuedPlayer queued : queue.players) {
+      int playerPosition = ++position;
+      long waitingSince = this.bootStartedAt.getOrDefault(server, queued.queuedAtNanos);
+      long elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(now - waitingSince);
+      actions.add(() -> this.playerEventNotif.queueProgress(
+        queued.player,
+        serverName,
+        playerPosition,
+        size,
+        elapsedSeconds
+      ));
+    }
+  }
+
+  @Override
+  public void onTransition(MinecraftServer server, ServerLifecycle previous, ServerLifecycle next) {
+    if (next.state() == ServerLifecycleState.STARTING) {
+      this.bootStartedAt.put(server, next.enteredAtNanos());
+    } else if (next.state() != ServerLifecycleState.BOOTING) {
+      this.bootStartedAt.remove(server);
+    }
+  }
+
+  private record QueuedPlayer(Player player, MinecraftServer server, long queuedAtNanos) {
+  }
+
+  private static class ServerQueue {
+    private final Deque<QueuedPlayer> players = new ArrayDeque<>();
+    private double tokens;
+    private long refilledAtNanos;
+    private long startAttemptNanos;
+    private long progressSentNanos;
+
+    private ServerQueue(long now) {
+      this.refilledAtNanos = now;
+      this.startAttemptNanos = now;
+      this.progressSentNanos = now;
+    }
+
+    private int positionOf(QueuedPlayer queued) {
+      int position = 0;
+      for (QueuedPlayer player : this.players) {
+        position++;
+        if (player == queued) return position;
+      }
+      return -1;
+    }
+
+    // The bucket only fills while the server is ready, so the first batch after a boot is capped too
+    private void refill(long now, double connectsPerSecond) {
+      double elapsedSeconds = (now - this.refilledAtNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+      this.tokens = Math.min(Math.max(1, connectsPerSecond), this.tokens + elapsedSeconds * connectsPerSecond);
+      this.refilledAtNanos = now;
+    }
+  }
+}
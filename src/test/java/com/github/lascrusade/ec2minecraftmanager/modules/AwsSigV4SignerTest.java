@@ -0,0 +1,51 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Vectors of the AWS Signature Version 4 test suite, signed with its example credentials.
+ */
+class AwsSigV4SignerTest {
+  private static final URI ENDPOINT = URI.create("https://example.amazonaws.com/");
+  private static final Instant NOW = Instant.parse("2015-08-30T12:36:00Z");
+
+  private final AwsSigV4Signer signer =
+    new AwsSigV4Signer("us-east-1", "service", "AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY");
+
+  @Test
+  void signsPostXWwwFormUrlencoded() {
+    HttpRequest request = this.sign("application/x-www-form-urlencoded", "Param1=value1");
+
+    assertEquals("20150830T123600Z", request.headers().firstValue("X-Amz-Date").orElseThrow());
+    assertEquals(
+      "AWS4-HMAC-SHA256 Credential=AKIDEXAMPLE/20150830/us-east-1/service/aws4_request, " +
+        "SignedHeaders=content-type;host;x-amz-date, " +
+        "Signature=ff11897932ad3f4e8b18135d722051e5ac45fc38421b1da7b9d196a0fe09473a",
+      request.headers().firstValue("Authorization").orElseThrow()
+    );
+  }
+
+  @Test
+  void signsPostXWwwFormUrlencodedWithCharset() {
+    HttpRequest request = this.sign("application/x-www-form-urlencoded; charset=utf8", "Param1=value1");
+
+    assertEquals(
+      "AWS4-HMAC-SHA256 Credential=AKIDEXAMPLE/20150830/us-east-1/service/aws4_request, " +
+        "SignedHeaders=content-type;host;x-amz-date, " +
+        "Signature=1a72ec8f64bd914b0e42e42607c7fbce7fb2c7465f63e3092b3b0d39fa77a6fe",
+      request.headers().firstValue("Authorization").orElseThrow()
+    );
+  }
+
+  private HttpRequest sign(String contentType, String body) {
+    HttpRequest.Builder request = HttpRequest.newBuilder(ENDPOINT).POST(HttpRequest.BodyPublishers.ofString(body));
+    this.signer.signPost(request, ENDPOINT, contentType, body, NOW);
+    return request.build();
+  }
+}
@@ -0,0 +1,93 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+  private static final long OPEN_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+  private final TestFixtures.ManualClock clock = new TestFixtures.ManualClock();
+  private final CircuitBreaker breaker = new CircuitBreaker(3, OPEN_NANOS, this.clock);
+
+  private void open() {
+    for (int failure = 0; failure < 3; failure++) {
+      this.breaker.tryAcquire();
+      this.breaker.recordFailure();
+    }
+  }
+
+  @Test
+  void opensAfterConsecutiveFailures() {
+    assertFalse(this.breaker.recordFailure());
+    assertFalse(this.breaker.recordFailure());
+    assertTrue(this.breaker.recordFailure());
+
+    assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+    assertFalse(this.breaker.tryAcquire());
+  }
+
+  @Test
+  void successResetsTheFailureCount() {
+    this.breaker.recordFailure();
+    this.breaker.recordFailure();
+    assertFalse(this.breaker.recordSuccess());
+    this.breaker.recordFailure();
+    this.breaker.recordFailure();
+
+    assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+    assertTrue(this.breaker.tryAcquire());
+  }
+
+  @Test
+  void letsASingleTrialThroughOnceTheOpenTimeIsOver() {
+    this.open();
+
+    this.clock.advance(OPEN_NANOS - 1);
+    assertFalse(this.breaker.tryAcquire());
+    this.clock.advance(1);
+    assertTrue(this.breaker.tryAcquire());
+
+    assertEquals(CircuitBreaker.State.HALF_OPEN, this.breaker.getState());
+    assertFalse(this.breaker.tryAcquire());
+  }
+
+  @Test
+  void successfulTrialClosesTheBreaker() {
+    this.open();
+    this.clock.advance(OPEN_NANOS);
+    this.breaker.tryAcquire();
+
+    assertTrue(this.breaker.recordSuccess());
+
+    assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+    assertTrue(this.breaker.tryAcquire());
+  }
+
+  @Test
+  void failedTrialOpensTheBreakerForAnotherPeriod() {
+    this.open();
+    this.clock.advance(OPEN_NANOS);
+    this.breaker.tryAcquire();
+
+    assertTrue(this.breaker.recordFailure());
+
+    assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+    this.clock.advance(OPEN_NANOS - 1);
+    assertFalse(this.breaker.tryAcquire());
+  }
+
+  @Test
+  void failuresReportedWhileOpenDoNotReopenIt() {
+    this.open();
+
+    assertFalse(this.breaker.recordFailure());
+    this.clock.advance(OPEN_NANOS);
+    assertTrue(this.breaker.tryAcquire());
+  }
+}
@@ -0,0 +1,119 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * DescribeInstanceStatus against a local fake EC2 endpoint that fails a batch naming a deleted
+ * instance, like the real API does.
+ */
+class EC2ClientTest {
+  private final Map<String, String> instances = new HashMap<>();
+  private final AtomicInteger calls = new AtomicInteger();
+  private HttpServer httpServer;
+  private EC2Client client;
+
+  @BeforeEach
+  void startFakeEndpoint() throws IOException {
+    this.httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    this.httpServer.createContext("/", exchange -> {
+      this.calls.incrementAndGet();
+      List<String> instanceIds = new ArrayList<>();
+      String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+      for (String param : body.split("&")) {
+        String[] pair = param.split("=", 2);
+        if (pair[0].startsWith("InstanceId.")) instanceIds.add(URLDecoder.decode(pair[1], StandardCharsets.UTF_8));
+      }
+      int status = 200;
+      StringBuilder response = new StringBuilder();
+      List<String> missing = instanceIds.stream().filter(id -> !this.instances.containsKey(id)).toList();
+      if (!missing.isEmpty()) {
+        status = 400;
+        response.append("<Response><Errors><Error><Code>InvalidInstanceID.NotFound</Code><Message>")
+          .append("The instance IDs '").append(String.join(", ", missing)).append("' do not exist")
+          .append("</Message></Error></Errors></Response>");
+      } else {
+        response.append("<DescribeInstanceStatusResponse><instanceStatusSet>");
+        for (String instanceId : instanceIds) {
+          response.append("<item><instanceId>").append(instanceId).append("</instanceId><instanceState><name>")
+            .append(this.instances.get(instanceId)).append("</name></instanceState></item>");
+        }
+        response.append("</instanceStatusSet></DescribeInstanceStatusResponse>");
+      }
+      byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(status, bytes.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(bytes);
+      }
+    });
+    this.httpServer.start();
+    this.client = new EC2Client(
+      "us-east-1",
+      "AKIDEXAMPLE",
+      "secret",
+      "http://127.0.0.1:" + this.httpServer.getAddress().getPort() + "/"
+    );
+  }
+
+  @AfterEach
+  void stopFakeEndpoint() {
+    this.httpServer.stop(0);
+  }
+
+  @Test
+  void describesEveryInstanceOfTheBatch() throws IOException {
+    this.instances.put("i-1", "running");
+    this.instances.put("i-2", "stopped");
+
+    Map<String, InstanceState> states = this.client.describeInstanceStates(List.of("i-1", "i-2"));
+
+    assertEquals(Map.of("i-1", InstanceState.RUNNING, "i-2", InstanceState.STOPPED), states);
+    assertEquals(1, this.calls.get());
+  }
+
+  @Test
+  void reportsADeletedInstanceAsTerminatedWithoutFailingTheBatch() throws IOException {
+    List<String> instanceIds = new ArrayList<>();
+    for (int index = 0; index < 8; index++) {
+      instanceIds.add("i-" + index);
+      if (index != 5) this.instances.put("i-" + index, "running");
+    }
+
+    Map<String, InstanceState> states = this.client.describeInstanceStates(instanceIds);
+
+    assertEquals(8, states.size());
+    assertEquals(InstanceState.TERMINATED, states.get("i-5"));
+    assertEquals(InstanceState.RUNNING, states.get("i-4"));
+    assertEquals(InstanceState.RUNNING, states.get("i-6"));
+  }
+
+  @Test
+  void otherErrorsStillFailTheCall() {
+    this.httpServer.removeContext("/");
+    this.httpServer.createContext("/", exchange -> {
+      byte[] bytes = "<Response><Errors><Error><Code>UnauthorizedOperation</Code><Message>no</Message></Error></Errors></Response>"
+        .getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(403, bytes.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(bytes);
+      }
+    });
+
+    EC2Exception exception = assertThrows(EC2Exception.class, () -> this.client.describeInstanceStates(List.of("i-1")));
+
+    assertEquals("UnauthorizedOperation", exception.getErrorCode());
+  }
+}
@@ -0,0 +1,76 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileCoordinationBackendTest {
+  @TempDir
+  Path directory;
+
+  private Clock clock = Clock.fixed(Instant.parse("2024-05-04T12:00:00Z"), ZoneOffset.UTC);
+
+  private FileCoordinationBackend backend() {
+    return new FileCoordinationBackend(this.directory.resolve("coordination.dat"), this.clock);
+  }
+
+  @Test
+  void leaseIsExclusiveUntilReleasedOrExpired() throws IOException {
+    FileCoordinationBackend backend = this.backend();
+
+    assertTrue(backend.tryAcquireLease("server/survival", "proxy-a", 60_000));
+    assertTrue(backend.tryAcquireLease("server/survival", "proxy-a", 60_000));
+    assertFalse(backend.tryAcquireLease("server/survival", "proxy-b", 60_000));
+
+    backend.releaseLease("server/survival", "proxy-a");
+    assertTrue(backend.tryAcquireLease("server/survival", "proxy-b", 60_000));
+
+    this.clock = Clock.offset(this.clock, Duration.ofMinutes(2));
+    assertTrue(this.backend().tryAcquireLease("server/survival", "proxy-a", 60_000));
+  }
+
+  @Test
+  void playerCountsArePublishedPerProxy() throws IOException {
+    FileCoordinationBackend backend = this.backend();
+
+    backend.publishPlayerCounts("proxy-a", Map.of("survival", 3), 60_000);
+    backend.publishPlayerCounts("proxy-b", Map.of("survival", 1), 60_000);
+    backend.publishPlayerCounts("proxy-b", Map.of(), 60_000);
+
+    assertEquals(Map.of("proxy-a", Map.of("survival", 3)), backend.readPlayerCounts());
+  }
+
+  @Test
+  void readingDoesNotRewriteTheFile() throws IOException {
+    Path file = this.directory.resolve("coordination.dat");
+    this.backend().publishPlayerCounts("proxy-a", Map.of("survival", 3), 60_000);
+    byte[] written = Files.readAllBytes(file);
+
+    // The published counts have expired, a read skips them without writing the file
+    this.clock = Clock.offset(this.clock, Duration.ofMinutes(2));
+    FileCoordinationBackend backend = this.backend();
+
+    assertEquals(Map.of(), backend.readPlayerCounts());
+    backend.releaseLease("server/survival", "proxy-a");
+    assertArrayEquals(written, Files.readAllBytes(file));
+  }
+
+  @Test
+  void readingBeforeAnyWriteCreatesNoFile() throws IOException {
+    assertEquals(Map.of(), this.backend().readPlayerCounts());
+    assertFalse(Files.exists(this.directory.resolve("coordination.dat")));
+  }
+}
@@ -0,0 +1,102 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FleetDiscoveryTest {
+  @TempDir
+  Path directory;
+
+  private final TestFixtures.ManualClock clock = new TestFixtures.ManualClock();
+  private final TestFixtures.StubEC2Gateway ec2 = new TestFixtures.StubEC2Gateway();
+  private final Map<String, MinecraftServer> servers = new ConcurrentHashMap<>();
+  private final List<MinecraftServer> removed = new CopyOnWriteArrayList<>();
+  private final RegisteredServer velocityServer = TestFixtures.registeredServer("survival", "10.0.0.1", List.of());
+  private final PluginMetrics metrics = new PluginMetrics();
+  private volatile String instanceId = "i-old";
+  private FleetDiscovery discovery;
+
+  @BeforeEach
+  void setUp() {
+    this.metrics.bindFleet(this.servers.values(), server -> 0, null);
+    this.discovery = new FleetDiscovery(
+      Map.of("default", this.ec2),
+      new InstanceIdCache(this.directory.resolve("instances.json"), TestFixtures.LOGGER),
+      this.servers,
+      name -> new InstanceSelector("default", this.instanceId, "", ""),
+      (velocityServer, ec2, instanceId) -> {
+        MinecraftServer server = new MinecraftServer(
+          instanceId,
+          TestFixtures.settings(),
+          velocityServer,
+          ec2,
+          Runnable::run,
+          this.clock,
+          TestFixtures.LOGGER
+        );
+        server.addLifecycleListener(this.metrics);
+        return server;
+      },
+      server -> { },
+      server -> {
+        // Mirrors the plugin: only a server gone for good loses its series
+        if (!this.servers.containsKey(server.getName())) this.metrics.removeServer(server);
+        this.removed.add(server);
+      },
+      Runnable::run,
+      TestFixtures.LOGGER
+    );
+  }
+
+  @Test
+  void serverMovedToAnotherInstanceIsReplacedUnderItsName() {
+    this.discovery.registerCached(List.of(this.velocityServer));
+    MinecraftServer previous = this.servers.get("survival");
+
+    this.instanceId = "i-new";
+    this.discovery.discover(List.of(this.velocityServer));
+
+    MinecraftServer replacement = this.servers.get("survival");
+    assertNotSame(previous, replacement);
+    assertEquals("i-new", replacement.getAWSInstanceId());
+    assertEquals(List.of(previous), this.removed);
+  }
+
+  @Test
+  void replacedServerKeepsASingleMetricsSeries() {
+    this.discovery.registerCached(List.of(this.velocityServer));
+    this.servers.get("survival").update(InstanceState.RUNNING, ProbeResult.portOpen());
+
+    this.instanceId = "i-new";
+    this.discovery.discover(List.of(this.velocityServer));
+    this.servers.get("survival").update(InstanceState.RUNNING, ProbeResult.portOpen());
+
+    String text = this.metrics.toPrometheusText();
+    assertEquals(1, text.split("start_to_running_seconds_count\\{server=\"survival\"}", -1).length - 1);
+  }
+
+  @Test
+  void serverGoneFromVelocityLosesItsSeries() {
+    this.discovery.registerCached(List.of(this.velocityServer));
+    MinecraftServer server = this.servers.get("survival");
+    server.update(InstanceState.RUNNING, ProbeResult.portOpen());
+
+    this.discovery.discover(List.of());
+
+    assertSame(server, this.removed.get(0));
+    assertEquals(-1, this.metrics.toPrometheusText().indexOf("server=\"survival\""));
+  }
+}
@@ -0,0 +1,57 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import com.moandjiezana.toml.Toml;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvalidConfigValuesTest {
+  private final InvalidConfigValues invalidValues = new InvalidConfigValues();
+
+  @Test
+  void anOutOfRangeValueFallsBackToTheDefaultAndIsReported() {
+    Toml config = new Toml().read("[queue]\nmaxWait = -1\n");
+
+    assertEquals(300, QueueSettings.fromConfig(config, TestFixtures.LOGGER, this.invalidValues).maxWaitSeconds());
+    assertEquals(
+      List.of("Queue max wait invalid, set the default max wait to 5 minutes"),
+      this.invalidValues.getMessages()
+    );
+  }
+
+  @Test
+  void anUnknownNameIsReported() {
+    Toml config = new Toml().read("[servers.survival]\nidleTimeout = 300\nstopMode = \"freeze\"\n");
+
+    ServerSettings settings = ServerSettings.fromConfig("survival", config, TestFixtures.LOGGER, this.invalidValues);
+
+    assertEquals(StopMode.STOP, settings.stopMode());
+    assertEquals(1, this.invalidValues.getMessages().size());
+  }
+
+  @Test
+  void nestedServerTablesReportToTheSameCollector() {
+    Toml config = new Toml().read(
+      "[servers.survival]\nidleTimeout = 300\nprewarmBudget = -1\nshutdownRules = [\"moon\"]\n"
+    );
+
+    ServerSettings.fromConfig("survival", config, TestFixtures.LOGGER, this.invalidValues);
+
+    assertEquals(2, this.invalidValues.getMessages().size());
+  }
+
+  @Test
+  void missingValuesAreNotInvalid() {
+    Toml config = new Toml().read("[polling]\nonline = 15\n");
+
+    ServerSettings.fromConfig("survival", config, TestFixtures.LOGGER, this.invalidValues);
+    PollingSettings polling = PollingSettings.fromConfig(config, this.invalidValues);
+
+    assertEquals(15L, polling.intervalSeconds().get(ServerLifecycleState.ONLINE));
+    assertTrue(this.invalidValues.isEmpty());
+  }
+}
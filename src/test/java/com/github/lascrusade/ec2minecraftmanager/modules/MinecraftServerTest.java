@@ -0,0 +1,176 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MinecraftServerTest {
+  private final TestFixtures.ManualClock clock = new TestFixtures.ManualClock();
+  private final TestFixtures.StubEC2Gateway ec2 = new TestFixtures.StubEC2Gateway();
+  private final MinecraftServer server = TestFixtures.server("survival", this.ec2, this.clock);
+
+  @Test
+  void unknownInstanceStateKeepsTheLifecycle() {
+    this.server.update(InstanceState.RUNNING, ProbeResult.portOpen());
+    ServerLifecycle idle = this.server.getLifecycle();
+
+    this.server.update(InstanceState.UNKNOWN, ProbeResult.unreachable());
+
+    assertEquals(ServerLifecycleState.IDLE, idle.state());
+    assertEquals(idle, this.server.getLifecycle());
+  }
+
+  @Test
+  void terminatedInstanceStopsTheServer() {
+    this.server.update(InstanceState.RUNNING, ProbeResult.portOpen());
+
+    this.server.update(InstanceState.TERMINATED, ProbeResult.unreachable());
+
+    assertEquals(ServerLifecycleState.STOPPED, this.server.getLifecycleState());
+  }
+
+  @Test
+  void failedStopReturnsToIdleThroughTheListeners() {
+    List<String> transitions = new CopyOnWriteArrayList<>();
+    this.server.addLifecycleListener((server, previous, next) -> transitions.add(previous.state() + "->" + next.state()));
+    this.server.update(InstanceState.RUNNING, ProbeResult.portOpen());
+    this.ec2.failures.put("StopInstances", new IOException("refused"));
+
+    this.server.stop();
+
+    assertEquals(ServerLifecycleState.IDLE, this.server.getLifecycleState());
+    assertEquals(List.of("STOPPED->IDLE", "IDLE->STOPPING", "STOPPING->IDLE"), transitions);
+  }
+
+  @Test
+  void holdingDecisionIsReportedOncePerIdlePeriodWhateverTheClockReading() {
+    List<ShutdownDecision> decisions = new CopyOnWriteArrayList<>();
+    this.server.addLifecycleListener(new ServerLifecycleListener() {
+      @Override
+      public void onTransition(MinecraftServer server, ServerLifecycle previous, ServerLifecycle next) {
+      }
+
+      @Override
+      public void onShutdownDecision(MinecraftServer server, ShutdownDecision decision) {
+        decisions.add(decision);
+      }
+    });
+    Set<ShutdownRule> rules = EnumSet.of(ShutdownRule.IDLE_TIMEOUT, ShutdownRule.MIN_UPTIME);
+    this.server.updateSettings(TestFixtures.settings(TestFixtures.shutdown(rules)));
+    // Idle since a reading of -1, the value that used to mean no decision reported yet
+    this.clock.advance(-this.clock.nanoTime() - 1);
+    this.server.update(InstanceState.RUNNING, ProbeResult.portOpen());
+    this.clock.advance(TimeUnit.SECONDS.toNanos(301));
+
+    this.server.update(InstanceState.RUNNING, ProbeResult.portOpen());
+    this.server.update(InstanceState.RUNNING, ProbeResult.portOpen());
+
+    assertEquals(ServerLifecycleState.IDLE, this.server.getLifecycleState());
+    assertEquals(1, decisions.size());
+    assertEquals(ShutdownRule.MIN_UPTIME, decisions.get(0).rule());
+  }
+
+  @Test
+  void lateBackendMessagesDoNotWakeAStoppedServer() {
+    this.server.update(InstanceState.RUNNING, ProbeResult.portOpen());
+    this.server.update(InstanceState.STOPPED, ProbeResult.unreachable());
+
+    this.server.onBackendHeartbeat(3, 20f);
+    this.server.onBackendReady();
+    this.server.onBackendShuttingDown();
+
+    assertEquals(ServerLifecycleState.STOPPED, this.server.getLifecycleState());
+    assertTrue(this.server.getLastHeartbeat().isEmpty());
+  }
+
+  @Test
+  void heartbeatOfABootingServerMarksItReady() {
+    this.server.update(InstanceState.RUNNING, ProbeResult.unreachable());
+
+    this.server.onBackendHeartbeat(0, 20f);
+
+    assertEquals(ServerLifecycleState.IDLE, this.server.getLifecycleState());
+    assertTrue(this.server.getLastHeartbeat().isPresent());
+  }
+
+  @Test
+  void coordinatedStartIsIssuedUnderTheLease() throws Exception {
+    RecordingGuard guard = new RecordingGuard(true);
+    this.server.setOperationGuard(guard);
+    this.ec2.put("i-survival", InstanceState.STOPPED);
+
+    this.server.start().get();
+
+    assertEquals(List.of("acquire START", "release START"), guard.calls);
+    assertEquals(1, this.ec2.calls.stream().filter("StartInstances"::equals).count());
+  }
+
+  @Test
+  void instanceStartedElsewhereNeedsNoLease() throws Exception {
+    RecordingGuard guard = new RecordingGuard(false);
+    this.server.setOperationGuard(guard);
+    this.ec2.put("i-survival", InstanceState.RUNNING);
+
+    this.server.start().get();
+
+    assertEquals(List.of(), guard.calls);
+    assertEquals(0, this.ec2.calls.stream().filter("StartInstances"::equals).count());
+  }
+
+  @Test
+  void leaseIsOnlyTakenOnceAStoppingInstanceHasStopped() throws Exception {
+    // The instance reports stopping once, then stopped
+    TestFixtures.StubEC2Gateway ec2 = new TestFixtures.StubEC2Gateway() {
+      @Override
+      public InstanceState describeInstanceState(String instanceId) throws IOException {
+        InstanceState state = super.describeInstanceState(instanceId);
+        if (state == InstanceState.STOPPING) this.put(instanceId, InstanceState.STOPPED);
+        return state;
+      }
+    };
+    ec2.put("i-survival", InstanceState.STOPPING);
+    MinecraftServer server = TestFixtures.server("survival", ec2, this.clock);
+    RecordingGuard guard = new RecordingGuard(true);
+    server.setOperationGuard(guard);
+    server.setSleeper(this.clock);
+    long startedAt = this.clock.nanoTime();
+
+    server.start().get();
+
+    assertEquals(List.of("acquire START", "release START"), guard.calls);
+    assertEquals(
+      List.of("DescribeInstanceStatus", "DescribeInstanceStatus", "DescribeInstanceStatus", "StartInstances"),
+      ec2.calls.subList(0, 4)
+    );
+    assertEquals(TimeUnit.SECONDS.toNanos(5), this.clock.nanoTime() - startedAt);
+  }
+
+  private static class RecordingGuard implements ServerOperationGuard {
+    private final boolean granted;
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+
+    private RecordingGuard(boolean granted) {
+      this.granted = granted;
+    }
+
+    @Override
+    public boolean tryAcquire(MinecraftServer server, Operation operation) {
+      this.calls.add("acquire " + operation);
+      return this.granted;
+    }
+
+    @Override
+    public void release(MinecraftServer server, Operation operation) {
+      this.calls.add("release " + operation);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PluginMetricsTest {
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final PluginMetrics metrics = new PluginMetrics();
+  private final MinecraftServer server = TestFixtures.server(
+    "survival",
+    new TestFixtures.StubEC2Gateway(),
+    new TestFixtures.ManualClock()
+  );
+
+  private void transition(ServerLifecycleState from, ServerLifecycleState to, long atNanos) {
+    this.metrics.onTransition(this.server, ServerLifecycle.enter(from, atNanos), ServerLifecycle.enter(to, atNanos));
+  }
+
+  private void bootAndJoin(long startNanos) {
+    this.transition(ServerLifecycleState.STOPPED, ServerLifecycleState.STARTING, startNanos);
+    this.transition(ServerLifecycleState.STARTING, ServerLifecycleState.BOOTING, startNanos + 30 * SECOND);
+    this.transition(ServerLifecycleState.BOOTING, ServerLifecycleState.ONLINE, startNanos + 90 * SECOND);
+    this.metrics.recordPlayerJoined(this.server, startNanos + 100 * SECOND);
+  }
+
+  private void assertSample(String sample) {
+    String text = this.metrics.toPrometheusText();
+    assertTrue(text.contains(sample + "\n"), sample + " missing from\n" + text);
+  }
+
+  private void assertLatencies() {
+    this.assertSample("ec2mm_start_to_running_seconds_sum{server=\"survival\"} 30.0");
+    this.assertSample("ec2mm_running_to_port_open_seconds_sum{server=\"survival\"} 60.0");
+    this.assertSample("ec2mm_port_open_to_first_join_seconds_sum{server=\"survival\"} 10.0");
+    this.assertSample("ec2mm_start_to_first_join_seconds_sum{server=\"survival\"} 100.0");
+  }
+
+  @Test
+  void timesAStartRequestedAtAZeroReading() {
+    this.bootAndJoin(0);
+
+    this.assertLatencies();
+  }
+
+  @Test
+  void timesAStartRequestedAtANegativeReading() {
+    this.bootAndJoin(-TimeUnit.HOURS.toNanos(1));
+
+    this.assertLatencies();
+  }
+
+  @Test
+  void onlyTheFirstJoinOfABootIsTimed() {
+    this.bootAndJoin(0);
+    this.metrics.recordPlayerJoined(this.server, 200 * SECOND);
+
+    this.assertSample("ec2mm_start_to_first_join_seconds_count{server=\"survival\"} 1");
+  }
+
+  @Test
+  void anInstanceFoundRunningIsNotTimed() {
+    this.transition(ServerLifecycleState.STOPPED, ServerLifecycleState.BOOTING, 0);
+    this.transition(ServerLifecycleState.BOOTING, ServerLifecycleState.ONLINE, 60 * SECOND);
+    this.metrics.recordPlayerJoined(this.server, 70 * SECOND);
+
+    for (String histogram : List.of("start_to_running", "running_to_port_open", "start_to_first_join")) {
+      this.assertSample("ec2mm_" + histogram + "_seconds_count{server=\"survival\"} 0");
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PollSchedulerTest {
+  private static final PollingSettings SETTINGS = new PollingSettings(Map.of(
+    ServerLifecycleState.STOPPED, 300L,
+    ServerLifecycleState.STARTING, 5L,
+    ServerLifecycleState.BOOTING, 5L,
+    ServerLifecycleState.ONLINE, 30L,
+    ServerLifecycleState.IDLE, 30L,
+    ServerLifecycleState.STOPPING, 10L
+  ));
+
+  private final TestFixtures.ManualClock clock = new TestFixtures.ManualClock();
+  private final TestFixtures.StubEC2Gateway ec2 = new TestFixtures.StubEC2Gateway();
+  private final PollScheduler scheduler = new PollScheduler(SETTINGS, this.clock);
+  private final MinecraftServer survival = TestFixtures.server("survival", this.ec2, this.clock);
+  private final MinecraftServer creative = TestFixtures.server("creative", this.ec2, this.clock);
+
+  @Test
+  void drainsOnlyDueServersInDueOrder() {
+    this.scheduler.scheduleNext(this.survival);
+    this.scheduler.scheduleNow(this.creative);
+
+    assertEquals(List.of(this.creative), this.scheduler.drainDue());
+    assertEquals(List.of(), this.scheduler.drainDue());
+
+    this.clock.advance(TimeUnit.SECONDS.toNanos(300));
+    assertEquals(List.of(this.survival), this.scheduler.drainDue());
+    assertTrue(this.scheduler.nextDueNanos().isEmpty());
+  }
+
+  @Test
+  void nextPollFollowsTheLifecycleInterval() {
+    this.survival.update(InstanceState.RUNNING, ProbeResult.portOpen());
+    long now = this.clock.nanoTime();
+
+    this.scheduler.scheduleNext(this.survival);
+
+    assertEquals(OptionalLong.of(now + TimeUnit.SECONDS.toNanos(30)), this.scheduler.nextDueNanos());
+  }
+
+  @Test
+  void reschedulingReplacesTheEarlierPoll() {
+    this.scheduler.scheduleNow(this.survival);
+    this.scheduler.scheduleNext(this.survival);
+
+    assertEquals(List.of(), this.scheduler.drainDue());
+    this.clock.advance(TimeUnit.SECONDS.toNanos(300));
+    assertEquals(List.of(this.survival), this.scheduler.drainDue());
+  }
+
+  @Test
+  void transitionToAFasterStateBringsThePollForward() {
+    this.survival.addLifecycleListener(this.scheduler);
+    this.scheduler.scheduleNext(this.survival);
+    long now = this.clock.nanoTime();
+
+    this.survival.update(InstanceState.PENDING, ProbeResult.unreachable());
+
+    assertEquals(ServerLifecycleState.STARTING, this.survival.getLifecycleState());
+    assertEquals(OptionalLong.of(now + TimeUnit.SECONDS.toNanos(5)), this.scheduler.nextDueNanos());
+  }
+
+  @Test
+  void transitionToASlowerStateKeepsTheEarlierPoll() {
+    this.survival.update(InstanceState.RUNNING, ProbeResult.portOpen());
+    this.survival.addLifecycleListener(this.scheduler);
+    this.scheduler.scheduleNext(this.survival);
+    long dueAt = this.scheduler.nextDueNanos().getAsLong();
+
+    this.survival.update(InstanceState.STOPPED, ProbeResult.unreachable());
+
+    assertEquals(OptionalLong.of(dueAt), this.scheduler.nextDueNanos());
+  }
+
+  @Test
+  void removedServersAreNeverDrained() {
+    this.scheduler.scheduleNow(this.survival);
+
+    this.scheduler.remove(this.survival);
+
+    assertEquals(List.of(), this.scheduler.drainDue());
+    assertTrue(this.scheduler.nextDueNanos().isEmpty());
+  }
+}
@@ -0,0 +1,194 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResilientEC2GatewayTest {
+  private static final ResilienceSettings SETTINGS = new ResilienceSettings(3, 200, 5000, 1000.0, 1000.0, 2, 30);
+
+  private final TestFixtures.ManualClock clock = new TestFixtures.ManualClock();
+  private final List<Long> sleeps = new ArrayList<>();
+  private final Sleeper sleeper = durationNanos -> {
+    this.sleeps.add(durationNanos);
+    this.clock.advance(durationNanos);
+  };
+  private final FlakyEC2Gateway ec2 = new FlakyEC2Gateway();
+
+  private ResilientEC2Gateway gateway(ResilienceSettings settings) {
+    return new ResilientEC2Gateway(
+      this.ec2,
+      "default",
+      settings,
+      new PluginMetrics(),
+      this.clock,
+      this.sleeper,
+      TestFixtures.LOGGER
+    );
+  }
+
+  @Test
+  void retriesThrottlingAndServerErrorsWithBackoff() throws IOException {
+    this.ec2.fail(new EC2Exception(503, "RequestLimitExceeded", "Request limit exceeded."));
+    this.ec2.fail(new EC2Exception(502, "BadGateway", "Bad gateway."));
+    ResilientEC2Gateway gateway = this.gateway(SETTINGS);
+
+    gateway.startInstance("i-survival");
+
+    assertEquals(3, this.ec2.attempts.get());
+    assertEquals(InstanceState.RUNNING, this.ec2.states.get("i-survival"));
+    assertEquals(2, this.sleeps.size());
+    assertTrue(this.sleeps.get(0) <= TimeUnit.MILLISECONDS.toNanos(200));
+    assertTrue(this.sleeps.get(1) <= TimeUnit.MILLISECONDS.toNanos(400));
+  }
+
+  @Test
+  void givesUpAfterTheMaxRetries() {
+    for (int failure = 0; failure < 4; failure++) {
+      this.ec2.fail(new EC2Exception(503, "RequestLimitExceeded", "Request limit exceeded."));
+    }
+    ResilientEC2Gateway gateway = this.gateway(SETTINGS);
+
+    EC2Exception e = assertThrows(EC2Exception.class, () -> gateway.startInstance("i-survival"));
+
+    assertEquals("RequestLimitExceeded", e.getErrorCode());
+    assertEquals(4, this.ec2.attempts.get());
+  }
+
+  @Test
+  void passesRejectedRequestsThroughWithoutRetryingOrOpeningTheBreaker() {
+    EC2Exception rejected = new EC2Exception(400, "InvalidInstanceID.Malformed", "Invalid id.");
+    for (int failure = 0; failure < 3; failure++) {
+      this.ec2.fail(rejected);
+    }
+    ResilientEC2Gateway gateway = this.gateway(SETTINGS);
+
+    for (int call = 0; call < 3; call++) {
+      assertSame(rejected, assertThrows(EC2Exception.class, () -> gateway.startInstance("i-survival")));
+    }
+
+    assertEquals(3, this.ec2.attempts.get());
+    assertEquals(List.of(), this.sleeps);
+    assertEquals(CircuitBreaker.State.CLOSED, gateway.getCircuitState());
+  }
+
+  @Test
+  void servesLastKnownStatesWhileTheBreakerIsOpen() throws IOException {
+    this.ec2.states.put("i-survival", InstanceState.RUNNING);
+    ResilientEC2Gateway gateway = this.gateway(new ResilienceSettings(0, 200, 5000, 1000.0, 1000.0, 2, 30));
+    gateway.describeInstanceStates(List.of("i-survival"));
+    this.ec2.fail(new IOException("Connection reset"));
+    this.ec2.fail(new IOException("Connection reset"));
+    assertThrows(IOException.class, () -> gateway.describeInstanceStates(List.of("i-survival")));
+    assertThrows(IOException.class, () -> gateway.describeInstanceStates(List.of("i-survival")));
+    this.ec2.states.put("i-survival", InstanceState.STOPPED);
+
+    Map<String, InstanceState> states = gateway.describeInstanceStates(List.of("i-survival"));
+
+    assertEquals(CircuitBreaker.State.OPEN, gateway.getCircuitState());
+    assertEquals(Map.of("i-survival", InstanceState.RUNNING), states);
+    assertEquals(3, this.ec2.attempts.get());
+    // Instances never seen and calls other than state reads are refused without reaching EC2
+    assertThrows(IOException.class, () -> gateway.describeInstanceStates(List.of("i-creative")));
+    assertThrows(IOException.class, () -> gateway.startInstance("i-survival"));
+    assertEquals(3, this.ec2.attempts.get());
+  }
+
+  @Test
+  void waitsForARateLimitTokenOnTheInjectedSleeper() throws IOException {
+    this.ec2.states.put("i-survival", InstanceState.RUNNING);
+    ResilientEC2Gateway gateway = this.gateway(new ResilienceSettings(3, 200, 5000, 1.0, 1.0, 2, 30));
+
+    gateway.describeInstanceStates(List.of("i-survival"));
+    gateway.describeInstanceStates(List.of("i-survival"));
+
+    assertEquals(List.of(TimeUnit.SECONDS.toNanos(1)), this.sleeps);
+  }
+
+  @Test
+  void concurrentIdenticalReadsShareOneCall() throws Exception {
+    this.ec2.states.put("i-survival", InstanceState.RUNNING);
+    this.ec2.blockReads();
+    ResilientEC2Gateway gateway = this.gateway(SETTINGS);
+    CompletableFuture<Map<String, InstanceState>> first = CompletableFuture.supplyAsync(() -> read(gateway));
+    this.ec2.readStarted.await();
+    CompletableFuture<Map<String, InstanceState>> second = new CompletableFuture<>();
+    Thread waiter = new Thread(() -> second.complete(read(gateway)));
+    waiter.start();
+    while (waiter.getState() != Thread.State.WAITING) {
+      Thread.onSpinWait();
+    }
+
+    this.ec2.releaseReads.countDown();
+
+    assertEquals(Map.of("i-survival", InstanceState.RUNNING), first.get(5, TimeUnit.SECONDS));
+    assertEquals(Map.of("i-survival", InstanceState.RUNNING), second.get(5, TimeUnit.SECONDS));
+    assertEquals(1, this.ec2.attempts.get());
+  }
+
+  private static Map<String, InstanceState> read(ResilientEC2Gateway gateway) {
+    try {
+      return gateway.describeInstanceStates(Set.of("i-survival"));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // Fails the next calls with the queued errors, state reads can be held until released
+  private static class FlakyEC2Gateway extends TestFixtures.StubEC2Gateway {
+    private final List<IOException> pendingFailures = new ArrayList<>();
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final CountDownLatch readStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseReads = new CountDownLatch(1);
+    private volatile boolean readsBlocked = false;
+
+    synchronized void fail(IOException failure) {
+      this.pendingFailures.add(failure);
+    }
+
+    void blockReads() {
+      this.readsBlocked = true;
+    }
+
+    private synchronized void attempt() throws IOException {
+      this.attempts.incrementAndGet();
+      if (!this.pendingFailures.isEmpty()) throw this.pendingFailures.remove(0);
+    }
+
+    @Override
+    public Map<String, InstanceState> describeInstanceStates(Collection<String> instanceIds) throws IOException {
+      this.attempt();
+      if (this.readsBlocked) {
+        this.readStarted.countDown();
+        try {
+          this.releaseReads.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException(e);
+        }
+      }
+      return super.describeInstanceStates(instanceIds);
+    }
+
+    @Override
+    public void startInstance(String instanceId) throws IOException {
+      this.attempt();
+      super.startInstance(instanceId);
+    }
+  }
+}
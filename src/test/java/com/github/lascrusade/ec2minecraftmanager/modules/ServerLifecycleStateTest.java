@@ -0,0 +1,55 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerLifecycleStateTest {
+
+  @Test
+  void everyStateCanStayWhereItIs() {
+    for (ServerLifecycleState state : ServerLifecycleState.values()) {
+      assertTrue(state.canTransitionTo(state), state.name());
+    }
+  }
+
+  @Test
+  void onlyAStoppedServerCanStart() {
+    for (ServerLifecycleState state : ServerLifecycleState.values()) {
+      if (state == ServerLifecycleState.STARTING) continue;
+      assertTrue(
+        state.canTransitionTo(ServerLifecycleState.STARTING) == (state == ServerLifecycleState.STOPPED),
+        state.name()
+      );
+    }
+  }
+
+  @Test
+  void stoppingEndsStoppedOrBackWhereTheStopStarted() {
+    ServerLifecycleState stopping = ServerLifecycleState.STOPPING;
+
+    assertTrue(stopping.canTransitionTo(ServerLifecycleState.STOPPED));
+    assertTrue(stopping.canTransitionTo(ServerLifecycleState.IDLE));
+    assertTrue(stopping.canTransitionTo(ServerLifecycleState.BOOTING));
+    assertFalse(stopping.canTransitionTo(ServerLifecycleState.ONLINE));
+    assertFalse(stopping.canTransitionTo(ServerLifecycleState.STARTING));
+  }
+
+  @Test
+  void startingCannotStopHalfway() {
+    assertFalse(ServerLifecycleState.STARTING.canTransitionTo(ServerLifecycleState.STOPPING));
+    assertTrue(ServerLifecycleState.STARTING.canTransitionTo(ServerLifecycleState.BOOTING));
+    assertTrue(ServerLifecycleState.STARTING.canTransitionTo(ServerLifecycleState.STOPPED));
+  }
+
+  @Test
+  void runningStatesAreTheOnesWithAnInstanceUp() {
+    assertTrue(ServerLifecycleState.BOOTING.isInstanceRunning());
+    assertFalse(ServerLifecycleState.BOOTING.isReady());
+    assertTrue(ServerLifecycleState.ONLINE.isReady());
+    assertTrue(ServerLifecycleState.IDLE.isReady());
+    assertFalse(ServerLifecycleState.STARTING.isInstanceRunning());
+    assertFalse(ServerLifecycleState.STOPPING.isInstanceRunning());
+  }
+}
@@ -0,0 +1,122 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import com.moandjiezana.toml.Toml;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShutdownPolicyTest {
+  private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+  private final ShutdownPolicy policy = new ShutdownPolicy(
+    Clock.fixed(Instant.parse("2024-05-04T12:00:00Z"), ZoneOffset.UTC)
+  );
+
+  @Test
+  void idleTimeoutStopsAnIdleServer() {
+    ServerSettings settings = settings(EnumSet.of(ShutdownRule.IDLE_TIMEOUT));
+
+    ShutdownDecision held = this.policy.decide(settings, 300, 0);
+    ShutdownDecision stopped = this.policy.decide(settings, 301, 0);
+
+    assertFalse(held.stop());
+    assertTrue(stopped.stop());
+    assertEquals(ShutdownRule.IDLE_TIMEOUT, stopped.rule());
+  }
+
+  @Test
+  void minUptimeHoldsAServerThatJustCameUp() {
+    ServerSettings settings = settings(EnumSet.of(ShutdownRule.IDLE_TIMEOUT, ShutdownRule.MIN_UPTIME));
+    this.transition(ServerLifecycleState.STOPPED, ServerLifecycleState.BOOTING, 0, settings);
+
+    ShutdownDecision early = this.policy.decide(settings, 400, 10 * MINUTE);
+    ShutdownDecision late = this.policy.decide(settings, 400, 31 * MINUTE);
+
+    assertFalse(early.stop());
+    assertEquals(ShutdownRule.MIN_UPTIME, early.rule());
+    assertTrue(late.stop());
+  }
+
+  @Test
+  void timersWorkWithNegativeMonotonicReadings() {
+    ServerSettings settings = settings(EnumSet.of(ShutdownRule.IDLE_TIMEOUT, ShutdownRule.RESTART_COOLDOWN));
+    long origin = -TimeUnit.HOURS.toNanos(1);
+    this.transition(ServerLifecycleState.STOPPING, ServerLifecycleState.STOPPED, origin, settings);
+    this.transition(ServerLifecycleState.STOPPED, ServerLifecycleState.STARTING, origin + MINUTE, settings);
+    this.transition(ServerLifecycleState.STARTING, ServerLifecycleState.BOOTING, origin + 2 * MINUTE, settings);
+
+    ShutdownPolicy.Timers timers = this.policy.getTimers();
+    ShutdownDecision decision = this.policy.decide(settings, 400, origin + 10 * MINUTE);
+
+    assertEquals(origin, timers.stoppedAtNanos().getAsLong());
+    assertEquals(origin + 2 * MINUTE, timers.runningSinceNanos().getAsLong());
+    assertTrue(timers.restartedDuringCooldown());
+    assertFalse(decision.stop());
+    assertEquals(ShutdownRule.RESTART_COOLDOWN, decision.rule());
+  }
+
+  @Test
+  void stoppedServerHasNoUptime() {
+    ServerSettings settings = settings(EnumSet.of(ShutdownRule.IDLE_TIMEOUT));
+    this.transition(ServerLifecycleState.STOPPED, ServerLifecycleState.BOOTING, 0, settings);
+    this.transition(ServerLifecycleState.STOPPING, ServerLifecycleState.STOPPED, MINUTE, settings);
+
+    assertTrue(this.policy.getTimers().runningSinceNanos().isEmpty());
+    assertEquals(MINUTE, this.policy.getTimers().stoppedAtNanos().getAsLong());
+  }
+
+  @Test
+  void tiedRulesReportTheFirstDeclaredOneWhateverTheConfiguredOrder() {
+    Toml serverConfig = new Toml().read("shutdownRules = [\"cooldown\", \"activity\"]\n");
+    ShutdownSettings shutdown = ShutdownSettings.fromConfig("survival", serverConfig, new InvalidConfigValues());
+    ServerSettings settings = settings(shutdown);
+    this.transition(ServerLifecycleState.STOPPING, ServerLifecycleState.STOPPED, 0, settings);
+    this.transition(ServerLifecycleState.STOPPED, ServerLifecycleState.STARTING, MINUTE, settings);
+    // Activity 2 and a cooldown factor of 2 both ask for 600 idle seconds
+    this.policy.recordPlayers(2, MINUTE, settings);
+
+    ShutdownDecision decision = this.policy.decide(settings, 400, 2 * MINUTE);
+
+    assertEquals(
+      List.of(ShutdownRule.IDLE_TIMEOUT, ShutdownRule.ACTIVITY, ShutdownRule.RESTART_COOLDOWN),
+      List.copyOf(shutdown.rules())
+    );
+    assertEquals(600, decision.requiredIdleSeconds());
+    assertEquals(ShutdownRule.ACTIVITY, decision.rule());
+  }
+
+  @Test
+  void playerActivityStartsAtTheFirstSampleThenDecays() {
+    ServerSettings settings = settings(EnumSet.of(ShutdownRule.IDLE_TIMEOUT));
+
+    this.policy.recordPlayers(4, 0, settings);
+    double first = this.policy.getPlayerActivity();
+    this.policy.recordPlayers(0, 60 * MINUTE, settings);
+
+    assertEquals(4.0, first, 1e-9);
+    assertEquals(4 * Math.exp(-1), this.policy.getPlayerActivity(), 1e-9);
+  }
+
+  private void transition(ServerLifecycleState from, ServerLifecycleState to, long nowNanos, ServerSettings settings) {
+    this.policy.onTransition(ServerLifecycle.enter(from, nowNanos), ServerLifecycle.enter(to, nowNanos), settings);
+  }
+
+  private static ServerSettings settings(Set<ShutdownRule> rules) {
+    return TestFixtures.settings(TestFixtures.shutdown(rules));
+  }
+
+  private static ServerSettings settings(ShutdownSettings shutdown) {
+    return TestFixtures.settings(shutdown);
+  }
+}
@@ -0,0 +1,162 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateJournalTest {
+  private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+  @TempDir
+  Path directory;
+
+  private final Clock wallClock = Clock.fixed(Instant.parse("2024-05-04T12:00:00Z"), ZoneOffset.UTC);
+  private final TestFixtures.ManualClock clock = new TestFixtures.ManualClock();
+  private final TestFixtures.StubEC2Gateway ec2 = new TestFixtures.StubEC2Gateway();
+
+  private Path file() {
+    return this.directory.resolve("state.journal");
+  }
+
+  private StateJournal journal() {
+    StateJournal journal = new StateJournal(this.file(), this.wallClock, this.clock, TestFixtures.LOGGER);
+    journal.load();
+    return journal;
+  }
+
+  private MinecraftServer journaledServer(StateJournal journal, String name) {
+    MinecraftServer server = TestFixtures.server(name, this.ec2, this.clock);
+    server.addLifecycleListener(journal);
+    return server;
+  }
+
+  @Test
+  void replayRestoresLifecycleAndTimers() {
+    StateJournal journal = this.journal();
+    MinecraftServer server = this.journaledServer(journal, "survival");
+    server.update(InstanceState.RUNNING, ProbeResult.portOpen());
+    ServerLifecycle idle = server.getLifecycle();
+    ShutdownPolicy.Timers timers = server.getShutdownTimers();
+    journal.close();
+
+    MinecraftServer restored = TestFixtures.server("survival", this.ec2, this.clock);
+    assertTrue(this.journal().restore(restored));
+
+    assertEquals(idle, restored.getLifecycle());
+    assertEquals(timers.runningSinceNanos(), restored.getShutdownTimers().runningSinceNanos());
+    assertTrue(restored.getShutdownTimers().stoppedAtNanos().isEmpty());
+  }
+
+  @Test
+  void negativeMonotonicReadingsSurviveTheJournal() {
+    this.clock.advance(-TimeUnit.HOURS.toNanos(2));
+    StateJournal journal = this.journal();
+    MinecraftServer server = this.journaledServer(journal, "survival");
+    server.update(InstanceState.RUNNING, ProbeResult.portOpen());
+    long runningSince = server.getShutdownTimers().runningSinceNanos().getAsLong();
+    journal.close();
+
+    MinecraftServer restored = TestFixtures.server("survival", this.ec2, this.clock);
+    this.journal().restore(restored);
+
+    assertTrue(runningSince < 0);
+    assertEquals(runningSince, restored.getShutdownTimers().runningSinceNanos().getAsLong());
+  }
+
+  @Test
+  void interruptedStartComesBackBootingAndInterruptedStopIdle() {
+    StateJournal journal = this.journal();
+    MinecraftServer starting = this.journaledServer(journal, "survival");
+    MinecraftServer stopping = this.journaledServer(journal, "creative");
+    starting.update(InstanceState.PENDING, ProbeResult.unreachable());
+    stopping.update(InstanceState.RUNNING, ProbeResult.portOpen());
+    this.clock.advance(MINUTE);
+    stopping.update(InstanceState.STOPPING, ProbeResult.unreachable());
+    assertEquals(ServerLifecycleState.STARTING, starting.getLifecycleState());
+    assertEquals(ServerLifecycleState.STOPPING, stopping.getLifecycleState());
+    journal.close();
+
+    StateJournal reloaded = this.journal();
+    MinecraftServer restoredStarting = TestFixtures.server("survival", this.ec2, this.clock);
+    MinecraftServer restoredStopping = TestFixtures.server("creative", this.ec2, this.clock);
+    reloaded.restore(restoredStarting);
+    reloaded.restore(restoredStopping);
+
+    assertEquals(ServerLifecycleState.BOOTING, restoredStarting.getLifecycleState());
+    assertEquals(ServerLifecycleState.IDLE, restoredStopping.getLifecycleState());
+  }
+
+  @Test
+  void tornTailIsDroppedAndTheRecordsBeforeItReplayed() throws IOException {
+    StateJournal journal = this.journal();
+    this.journaledServer(journal, "survival").update(InstanceState.RUNNING, ProbeResult.portOpen());
+    journal.close();
+    long intact = Files.size(this.file());
+    // A record cut short by a crash: its length and checksum made it to the file, the payload did not
+    Files.write(this.file(), new byte[] { 0, 0, 0, 40, 1, 2, 3, 4, 5, 6 }, StandardOpenOption.APPEND);
+
+    StateJournal reloaded = this.journal();
+    MinecraftServer restored = TestFixtures.server("survival", this.ec2, this.clock);
+
+    assertTrue(reloaded.restore(restored));
+    assertEquals(ServerLifecycleState.IDLE, restored.getLifecycleState());
+    reloaded.close();
+    assertEquals(intact, Files.size(this.file()));
+  }
+
+  @Test
+  void corruptRecordStopsTheReplay() throws IOException {
+    StateJournal journal = this.journal();
+    MinecraftServer server = this.journaledServer(journal, "survival");
+    server.update(InstanceState.RUNNING, ProbeResult.portOpen());
+    journal.close();
+    byte[] bytes = Files.readAllBytes(this.file());
+    bytes[bytes.length - 1] ^= 0x7f;
+    Files.write(this.file(), bytes, StandardOpenOption.TRUNCATE_EXISTING);
+
+    assertFalse(this.journal().restore(TestFixtures.server("survival", this.ec2, this.clock)));
+  }
+
+  @Test
+  void removedServerIsNotRestored() {
+    StateJournal journal = this.journal();
+    MinecraftServer server = this.journaledServer(journal, "survival");
+    server.update(InstanceState.RUNNING, ProbeResult.portOpen());
+    journal.remove(server);
+    journal.close();
+
+    assertFalse(this.journal().restore(TestFixtures.server("survival", this.ec2, this.clock)));
+  }
+
+  @Test
+  void serverOnAnotherInstanceIsNotRestored() {
+    StateJournal journal = this.journal();
+    this.journaledServer(journal, "survival").update(InstanceState.RUNNING, ProbeResult.portOpen());
+    journal.close();
+
+    MinecraftServer moved = new MinecraftServer(
+      "i-other",
+      TestFixtures.settings(),
+      TestFixtures.registeredServer("survival", "10.0.0.1", List.of()),
+      this.ec2,
+      Runnable::run,
+      this.clock,
+      TestFixtures.LOGGER
+    );
+    assertFalse(this.journal().restore(moved));
+  }
+}
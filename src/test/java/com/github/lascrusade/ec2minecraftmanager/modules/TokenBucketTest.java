@@ -0,0 +1,53 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenBucketTest {
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final TestFixtures.ManualClock clock = new TestFixtures.ManualClock();
+  private final TokenBucket bucket = new TokenBucket(10, 2, this.clock);
+
+  @Test
+  void burstIsServedRightAway() {
+    assertEquals(0, this.bucket.reserve());
+    assertEquals(0, this.bucket.reserve());
+  }
+
+  @Test
+  void callsBeyondTheBurstWaitInArrivalOrder() {
+    this.bucket.reserve();
+    this.bucket.reserve();
+
+    assertEquals(SECOND / 10, this.bucket.reserve());
+    assertEquals(2 * SECOND / 10, this.bucket.reserve());
+  }
+
+  @Test
+  void tokensRefillAtTheRateUpToTheBurst() {
+    this.bucket.reserve();
+    this.bucket.reserve();
+
+    this.clock.advance(SECOND);
+
+    assertEquals(0, this.bucket.reserve());
+    assertEquals(0, this.bucket.reserve());
+    assertEquals(SECOND / 10, this.bucket.reserve());
+  }
+
+  @Test
+  void waitingCallersPayBackTheirTokensFirst() {
+    this.bucket.reserve();
+    this.bucket.reserve();
+    this.bucket.reserve();
+
+    this.clock.advance(SECOND / 20);
+
+    assertEquals(SECOND / 10 + SECOND / 20, this.bucket.reserve());
+  }
+}
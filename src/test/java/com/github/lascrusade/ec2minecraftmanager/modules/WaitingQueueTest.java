@@ -0,0 +1,56 @@
+package com.github.lascrusade.ec2minecraftmanager.modules;
+
+import com.github.lascrusade.ec2minecraftmanager.testing.TestFixtures;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WaitingQueueTest {
+  private final TestFixtures.ManualClock clock = new TestFixtures.ManualClock();
+  private final TestFixtures.StubEC2Gateway ec2 = new TestFixtures.StubEC2Gateway();
+  private final ProxyServer proxyServer = (ProxyServer) Proxy.newProxyInstance(
+    WaitingQueueTest.class.getClassLoader(),
+    new Class<?>[] { ProxyServer.class },
+    (proxy, method, args) -> null
+  );
+  private final WaitingQueue queue = new WaitingQueue(
+    new QueueSettings("lobby", 2.0, 10, 600),
+    this.proxyServer,
+    this.clock,
+    TestFixtures.LOGGER
+  );
+  private final MinecraftServer previous = TestFixtures.server("survival", this.ec2, this.clock);
+  private final MinecraftServer replacement = TestFixtures.server("survival", this.ec2, this.clock);
+
+  @Test
+  void queuedPlayersFollowAServerMovedToAnotherInstance() {
+    Player alice = TestFixtures.player("alice");
+    Player bob = TestFixtures.player("bob");
+    this.queue.enqueue(alice, this.previous);
+    this.queue.enqueue(bob, this.previous);
+
+    this.queue.replace(this.previous, this.replacement);
+
+    assertEquals(0, this.queue.getQueueSize(this.previous));
+    assertEquals(2, this.queue.getQueueSize(this.replacement));
+    assertTrue(this.queue.isQueued(alice, this.replacement));
+    assertEquals(2, this.queue.enqueue(bob, this.replacement));
+  }
+
+  @Test
+  void playersOfAServerGoneForGoodLeaveTheQueue() {
+    Player alice = TestFixtures.player("alice");
+    this.queue.enqueue(alice, this.previous);
+
+    this.queue.replace(this.previous, null);
+
+    assertEquals(0, this.queue.getQueueSize(this.previous));
+    assertFalse(this.queue.isQueued(alice, this.previous));
+  }
+}
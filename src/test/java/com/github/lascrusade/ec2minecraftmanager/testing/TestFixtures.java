@@ -0,0 +1,268 @@
+package com.github.lascrusade.ec2minecraftmanager.testing;
+
+import com.github.lascrusade.ec2minecraftmanager.modules.*;
+import com.velocitypowered.api.proxy.ConnectionRequestBuilder;
+import com.velocitypowered.api.proxy.InboundConnection;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.ServerConnection;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Fakes shared by the plugin tests, the benchmarks and the fleet simulator, which get them from the
+ * plugin test-jar. Velocity and slf4j interfaces are large, only the few methods the plugin calls get
+ * an answer.
+ */
+public final class TestFixtures {
+  public static final Logger LOGGER = NOPLogger.NOP_LOGGER;
+
+  private TestFixtures() {
+  }
+
+  public static String instanceId(int index) {
+    return String.format("i-%017x", index);
+  }
+
+  public static String privateIp(int index) {
+    return "10.0." + (index / 250) + "." + (index % 250 + 1);
+  }
+
+  public static ServerSettings settings() {
+    return settings(StopMode.STOP);
+  }
+
+  public static ServerSettings settings(StopMode stopMode) {
+    return settings(stopMode, 45, shutdown(EnumSet.of(ShutdownRule.IDLE_TIMEOUT)));
+  }
+
+  public static ServerSettings settings(ShutdownSettings shutdown) {
+    return settings(StopMode.STOP, 45, shutdown);
+  }
+
+  public static ServerSettings settings(StopMode stopMode, long heartbeatTimeoutSeconds, ShutdownSettings shutdown) {
+    return new ServerSettings(
+      300,
+      "",
+      2000,
+      ProbeMode.TCP,
+      120,
+      heartbeatTimeoutSeconds,
+      stopMode,
+      15,
+      new PrewarmSettings(false, 120, 10, 1.0),
+      shutdown
+    );
+  }
+
+  public static ShutdownSettings shutdown(Set<ShutdownRule> rules) {
+    return new ShutdownSettings(rules, 30, 0.5, 60, 3600, List.of(), 30, 2.0);
+  }
+
+  public static MinecraftServer server(String name, EC2Gateway ec2, ManualClock clock) {
+    return new MinecraftServer(
+      "i-" + name,
+      settings(),
+      registeredServer(name, "10.0.0.1", List.of()),
+      ec2,
+      Runnable::run,
+      clock,
+      LOGGER
+    );
+  }
+
+  public static Player player(String username) {
+    return player(username, Optional::empty, target -> {
+    });
+  }
+
+  public static Player player(
+    String username,
+    Supplier<Optional<RegisteredServer>> currentServer,
+    Consumer<RegisteredServer> connectionRequest
+  ) {
+    UUID uniqueId = UUID.nameUUIDFromBytes(username.getBytes());
+    return proxy(Player.class, (proxy, method, args) -> switch (method.getName()) {
+      case "getUsername" -> username;
+      case "getUniqueId" -> uniqueId;
+      case "hasPermission", "isActive" -> true;
+      case "getCurrentServer" -> currentServer.get().map(TestFixtures::serverConnection);
+      case "createConnectionRequest" -> connectionRequest((RegisteredServer) args[0], connectionRequest);
+      default -> objectMethod(proxy, method, args);
+    });
+  }
+
+  public static RegisteredServer registeredServer(String name, String ipAddress, Collection<Player> players) {
+    ServerInfo serverInfo = new ServerInfo(name, InetSocketAddress.createUnresolved(ipAddress, 25565));
+    return proxy(RegisteredServer.class, (proxy, method, args) -> switch (method.getName()) {
+      case "getServerInfo" -> serverInfo;
+      case "getPlayersConnected" -> players;
+      default -> objectMethod(proxy, method, args);
+    });
+  }
+
+  public static ProxyServer proxyServer(Map<String, RegisteredServer> servers) {
+    return proxy(ProxyServer.class, (proxy, method, args) -> switch (method.getName()) {
+      case "getServer" -> Optional.ofNullable(servers.get((String) args[0]));
+      case "getAllServers" -> servers.values();
+      default -> objectMethod(proxy, method, args);
+    });
+  }
+
+  public static InboundConnection inboundConnection() {
+    return proxy(InboundConnection.class, TestFixtures::objectMethod);
+  }
+
+  // Drops every message, counts warnings and errors so a run can report how noisy it was
+  public static Logger countingLogger(LongAdder warnings, LongAdder errors) {
+    return proxy(Logger.class, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "warn" -> warnings.increment();
+        case "error" -> errors.increment();
+        default -> {
+        }
+      }
+      return objectMethod(proxy, method, args);
+    });
+  }
+
+  private static ServerConnection serverConnection(RegisteredServer server) {
+    return proxy(ServerConnection.class, (proxy, method, args) -> switch (method.getName()) {
+      case "getServer" -> server;
+      case "getServerInfo" -> server.getServerInfo();
+      default -> objectMethod(proxy, method, args);
+    });
+  }
+
+  private static ConnectionRequestBuilder connectionRequest(RegisteredServer target, Consumer<RegisteredServer> onConnect) {
+    return proxy(ConnectionRequestBuilder.class, (proxy, method, args) -> switch (method.getName()) {
+      case "getServer" -> target;
+      case "fireAndForget" -> {
+        onConnect.accept(target);
+        yield null;
+      }
+      default -> objectMethod(proxy, method, args);
+    });
+  }
+
+  private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(TestFixtures.class.getClassLoader(), new Class<?>[] { type }, handler));
+  }
+
+  // Players and servers are used as map keys, so identity semantics must hold for the proxies
+  private static Object objectMethod(Object proxy, Method method, Object[] args) {
+    return switch (method.getName()) {
+      case "equals" -> proxy == args[0];
+      case "hashCode" -> System.identityHashCode(proxy);
+      case "toString" -> "Fake" + proxy.getClass().getInterfaces()[0].getSimpleName();
+      default -> method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+    };
+  }
+
+  // Sleeping only moves the clock, so waits paced by it return at once
+  public static class ManualClock implements MonotonicClock, Sleeper {
+    private volatile long nanos = 1_000_000_000L;
+
+    @Override
+    public long nanoTime() {
+      return this.nanos;
+    }
+
+    @Override
+    public void sleep(long durationNanos) {
+      this.advance(durationNanos);
+    }
+
+    public void advance(long deltaNanos) {
+      this.nanos += deltaNanos;
+    }
+  }
+
+  // Instance states kept in memory, a failure can be scripted per action. Every call is recorded unless
+  // turned off, benchmarks call it far too often to keep the list
+  public static class StubEC2Gateway implements EC2Gateway {
+    public final Map<String, InstanceState> states = new ConcurrentHashMap<>();
+    public final List<String> calls = new CopyOnWriteArrayList<>();
+    public final Map<String, IOException> failures = new ConcurrentHashMap<>();
+    private final boolean recordCalls;
+
+    public StubEC2Gateway() {
+      this(true);
+    }
+
+    public StubEC2Gateway(boolean recordCalls) {
+      this.recordCalls = recordCalls;
+    }
+
+    public void put(String instanceId, InstanceState state) {
+      this.states.put(instanceId, state);
+    }
+
+    private void call(String action) throws IOException {
+      if (this.recordCalls) this.calls.add(action);
+      IOException failure = this.failures.get(action);
+      if (failure != null) throw failure;
+    }
+
+    @Override
+    public Map<String, String> findInstanceIdsByPrivateIp(Collection<String> privateIpAddresses) throws IOException {
+      this.call("DescribeInstances");
+      return Map.of();
+    }
+
+    @Override
+    public Map<String, String> findInstanceIdsByTag(String tagKey, Collection<String> tagValues) throws IOException {
+      this.call("DescribeInstances");
+      return Map.of();
+    }
+
+    @Override
+    public InstanceState describeInstanceState(String instanceId) throws IOException {
+      this.call("DescribeInstanceStatus");
+      return this.states.getOrDefault(instanceId, InstanceState.UNKNOWN);
+    }
+
+    @Override
+    public Map<String, InstanceState> describeInstanceStates(Collection<String> instanceIds) throws IOException {
+      this.call("DescribeInstanceStatus");
+      Map<String, InstanceState> states = new HashMap<>();
+      for (String instanceId : instanceIds) {
+        InstanceState state = this.states.get(instanceId);
+        if (state != null) states.put(instanceId, state);
+      }
+      return states;
+    }
+
+    @Override
+    public void startInstance(String instanceId) throws IOException {
+      this.call("StartInstances");
+      this.states.put(instanceId, InstanceState.RUNNING);
+    }
+
+    @Override
+    public void stopInstance(String instanceId) throws IOException {
+      this.call("StopInstances");
+      this.states.put(instanceId, InstanceState.STOPPED);
+    }
+
+    @Override
+    public void hibernateInstance(String instanceId) throws IOException {
+      this.call("StopInstances");
+      this.states.put(instanceId, InstanceState.STOPPED);
+    }
+  }
+}